@@ -0,0 +1,155 @@
+package com.example.demo.batch;
+
+import com.rabbitmq.stream.ConfirmationHandler;
+import com.rabbitmq.stream.ConfirmationStatus;
+import com.rabbitmq.stream.Environment;
+import com.rabbitmq.stream.Message;
+import com.rabbitmq.stream.Producer;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A producer for ingestion: sends without waiting for confirms and lets the client batch, pack and
+ * compress messages as set by {@link ProducerSettings}.
+ *
+ * <p>{@link #send} returns as soon as the message is queued for the next publish frame. At most
+ * {@code maxInFlight} messages await their confirm; beyond that {@link #send} blocks until the
+ * broker catches up, so a publisher that outruns the stream slows down instead of buffering without
+ * bound. Each confirm or failure is counted and its latency from {@link #send} recorded, which is
+ * what {@link ProducerBenchmark} reports.
+ *
+ * <p>Safe to call from several threads; messages sent from one thread keep their order.
+ */
+public class BatchingProducer implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(BatchingProducer.class);
+
+  private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(30);
+
+  /** Up to one minute, at three significant digits. */
+  private static final long MAX_TRACKED_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+  private final Producer producer;
+  private final int maxInFlight;
+  private final Semaphore inFlight;
+  private final LongAdder confirmed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final Recorder confirmLatency = new Recorder(MAX_TRACKED_LATENCY_MICROS, 3);
+
+  /**
+   * @param producer a producer built with the same {@code maxInFlight}, e.g. by {@link #create}
+   * @param maxInFlight the number of sent messages that may await confirmation at once
+   * @throws IllegalArgumentException if maxInFlight is not positive
+   */
+  public BatchingProducer(Producer producer, int maxInFlight) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+    }
+    this.producer = Objects.requireNonNull(producer);
+    this.maxInFlight = maxInFlight;
+    this.inFlight = new Semaphore(maxInFlight);
+  }
+
+  /** A producer on {@code stream} with the given settings. */
+  public static BatchingProducer create(
+      Environment environment, String stream, ProducerSettings settings) {
+    Producer producer = settings.applyTo(environment.producerBuilder().stream(stream)).build();
+    return new BatchingProducer(producer, settings.maxInFlight());
+  }
+
+  /**
+   * Queue a message for publishing.
+   *
+   * @param body the message body
+   * @param onConfirm called on a client thread once the broker confirmed or the message failed;
+   *     keep it short, it holds up the confirms behind it
+   * @throws InterruptedException if interrupted while waiting for a confirm to free a slot
+   */
+  public void send(byte[] body, ConfirmationHandler onConfirm) throws InterruptedException {
+    Objects.requireNonNull(onConfirm);
+    inFlight.acquire();
+    long sentAt = System.nanoTime();
+    try {
+      Message message = producer.messageBuilder().addData(body).build();
+      producer.send(
+          message,
+          status -> {
+            confirmLatency.recordValue(
+                Math.min(
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentAt),
+                    MAX_TRACKED_LATENCY_MICROS));
+            (status.isConfirmed() ? confirmed : failed).increment();
+            inFlight.release();
+            onConfirm.handle(status);
+          });
+    } catch (RuntimeException e) {
+      inFlight.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Queue a message for publishing.
+   *
+   * @return a future completed with the confirmation status once the broker has answered
+   * @throws InterruptedException if interrupted while waiting for a confirm to free a slot
+   */
+  public CompletableFuture<ConfirmationStatus> send(byte[] body) throws InterruptedException {
+    CompletableFuture<ConfirmationStatus> confirmation = new CompletableFuture<>();
+    send(body, confirmation::complete);
+    return confirmation;
+  }
+
+  /**
+   * Wait until every message sent so far is confirmed or failed.
+   *
+   * @return false if messages were still unconfirmed after the timeout
+   */
+  public boolean flush(Duration timeout) throws InterruptedException {
+    if (!inFlight.tryAcquire(maxInFlight, timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+      return false;
+    }
+    inFlight.release(maxInFlight);
+    return true;
+  }
+
+  /** Number of sent messages that the broker has not confirmed or rejected yet. */
+  public int inFlight() {
+    return maxInFlight - inFlight.availablePermits();
+  }
+
+  /** Messages confirmed since this producer was created. */
+  public long confirmed() {
+    return confirmed.sum();
+  }
+
+  /** Messages that failed since this producer was created, e.g. after a confirm timeout. */
+  public long failed() {
+    return failed.sum();
+  }
+
+  /**
+   * Confirm latencies in microseconds, from {@link #send} to the confirm, recorded since the
+   * previous call or since creation. Each call starts a new interval.
+   */
+  public Histogram confirmLatency() {
+    return confirmLatency.getIntervalHistogram();
+  }
+
+  /** Waits a bounded time for outstanding confirms, then closes the producer. */
+  @Override
+  public void close() throws InterruptedException {
+    if (!flush(CLOSE_TIMEOUT)) {
+      logger.warn("Closing producer with {} unconfirmed messages", inFlight());
+    }
+    producer.close();
+  }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.batch;
+
+import com.rabbitmq.stream.ProducerBuilder;
+import com.rabbitmq.stream.compression.Compression;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * The producer settings that trade latency for throughput.
+ *
+ * <ul>
+ *   <li>{@code batchSize} messages at most go into one publish frame; a frame that is not full is
+ *       sent after {@code batchPublishingDelay}.
+ *   <li>{@code subEntrySize} greater than 1 packs that many messages into one sub-entry, which the
+ *       broker stores and delivers as a single entry: fewer index entries and confirms per message,
+ *       and the unit that {@code compression} applies to.
+ *   <li>{@code maxInFlight} messages at most wait for their confirm; {@link BatchingProducer#send}
+ *       blocks beyond that, which keeps a fast publisher from outrunning the broker.
+ * </ul>
+ *
+ * <p>GZIP uses the JDK; SNAPPY, LZ4 and ZSTD need their codec library on the classpath.
+ */
+public record ProducerSettings(
+    int batchSize,
+    Duration batchPublishingDelay,
+    int subEntrySize,
+    Compression compression,
+    int maxInFlight) {
+
+  /** The client's own defaults: batches of 100 every 100ms, no sub-entries, 10,000 in flight. */
+  public static final ProducerSettings DEFAULTS =
+      new ProducerSettings(100, Duration.ofMillis(100), 1, Compression.NONE, 10_000);
+
+  public ProducerSettings {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be at least 1, got " + batchSize);
+    }
+    if (batchPublishingDelay == null || batchPublishingDelay.isNegative()) {
+      throw new IllegalArgumentException(
+          "batchPublishingDelay must not be negative, got " + batchPublishingDelay);
+    }
+    if (subEntrySize < 1) {
+      throw new IllegalArgumentException("subEntrySize must be at least 1, got " + subEntrySize);
+    }
+    if (compression == null) {
+      compression = Compression.NONE;
+    }
+    if (compression != Compression.NONE && subEntrySize == 1) {
+      throw new IllegalArgumentException(
+          "compression applies to sub-entries, so it needs a subEntrySize greater than 1");
+    }
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be at least 1, got " + maxInFlight);
+    }
+  }
+
+  /** Apply these settings to a producer builder. */
+  public ProducerBuilder applyTo(ProducerBuilder builder) {
+    return builder
+        .batchSize(batchSize)
+        .batchPublishingDelay(batchPublishingDelay)
+        .subEntrySize(subEntrySize)
+        .compression(compression)
+        .maxUnconfirmedMessages(maxInFlight);
+  }
+
+  /** A one-line description for reports, e.g. {@code batch=100/100ms sub-entry=50 gzip ...}. */
+  public String label() {
+    return "batch=%d/%dms sub-entry=%d %s in-flight=%d"
+        .formatted(
+            batchSize,
+            batchPublishingDelay.toMillis(),
+            subEntrySize,
+            compression.name().toLowerCase(Locale.ROOT),
+            maxInFlight);
+  }
+}
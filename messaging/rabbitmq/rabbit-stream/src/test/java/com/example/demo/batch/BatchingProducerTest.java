@@ -0,0 +1,133 @@
+package com.example.demo.batch;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.rabbitmq.stream.ConfirmationHandler;
+import com.rabbitmq.stream.ConfirmationStatus;
+import com.rabbitmq.stream.Message;
+import com.rabbitmq.stream.Producer;
+import com.rabbitmq.stream.codec.WrapperMessageBuilder;
+import com.rabbitmq.stream.compression.Compression;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class BatchingProducerTest {
+
+  /** Sent messages with their confirmation handlers, so the test decides when RabbitMQ answers. */
+  private final List<Message> sent = new CopyOnWriteArrayList<>();
+
+  private final List<ConfirmationHandler> pending = new CopyOnWriteArrayList<>();
+  private final Producer producer = mock(Producer.class);
+
+  BatchingProducerTest() {
+    when(producer.messageBuilder()).thenAnswer(invocation -> new WrapperMessageBuilder());
+    doAnswer(
+            invocation -> {
+              sent.add(invocation.getArgument(0));
+              pending.add(invocation.getArgument(1));
+              return null;
+            })
+        .when(producer)
+        .send(any(), any());
+  }
+
+  private void confirm(int i, boolean confirmed) {
+    pending.get(i).handle(new ConfirmationStatus(sent.get(i), confirmed, (short) 0));
+  }
+
+  @Test
+  void countsConfirmsAndRecordsTheirLatency() throws Exception {
+    BatchingProducer batching = new BatchingProducer(producer, 8);
+
+    CompletableFuture<ConfirmationStatus> first = batching.send("a".getBytes());
+    CompletableFuture<ConfirmationStatus> second = batching.send("b".getBytes());
+    assertThat(batching.inFlight()).isEqualTo(2);
+
+    confirm(1, true);
+    confirm(0, false);
+    assertThat(first.join().isConfirmed()).isFalse();
+    assertThat(second.join().isConfirmed()).isTrue();
+    assertThat(batching.inFlight()).isZero();
+    assertThat(batching.confirmed()).isEqualTo(1);
+    assertThat(batching.failed()).isEqualTo(1);
+    assertThat(batching.confirmLatency().getTotalCount()).isEqualTo(2);
+    // every call starts a new interval
+    assertThat(batching.confirmLatency().getTotalCount()).isZero();
+  }
+
+  @Test
+  void blocksOnceMaxInFlightMessagesAreUnconfirmed() throws Exception {
+    BatchingProducer batching = new BatchingProducer(producer, 2);
+    batching.send("a".getBytes());
+    batching.send("b".getBytes());
+
+    CompletableFuture<?> third =
+        CompletableFuture.runAsync(
+            () -> {
+              try {
+                batching.send("c".getBytes());
+              } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+              }
+            });
+    Thread.sleep(100);
+    assertThat(third).isNotDone();
+    assertThat(sent).hasSize(2);
+
+    confirm(0, true);
+    third.get(5, TimeUnit.SECONDS);
+    assertThat(sent).hasSize(3);
+  }
+
+  @Test
+  void flushWaitsForOutstandingConfirms() throws Exception {
+    BatchingProducer batching = new BatchingProducer(producer, 4);
+    batching.send("a".getBytes());
+
+    assertThat(batching.flush(Duration.ofMillis(50))).isFalse();
+    confirm(0, true);
+    assertThat(batching.flush(Duration.ofMillis(50))).isTrue();
+
+    batching.close();
+    verify(producer).close();
+  }
+
+  @Test
+  void compressionNeedsSubEntries() {
+    assertThatIllegalArgumentException()
+        .isThrownBy(
+            () -> new ProducerSettings(100, Duration.ofMillis(100), 1, Compression.GZIP, 10_000))
+        .withMessageContaining("subEntrySize");
+    assertThat(ProducerSettings.DEFAULTS.label())
+        .isEqualTo("batch=100/100ms sub-entry=1 none in-flight=10000");
+  }
+
+  @Test
+  void benchmarkRunsEveryValidCombination() {
+    List<ProducerSettings> settings =
+        ProducerBenchmark.settings(
+            List.of(100),
+            List.of(10L, 100L),
+            List.of(1, 50),
+            List.of(Compression.NONE, Compression.GZIP),
+            List.of(10_000));
+
+    // sub-entry size 1 only runs uncompressed
+    assertThat(settings)
+        .extracting(ProducerSettings::label)
+        .containsExactly(
+            "batch=100/10ms sub-entry=1 none in-flight=10000",
+            "batch=100/10ms sub-entry=50 none in-flight=10000",
+            "batch=100/10ms sub-entry=50 gzip in-flight=10000",
+            "batch=100/100ms sub-entry=1 none in-flight=10000",
+            "batch=100/100ms sub-entry=50 none in-flight=10000",
+            "batch=100/100ms sub-entry=50 gzip in-flight=10000");
+    assertThat(ProducerBenchmark.payload(256)).hasSize(256);
+  }
+}
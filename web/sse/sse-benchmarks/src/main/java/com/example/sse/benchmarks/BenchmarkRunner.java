@@ -0,0 +1,26 @@
+package com.example.sse.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks from the IDE with the GC profiler enabled, so every result reports ops/s
+ * together with the allocation rate ({@code gc.alloc.rate.norm} is bytes allocated per op).
+ *
+ * <p>Accepts the usual JMH command line, e.g. {@code SseStreamParsing -p eventSize=256}.
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    ChainedOptionsBuilder options =
+        new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class);
+    if (commandLine.getIncludes().isEmpty()) {
+      options.include(BenchmarkRunner.class.getPackageName());
+    }
+    new Runner(options.build()).run();
+  }
+}
@@ -0,0 +1,60 @@
+package com.example.sse.benchmarks;
+
+import com.example.sse.RawSseEvent;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Per-event cost of {@link RawSseEvent#parseFields()} and the UTF-8 conversions. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RawSseEventBenchmark {
+
+  @Param({"16", "256", "4096"})
+  int eventSize;
+
+  @Param({"1", "4", "16"})
+  int dataLines;
+
+  @Param({"false", "true"})
+  boolean withComment;
+
+  private RawSseEvent event;
+  private byte[] bytes;
+
+  @Setup
+  public void setup() {
+    // RawSseEvent holds the block without the dispatching blank line
+    String block = SseEventFixtures.event(1, eventSize, dataLines, withComment);
+    event = new RawSseEvent(block.substring(0, block.length() - 1));
+    bytes = event.toBytes();
+  }
+
+  @Benchmark
+  public RawSseEvent.Fields parseFields() {
+    return event.parseFields();
+  }
+
+  @Benchmark
+  public byte[] toBytes() {
+    return event.toBytes();
+  }
+
+  @Benchmark
+  public RawSseEvent fromBytes() {
+    return RawSseEvent.fromBytes(bytes);
+  }
+}
@@ -0,0 +1,58 @@
+package com.example.sse.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Deterministic SSE payloads shared by the benchmarks.
+ *
+ * <p>Every benchmark is parameterised by the same three knobs so results can be compared across
+ * classes: the size of the data buffer per event, how many {@code data:} lines it is split into,
+ * and the fraction of events that also carry a comment line.
+ */
+final class SseEventFixtures {
+
+  private static final long SEED = 42L;
+
+  private SseEventFixtures() {}
+
+  /** One complete event block, terminated by the blank line that dispatches it. */
+  static String event(int index, int eventSize, int dataLines, boolean withComment) {
+    StringBuilder sb = new StringBuilder(eventSize + 64 + dataLines * 8);
+    if (withComment) {
+      sb.append(": keep-alive ").append(index).append('\n');
+    }
+    sb.append("id: ").append(index).append('\n');
+    sb.append("event: price-update\n");
+    int perLine = Math.max(1, eventSize / dataLines);
+    for (int line = 0; line < dataLines; line++) {
+      sb.append("data: ");
+      appendPayload(sb, perLine, index + line);
+      sb.append('\n');
+    }
+    return sb.append('\n').toString();
+  }
+
+  /** A text/event-stream body of {@code events} events, encoded as UTF-8. */
+  static byte[] stream(int events, int eventSize, int dataLines, double commentRatio) {
+    Random random = new Random(SEED);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < events; i++) {
+      sb.append(event(i, eventSize, dataLines, random.nextDouble() < commentRatio));
+    }
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** A single-line payload of {@code size} ASCII characters. */
+  static String payload(int size) {
+    StringBuilder sb = new StringBuilder(size);
+    appendPayload(sb, size, 0);
+    return sb.toString();
+  }
+
+  private static void appendPayload(StringBuilder sb, int size, int salt) {
+    for (int i = 0; i < size; i++) {
+      sb.append((char) ('a' + (i + salt) % 26));
+    }
+  }
+}
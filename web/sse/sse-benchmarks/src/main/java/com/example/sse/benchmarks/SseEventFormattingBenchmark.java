@@ -0,0 +1,70 @@
+package com.example.sse.benchmarks;
+
+import com.example.number.mvc.ResponseEmitterBasedSseStream;
+import com.example.sse.SseWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Server side cost of turning one event into bytes on the wire.
+ *
+ * <ul>
+ *   <li>{@code responseEmitterFormat}: the {@code String.format} used by {@link
+ *       ResponseEmitterBasedSseStream#sendSseEvent}.
+ *   <li>{@code directWriterEvent}: {@link SseWriter#event(String, String, String)}, the write path
+ *       of {@code DirectAsyncContextAbstractSseStream}, which encodes straight into a reused
+ *       buffer, written to a discarding stream.
+ * </ul>
+ *
+ * <p>Both formatters produce single-line data, so only the event size is varied here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SseEventFormattingBenchmark {
+
+  @Param({"16", "256", "4096"})
+  int eventSize;
+
+  private final String eventId = "12345";
+  private final String eventType = "price-update";
+  private String data;
+  private final SseWriter writer = SseWriter.builder(OutputStream.nullOutputStream()).build();
+
+  @Setup
+  public void setup() {
+    data = SseEventFixtures.payload(eventSize);
+  }
+
+  @Benchmark
+  public String responseEmitterFormat() {
+    return EmitterStream.format(eventId, eventType, data);
+  }
+
+  @Benchmark
+  public SseWriter directWriterEvent() throws IOException {
+    return writer.event(eventId, eventType, data);
+  }
+
+  /** Exposes the protected formatter without starting an emitter. */
+  private abstract static class EmitterStream extends ResponseEmitterBasedSseStream {
+    static String format(String eventId, String eventType, String data) {
+      return formatSseEvent(eventId, eventType, data);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package com.example.sse.benchmarks;
+
+import com.example.sse.SseStreamProcessor;
+import com.example.sse.SseStreamProcessor.ProcessingResult;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Parses a whole text/event-stream body per invocation, comparing the Reader based {@link
+ * SseStreamProcessor#parseStream} with the byte based {@link SseStreamProcessor#parseStreamBytes}.
+ *
+ * <p>One op is one stream of {@link #EVENTS} events, so ops/s × {@link #EVENTS} gives events/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SseStreamParsingBenchmark {
+
+  static final int EVENTS = 256;
+  private static final int MAX_EVENT_SIZE = 1024 * 1024;
+
+  @Param({"16", "256", "4096"})
+  int eventSize;
+
+  @Param({"1", "4", "16"})
+  int dataLines;
+
+  @Param({"0.0", "0.5"})
+  double commentRatio;
+
+  private byte[] body;
+
+  @Setup
+  public void setup() {
+    body = SseEventFixtures.stream(EVENTS, eventSize, dataLines, commentRatio);
+  }
+
+  /** Baseline: RawSseEvent per event, no field parsing (what SseClient consumers receive). */
+  @Benchmark
+  public void parseStream(Blackhole bh) {
+    SseStreamProcessor.parseStream(
+        response(),
+        event -> {
+          bh.consume(event);
+          return ProcessingResult.CONTINUE;
+        },
+        error -> ProcessingResult.STOP,
+        MAX_EVENT_SIZE);
+  }
+
+  /** Baseline plus {@code parseFields()}, the usual way a consumer reads id/event/data. */
+  @Benchmark
+  public void parseStreamAndFields(Blackhole bh) {
+    SseStreamProcessor.parseStream(
+        response(),
+        event -> {
+          bh.consume(event.parseFields());
+          return ProcessingResult.CONTINUE;
+        },
+        error -> ProcessingResult.STOP,
+        MAX_EVENT_SIZE);
+  }
+
+  /** Byte parser, consumer only touches the zero-copy view. */
+  @Benchmark
+  public void parseStreamBytes(Blackhole bh) {
+    SseStreamProcessor.parseStreamBytes(
+        response(),
+        view -> {
+          bh.consume(view.dataLength());
+          bh.consume(view.idLength());
+          return ProcessingResult.CONTINUE;
+        },
+        error -> ProcessingResult.STOP,
+        MAX_EVENT_SIZE);
+  }
+
+  /** Byte parser, consumer materialises the same Fields record as {@link #parseStreamAndFields}. */
+  @Benchmark
+  public void parseStreamBytesToFields(Blackhole bh) {
+    SseStreamProcessor.parseStreamBytes(
+        response(),
+        view -> {
+          bh.consume(view.toFields());
+          return ProcessingResult.CONTINUE;
+        },
+        error -> ProcessingResult.STOP,
+        MAX_EVENT_SIZE);
+  }
+
+  private ClientHttpResponse response() {
+    return new BodyResponse(body);
+  }
+
+  /** A {@code 200 OK} response that only has a body, all the parser reads. */
+  private record BodyResponse(byte[] body) implements ClientHttpResponse {
+
+    @Override
+    public InputStream getBody() {
+      return new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public HttpStatusCode getStatusCode() {
+      return HttpStatus.OK;
+    }
+
+    @Override
+    public String getStatusText() {
+      return HttpStatus.OK.getReasonPhrase();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return new HttpHeaders();
+    }
+
+    @Override
+    public void close() {}
+  }
+}
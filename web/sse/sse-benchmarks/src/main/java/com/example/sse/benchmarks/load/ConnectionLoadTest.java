@@ -0,0 +1,131 @@
+package com.example.sse.benchmarks.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures how many concurrent SSE streams a running server sustains, one transport at a time.
+ *
+ * <p>For every target the test opens {@code --connections} streams spread over {@code --ramp-up},
+ * keeps them open for {@code --duration} and reports:
+ *
+ * <ul>
+ *   <li>streams still open at the end, events/s received and reconnects/failures
+ *   <li>delivery latency percentiles, from the producer's {@code timestamp} in the event to its
+ *       arrival, for targets whose events carry one
+ *   <li>time from sending the request to the first event
+ *   <li>the server's heap and live threads, idle and under load, from its actuator
+ * </ul>
+ *
+ * <p>Every stream is read on its own virtual thread through the JDK {@link HttpClient} and parsed
+ * with {@link com.example.sse.SseByteStreamParser}, so the client side stays cheap enough for tens
+ * of thousands of streams. Delivery latency compares the server's clock with ours: run the test on
+ * the server's host, or on one with a synchronized clock in the same time zone.
+ *
+ * <p>Usage, with the defaults:
+ *
+ * <pre>
+ * java -cp web/sse/sse-benchmarks/target/benchmarks.jar \
+ *     com.example.sse.benchmarks.load.ConnectionLoadTest \
+ *     --base-url http://localhost:8080 --connections 1000 --ramp-up PT10S --duration PT30S \
+ *     --targets mvc,webflux,watchlist,numbers
+ * </pre>
+ *
+ * <p>Thousands of connections from one host need a matching open file limit ({@code ulimit -n}) on
+ * both sides.
+ */
+public class ConnectionLoadTest {
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = parseOptions(args);
+    URI baseUrl = URI.create(options.getOrDefault("base-url", "http://localhost:8080"));
+    int connections = Integer.parseInt(options.getOrDefault("connections", "1000"));
+    Duration rampUp = Duration.parse(options.getOrDefault("ramp-up", "PT10S"));
+    Duration duration = Duration.parse(options.getOrDefault("duration", "PT30S"));
+    List<LoadTarget> targets =
+        Arrays.stream(options.getOrDefault("targets", "mvc,webflux,watchlist,numbers").split(","))
+            .map(LoadTarget::parse)
+            .toList();
+
+    HttpClient client =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    List<LoadRun.Result> results = new ArrayList<>();
+    for (LoadTarget target : targets) {
+      System.out.printf(
+          "%s: opening %d streams over %s, then measuring for %s%n",
+          target, connections, rampUp, duration);
+      results.add(new LoadRun(client, baseUrl, target, connections).run(rampUp, duration));
+    }
+    printReport(baseUrl, connections, duration, results);
+  }
+
+  private static void printReport(
+      URI baseUrl, int connections, Duration duration, List<LoadRun.Result> results) {
+    System.out.printf(
+        "%nSSE connection load test: %s, %d streams per target, measured for %s%n%n",
+        baseUrl, connections, duration);
+    String format = "%-10s %6s %10s %8s %8s %8s %8s %10s %10s %9s %13s %13s%n";
+    System.out.printf(
+        format,
+        "target",
+        "open",
+        "events/s",
+        "p50 ms",
+        "p99 ms",
+        "p99.9 ms",
+        "max ms",
+        "first p99",
+        "reconnects",
+        "failures",
+        "heap MB",
+        "threads");
+    for (LoadRun.Result result : results) {
+      System.out.printf(
+          format,
+          result.target().name().toLowerCase(),
+          result.openAtEnd(),
+          String.format("%.0f", result.eventsPerSecond()),
+          millis(result, 50),
+          millis(result, 99),
+          millis(result, 99.9),
+          result.delivery().getTotalCount() == 0
+              ? "-"
+              : String.format("%.1f", result.delivery().getMaxValue() / 1000.0),
+          String.format("%.1f", result.firstEvent().getValueAtPercentile(99) / 1000.0),
+          result.reconnects(),
+          result.failures(),
+          result.idle().heapMegabytes() + " > " + result.loaded().heapMegabytes(),
+          result.idle().threads() + " > " + result.loaded().threads());
+    }
+  }
+
+  private static String millis(LoadRun.Result result, double percentile) {
+    if (result.delivery().getTotalCount() == 0) {
+      return "-";
+    }
+    return String.format("%.1f", result.delivery().getValueAtPercentile(percentile) / 1000.0);
+  }
+
+  private static Map<String, String> parseOptions(String[] args) {
+    Map<String, String> options = new HashMap<>();
+    for (int i = 0; i < args.length; i += 2) {
+      if (!args[i].startsWith("--") || i + 1 == args.length) {
+        throw new IllegalArgumentException("Expected --option value pairs, got " + args[i]);
+      }
+      options.put(args[i].substring(2), args[i + 1]);
+    }
+    return options;
+  }
+}
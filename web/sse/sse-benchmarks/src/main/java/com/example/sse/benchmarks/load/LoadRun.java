@@ -0,0 +1,197 @@
+package com.example.sse.benchmarks.load;
+
+import com.example.sse.SseByteStreamParser;
+import com.example.sse.SseEventView;
+import com.example.sse.SseEventViewHandler;
+import com.example.sse.SseStreamProcessor.ProcessingResult;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * One load test against one target: opens the streams, reconnects them when they end, and records
+ * what they receive. Latencies are recorded in microseconds.
+ */
+class LoadRun {
+
+  private static final int MAX_EVENT_BYTES = 1024 * 1024;
+  private static final String TIMESTAMP_FIELD = "\"timestamp\":\"";
+
+  private final HttpClient client;
+  private final URI baseUrl;
+  private final LoadTarget target;
+  private final int connections;
+
+  private final Recorder delivery = new Recorder(3);
+  private final Recorder firstEvent = new Recorder(3);
+  private final LongAdder events = new LongAdder();
+  private final LongAdder reconnects = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final AtomicInteger open = new AtomicInteger();
+  private volatile boolean measuring;
+  private volatile boolean stopping;
+
+  record Result(
+      LoadTarget target,
+      int openAtEnd,
+      double eventsPerSecond,
+      Histogram delivery,
+      Histogram firstEvent,
+      long reconnects,
+      long failures,
+      ServerSample idle,
+      ServerSample loaded) {}
+
+  LoadRun(HttpClient client, URI baseUrl, LoadTarget target, int connections) {
+    this.client = client;
+    this.baseUrl = baseUrl;
+    this.target = target;
+    this.connections = connections;
+  }
+
+  Result run(Duration rampUp, Duration duration) throws InterruptedException {
+    ServerSample idle = ServerSample.take(client, baseUrl);
+    ExecutorService streams = Executors.newVirtualThreadPerTaskExecutor();
+    long start = System.nanoTime();
+    long pace = rampUp.toNanos() / connections;
+    for (int i = 0; i < connections; i++) {
+      LockSupport.parkNanos(start + i * pace - System.nanoTime());
+      streams.execute(this::stream);
+    }
+
+    // steady state: every stream has been opened, measure from here
+    delivery.reset();
+    events.reset();
+    measuring = true;
+    long measureStart = System.nanoTime();
+    Thread.sleep(duration);
+    long measured = System.nanoTime() - measureStart;
+    measuring = false;
+    ServerSample loaded = ServerSample.take(client, baseUrl);
+    int openAtEnd = open.get();
+
+    // interrupting the readers closes their streams
+    stopping = true;
+    streams.shutdownNow();
+    if (!streams.awaitTermination(30, TimeUnit.SECONDS)) {
+      System.out.printf("%s: some streams did not close within 30s%n", target);
+    }
+    return new Result(
+        target,
+        openAtEnd,
+        events.sum() * 1e9 / measured,
+        delivery.getIntervalHistogram(),
+        firstEvent.getIntervalHistogram(),
+        reconnects.sum(),
+        failures.sum(),
+        idle,
+        loaded);
+  }
+
+  /** Keeps one stream open until the run stops, resuming it from its last event id. */
+  private void stream() {
+    StreamHandler handler = new StreamHandler();
+    SseByteStreamParser parser =
+        new SseByteStreamParser(handler, error -> ProcessingResult.CONTINUE, MAX_EVENT_BYTES);
+    boolean reconnect = false;
+    while (!stopping) {
+      if (reconnect) {
+        reconnects.increment();
+      }
+      reconnect = true;
+      handler.openedAt = System.nanoTime();
+      handler.sawEvent = false;
+      parser.reset();
+      try {
+        HttpResponse<InputStream> response =
+            client.send(
+                target.open(baseUrl, handler.lastEventId).build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+          if (response.statusCode() != 200) {
+            failures.increment();
+            // e.g. 410 from /watchlist: the events to resume from are gone, start over
+            handler.lastEventId = null;
+            Thread.sleep(1000);
+            continue;
+          }
+          open.incrementAndGet();
+          try {
+            parser.parse(body);
+          } finally {
+            open.decrementAndGet();
+          }
+        }
+      } catch (IOException e) {
+        if (stopping) {
+          return;
+        }
+        failures.increment();
+        LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  /** Records the events of one stream; reused across its reconnects. */
+  private final class StreamHandler implements SseEventViewHandler {
+
+    private long openedAt;
+    private boolean sawEvent;
+    private String lastEventId;
+
+    @Override
+    public ProcessingResult onEvent(SseEventView event) {
+      if (stopping) {
+        return ProcessingResult.STOP;
+      }
+      if (event.dataLineCount() == 0) {
+        return ProcessingResult.CONTINUE; // heartbeat comment
+      }
+      long now = System.nanoTime();
+      if (!sawEvent) {
+        sawEvent = true;
+        firstEvent.recordValue(TimeUnit.NANOSECONDS.toMicros(now - openedAt));
+      }
+      if (event.hasId()) {
+        lastEventId = event.id();
+      }
+      if (measuring) {
+        events.increment();
+        recordDelivery(event.data());
+      }
+      return ProcessingResult.CONTINUE;
+    }
+
+    private void recordDelivery(String data) {
+      int start = data.indexOf(TIMESTAMP_FIELD);
+      if (start < 0) {
+        return;
+      }
+      start += TIMESTAMP_FIELD.length();
+      int end = data.indexOf('"', start);
+      try {
+        LocalDateTime producedAt = LocalDateTime.parse(data.substring(start, end));
+        long micros = producedAt.until(LocalDateTime.now(), ChronoUnit.MICROS);
+        delivery.recordValue(Math.max(0, micros));
+      } catch (DateTimeParseException | IndexOutOfBoundsException e) {
+        // not a timestamp we understand, the event still counts
+      }
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.example.sse.benchmarks.load;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+
+/**
+ * The SSE endpoints the load test knows how to open, each one a different server-side transport.
+ *
+ * <p>Targets whose events carry the producer's {@code timestamp} (the stock price streams) also
+ * report delivery latency; the others only report time to first event and throughput.
+ */
+enum LoadTarget {
+  /** Spring MVC {@code SseEmitter} fed by the shared price ticker. */
+  MVC("/mvc/stream/infinite?symbol=AAPL"),
+  /**
+   * Shared reactive {@code Flux} of prices, written by Spring MVC to servlet async requests. Only
+   * sse-server-mvc serves it, so Reactor Netty is not measured.
+   */
+  WEBFLUX("/webflux/stream/infinite?symbol=AAPL"),
+  /** Resumable watchlist: created with a POST, resumed with a GET carrying Last-Event-ID. */
+  WATCHLIST("/watchlist") {
+    @Override
+    HttpRequest.Builder open(URI baseUrl, String lastEventId) {
+      if (lastEventId != null) {
+        return super.open(baseUrl, lastEventId);
+      }
+      return request(baseUrl)
+          .header("Content-Type", "application/json")
+          .POST(HttpRequest.BodyPublishers.ofString("{\"symbol\":\"AAPL\"}"));
+    }
+  },
+  /** A virtual thread per stream writing straight to the servlet AsyncContext. */
+  NUMBERS("/sse/numbers");
+
+  private final String path;
+
+  LoadTarget(String path) {
+    this.path = path;
+  }
+
+  /**
+   * The request that opens a stream, or resumes it after the event {@code lastEventId} when that is
+   * not null.
+   */
+  HttpRequest.Builder open(URI baseUrl, String lastEventId) {
+    HttpRequest.Builder request = request(baseUrl).GET();
+    if (lastEventId != null) {
+      request.header("Last-Event-ID", lastEventId);
+    }
+    return request;
+  }
+
+  HttpRequest.Builder request(URI baseUrl) {
+    return HttpRequest.newBuilder(baseUrl.resolve(path))
+        .header("Accept", "text/event-stream")
+        .timeout(Duration.ofSeconds(30));
+  }
+
+  static LoadTarget parse(String name) {
+    return valueOf(name.trim().toUpperCase());
+  }
+}
@@ -0,0 +1,53 @@
+package com.example.sse.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Heap and thread usage of the server under test, read from its actuator metrics endpoint.
+ *
+ * <p>Both server modules expose all actuator endpoints; a server that does not reports -1.
+ */
+record ServerSample(long heapUsedBytes, long liveThreads) {
+
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  static ServerSample take(HttpClient client, URI baseUrl) {
+    return new ServerSample(
+        metric(client, baseUrl, "jvm.memory.used?tag=area:heap"),
+        metric(client, baseUrl, "jvm.threads.live"));
+  }
+
+  String heapMegabytes() {
+    return heapUsedBytes < 0 ? "n/a" : String.valueOf(heapUsedBytes / (1024 * 1024));
+  }
+
+  String threads() {
+    return liveThreads < 0 ? "n/a" : String.valueOf(liveThreads);
+  }
+
+  private static long metric(HttpClient client, URI baseUrl, String nameAndTags) {
+    HttpRequest request =
+        HttpRequest.newBuilder(baseUrl.resolve("/actuator/metrics/" + nameAndTags))
+            .timeout(Duration.ofSeconds(5))
+            .build();
+    try {
+      HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+      if (response.statusCode() != 200) {
+        return -1;
+      }
+      JsonNode value = objectMapper.readTree(response.body()).at("/measurements/0/value");
+      return value.isMissingNode() ? -1 : value.asLong();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return -1;
+    } catch (Exception e) {
+      return -1;
+    }
+  }
+}
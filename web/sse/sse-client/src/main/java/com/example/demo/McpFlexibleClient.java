@@ -49,7 +49,7 @@ public class McpFlexibleClient {
           });
     }
 
-    //        streamableHttpClient.post(initMessage)
+    //        streamableHttpClient.send(initMessage)
     //            .doOnNext(result -> {
     //                if (result instanceof JsonMcpResponse json) {
     //                    System.out.println("=== JSON Response ===");
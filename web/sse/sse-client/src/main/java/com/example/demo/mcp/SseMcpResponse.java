@@ -3,4 +3,5 @@ package com.example.demo.mcp;
 import org.springframework.http.codec.ServerSentEvent;
 import reactor.core.publisher.Flux;
 
+/** An answer streamed as SSE: the events the server sent up to and including the response. */
 public record SseMcpResponse(Flux<ServerSentEvent<String>> stream) implements McpResponse {}
@@ -1,105 +1,179 @@
 package com.example.demo.mcp;
 
-import org.springframework.core.ParameterizedTypeReference;
+import com.example.sse.SseDataBufferDecoder;
+import com.example.sse.SseEventView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Client for the MCP Streamable HTTP transport: each JSON-RPC message is POSTed and the server
+ * answers with either one JSON body or an SSE stream that carries the response.
+ *
+ * <p>{@link #send(String)} never blocks, so thousands of calls can be in flight on a few event loop
+ * threads; {@link #post(String)} blocks on it and is meant for virtual threads. Every exchange
+ * fully reads or releases its body before the connection goes back to the pool. Concurrent calls
+ * use separate exchanges, and on an SSE stream the call completes with the event whose JSON-RPC
+ * {@code id} matches the request's, whatever the server sends before it.
+ */
 public class StreamableHttpClient {
 
+  /** The limit of Spring's own SSE decoder. */
+  private static final int MAX_EVENT_BYTES = 256 * 1024;
+
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  /** Shared by the clients created without a connection provider of their own. */
+  private static final ConnectionProvider DEFAULT_CONNECTIONS =
+      connectionProvider(500, 10_000, Duration.ofSeconds(30));
+
   private final WebClient client;
 
   public StreamableHttpClient(String mcpServerUrl) {
-    this.client = WebClient.builder().baseUrl(mcpServerUrl).build();
+    this(mcpServerUrl, DEFAULT_CONNECTIONS);
+  }
+
+  /**
+   * @param connections the pool to take connections from, e.g. from {@link #connectionProvider(int,
+   *     int, Duration)}
+   */
+  public StreamableHttpClient(String mcpServerUrl, ConnectionProvider connections) {
+    this(
+        WebClient.builder()
+            .baseUrl(mcpServerUrl)
+            .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+            .build());
   }
 
-  public McpResponse post2(String requestJson) {
+  StreamableHttpClient(WebClient client) {
+    this.client = client;
+  }
+
+  /**
+   * A connection pool for MCP calls.
+   *
+   * @param maxConnections connections open at once per server; calls beyond wait for one
+   * @param maxPendingAcquires calls allowed to wait for a connection before failing fast
+   * @param pendingAcquireTimeout how long a call waits for a connection
+   */
+  public static ConnectionProvider connectionProvider(
+      int maxConnections, int maxPendingAcquires, Duration pendingAcquireTimeout) {
+    return ConnectionProvider.builder("mcp")
+        .maxConnections(maxConnections)
+        .pendingAcquireMaxCount(maxPendingAcquires)
+        .pendingAcquireTimeout(pendingAcquireTimeout)
+        .maxIdleTime(Duration.ofSeconds(30))
+        .evictInBackground(Duration.ofSeconds(30))
+        .build();
+  }
+
+  /**
+   * Send a JSON-RPC message without blocking.
+   *
+   * @return a {@link JsonMcpResponse}, an {@link SseMcpResponse} with the events up to and
+   *     including the response, or empty when the server accepted a notification or response
+   *     without answering ({@code 202 Accepted})
+   */
+  public Mono<McpResponse> send(String requestJson) {
+    JsonNode id = idOf(requestJson);
     return client
         .post()
         .contentType(MediaType.APPLICATION_JSON)
         .accept(MediaType.APPLICATION_JSON, MediaType.TEXT_EVENT_STREAM)
         .bodyValue(requestJson)
-        .exchangeToMono(
-            response -> {
-              MediaType contentType =
-                  response.headers().contentType().orElse(MediaType.APPLICATION_OCTET_STREAM);
-
-              if (MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType)) {
-                // Create the flux from the response body
-                Flux<ServerSentEvent<String>> sseStream =
-                    response
-                        .bodyToFlux(new ParameterizedTypeReference<>() {})
-                        .switchOnFirst(
-                            (signal, objectFlux) -> {
-                              if (signal.isOnNext()) {
-                                ServerSentEvent<String> event =
-                                    (ServerSentEvent<String>) signal.get();
-                                // pare event data
-                                // if its matching my criteria I am done
-                                return Flux.just(event);
-                              }
-
-                              return Flux.empty();
-                            });
-
-                // Return the SSE response with the flux
-                return Mono.just(new SseMcpResponse(sseStream));
-
-              } else if (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
-                // For JSON responses, extract the body and return it
-                return response.bodyToMono(String.class).map(JsonMcpResponse::new);
-
-              } else {
-                // Protocol violation: MCP must return JSON or SSE
-                response.releaseBody(); // Release the response body to avoid memory leaks
-                throw new IllegalStateException(
-                    "Invalid response Content-Type: "
-                        + contentType
-                        + ". MCP server must return application/json or text/event-stream.");
-              }
-            })
-        .block();
+        .exchangeToMono(response -> read(response, id));
   }
 
+  /**
+   * Send a JSON-RPC message and wait for its response. Blocking, so call it from a virtual thread
+   * rather than from a reactive pipeline.
+   *
+   * @return the response, or null for a {@code 202 Accepted}
+   */
   public McpResponse post(String requestJson) {
-    ClientResponse response =
-        client
-            .post()
-            .contentType(MediaType.APPLICATION_JSON)
-            .accept(MediaType.APPLICATION_JSON, MediaType.TEXT_EVENT_STREAM)
-            .bodyValue(requestJson)
-            .exchange()
-            .block();
-
-    if (response == null) {
-      throw new IllegalStateException("Failed to get response from server");
+    return send(requestJson).block();
+  }
+
+  private Mono<McpResponse> read(ClientResponse response, JsonNode id) {
+    if (response.statusCode().value() == HttpStatus.ACCEPTED.value()) {
+      return response.releaseBody().then(Mono.empty());
+    }
+    if (response.statusCode().isError()) {
+      return response.createError();
     }
 
     MediaType contentType =
         response.headers().contentType().orElse(MediaType.APPLICATION_OCTET_STREAM);
 
     if (MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType)) {
-      // Create the flux from the response body
-      Flux<ServerSentEvent<String>> sseStream =
-          response.bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {});
-
-      // Return the SSE response with the flux
-      return new SseMcpResponse(sseStream);
+      // Read the stream up to the response inside the exchange, which releases the connection
+      // once it is done, instead of handing out a Flux that outlives it. Events without data, such
+      // as heartbeats, are skipped by the parser before any String is made for them.
+      return SseDataBufferDecoder.decode(
+              response.bodyToFlux(DataBuffer.class),
+              StreamableHttpClient::withData,
+              MAX_EVENT_BYTES)
+          .takeUntil(event -> id != null && isResponseTo(event.data(), id))
+          .collectList()
+          .map(events -> new SseMcpResponse(Flux.fromIterable(events)));
 
     } else if (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
-      // For JSON responses, extract the body and return it
-      return response.bodyToMono(String.class).map(JsonMcpResponse::new).block();
+      return response.bodyToMono(String.class).map(JsonMcpResponse::new);
 
     } else {
       // Protocol violation: MCP must return JSON or SSE
-      response.releaseBody(); // Release the response body to avoid memory leaks
-      throw new IllegalStateException(
-          "Invalid response Content-Type: "
-              + contentType
-              + ". MCP server must return application/json or text/event-stream.");
+      return response
+          .releaseBody()
+          .then(
+              Mono.error(
+                  new IllegalStateException(
+                      "Invalid response Content-Type: "
+                          + contentType
+                          + ". MCP server must return application/json or text/event-stream.")));
+    }
+  }
+
+  private static ServerSentEvent<String> withData(SseEventView event) {
+    return event.dataLineCount() == 0 ? null : SseDataBufferDecoder.toServerSentEvent(event);
+  }
+
+  /** The id of a JSON-RPC request, or null for a notification. */
+  private static JsonNode idOf(String requestJson) {
+    try {
+      JsonNode id = objectMapper.readTree(requestJson).get("id");
+      return id == null || id.isNull() ? null : id;
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Request is not a JSON-RPC message", e);
+    }
+  }
+
+  /** Whether an SSE event's data is the JSON-RPC result or error for the request {@code id}. */
+  static boolean isResponseTo(String data, JsonNode id) {
+    JsonNode message;
+    try {
+      message = objectMapper.readTree(data);
+    } catch (JsonProcessingException e) {
+      return false;
+    }
+    JsonNode messageId = message.get("id");
+    if (messageId == null || !(message.has("result") || message.has("error"))) {
+      return false; // a notification or a request from the server
     }
+    // 1 and 1.0 are the same id; a number is never the same id as a string
+    return messageId.isNumber() && id.isNumber()
+        ? messageId.decimalValue().compareTo(id.decimalValue()) == 0
+        : messageId.equals(id);
   }
 }
@@ -1,12 +1,236 @@
 package com.example.eventsource;
 
+import com.example.sse.SseDataBufferDecoder;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.UnsupportedMediaTypeException;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+import reactor.util.retry.Retry.RetrySignal;
 
+/**
+ * An EventSource for services: follows an SSE stream across disconnects the way a browser does, so
+ * a blip costs a resume instead of a full replay.
+ *
+ * <ul>
+ *   <li>Every reconnect sends {@code Last-Event-ID} with the last id the server sent, so servers
+ *       that support it (e.g. {@code /orders}, {@code /watchlist}) only send what was missed.
+ *   <li>The server's {@code retry:} value replaces the initial reconnect delay. Failures in a row
+ *       double it up to the maximum; a random half of each delay spreads out the clients that lost
+ *       their connection together.
+ *   <li>A stream silent for longer than the idle timeout is treated as dead and reopened; servers
+ *       that send heartbeat comments (every 15s here) keep it alive.
+ *   <li>As in the spec, {@code 204 No Content} ends the subscription and so do other client errors
+ *       or a response that is not {@code text/event-stream}; server errors, {@code 408} and {@code
+ *       429} are retried.
+ * </ul>
+ *
+ * <p>Only events with data are emitted; comments and id- or retry-only events update the state
+ * above. Each subscription to a returned Flux follows the stream independently. The body is parsed
+ * as bytes by {@link SseDataBufferDecoder} rather than split into a String per line first.
+ */
 public class SseClient {
 
+  private static final Logger logger = LoggerFactory.getLogger(SseClient.class);
+
+  /** The limit of Spring's own SSE decoder. */
+  private static final int MAX_EVENT_BYTES = 256 * 1024;
+
+  /**
+   * One pool for all clients made by {@link #create(String)}. Over HTTP/2 streams to the same
+   * origin are multiplexed on a few connections; over HTTP/1.1 each open stream holds one.
+   */
+  private static final ConnectionProvider CONNECTIONS =
+      ConnectionProvider.builder("sse-client")
+          .maxConnections(1024)
+          .maxIdleTime(Duration.ofMinutes(5))
+          .build();
+
   private final WebClient webClient;
+  private final Duration reconnectDelay;
+  private final Duration maxReconnectDelay;
+  private final Duration idleTimeout;
 
+  /** Reconnects after 3s, backs off up to 30s and reopens streams idle for 45s. */
   public SseClient(WebClient webClient) {
+    this(webClient, Duration.ofSeconds(3), Duration.ofSeconds(30), Duration.ofSeconds(45));
+  }
+
+  /**
+   * @param reconnectDelay delay before the first reconnect, until the server sends {@code retry:}
+   * @param maxReconnectDelay cap of the exponential backoff
+   * @param idleTimeout how long a stream may go without an event or comment
+   */
+  public SseClient(
+      WebClient webClient,
+      Duration reconnectDelay,
+      Duration maxReconnectDelay,
+      Duration idleTimeout) {
     this.webClient = webClient;
+    this.reconnectDelay = reconnectDelay;
+    this.maxReconnectDelay = maxReconnectDelay;
+    this.idleTimeout = idleTimeout;
+  }
+
+  /**
+   * A client for {@code baseUrl} on the shared connection pool, speaking HTTP/2 when the server
+   * does (ALPN over TLS, upgrade over cleartext) and HTTP/1.1 otherwise.
+   */
+  public static SseClient create(String baseUrl) {
+    HttpClient httpClient =
+        HttpClient.create(CONNECTIONS)
+            .protocol(HttpProtocol.H2, HttpProtocol.H2C, HttpProtocol.HTTP11);
+    return new SseClient(
+        WebClient.builder()
+            .baseUrl(baseUrl)
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .build());
+  }
+
+  /** Follow the stream at {@code uri} from now on. */
+  public Flux<ServerSentEvent<String>> subscribe(String uri) {
+    return subscribe(uri, null);
+  }
+
+  /**
+   * Follow the stream at {@code uri}, resuming after {@code lastEventId} when not null, e.g. an id
+   * kept from an earlier run. The Flux completes only when the server answers 204 and fails on
+   * errors that reconnecting cannot fix; cancel it to close the stream.
+   */
+  public Flux<ServerSentEvent<String>> subscribe(String uri, String lastEventId) {
+    return Flux.defer(() -> new EventSource(uri, lastEventId).events());
+  }
+
+  /** Whether reconnecting may help, the way an EventSource decides between reconnect and fail. */
+  static boolean isRetryable(Throwable error) {
+    if (error instanceof WebClientResponseException response) {
+      HttpStatusCode status = response.getStatusCode();
+      return status.is5xxServerError()
+          || status.value() == HttpStatus.REQUEST_TIMEOUT.value()
+          || status.value() == HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+    return !(error instanceof UnsupportedMediaTypeException);
+  }
+
+  /** The connection state of one subscription; a Flux of it is subscribed once at a time. */
+  private final class EventSource {
+
+    private final String uri;
+    private volatile String lastEventId;
+    private volatile Duration serverRetry;
+    private volatile boolean ended;
+
+    private EventSource(String uri, String lastEventId) {
+      this.uri = uri;
+      this.lastEventId = lastEventId;
+    }
+
+    private Flux<ServerSentEvent<String>> events() {
+      return Flux.defer(this::connect)
+          .retryWhen(Retry.from(signals -> signals.concatMap(this::reconnect)));
+    }
+
+    private Flux<ServerSentEvent<String>> connect() {
+      return webClient
+          .get()
+          .uri(uri)
+          .accept(MediaType.TEXT_EVENT_STREAM)
+          .headers(
+              headers -> {
+                String id = lastEventId;
+                if (id != null && !id.isEmpty()) {
+                  headers.set("Last-Event-ID", id);
+                }
+              })
+          .exchangeToFlux(this::body)
+          // heartbeat comments count: only a stream that went completely quiet times out
+          .timeout(idleTimeout)
+          .doOnNext(this::track)
+          .filter(event -> event.data() != null)
+          // the server closing the stream is a reason to reconnect like any other
+          .concatWith(
+              Flux.defer(() -> ended ? Flux.empty() : Flux.error(new StreamEndedException())));
+    }
+
+    private Flux<ServerSentEvent<String>> body(ClientResponse response) {
+      if (response.statusCode().value() == HttpStatus.NO_CONTENT.value()) {
+        ended = true;
+        return response.releaseBody().thenMany(Flux.empty());
+      }
+      if (!response.statusCode().is2xxSuccessful()) {
+        return response.<ServerSentEvent<String>>createError().flux();
+      }
+      MediaType contentType =
+          response.headers().contentType().orElse(MediaType.APPLICATION_OCTET_STREAM);
+      if (!MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType)) {
+        return response
+            .releaseBody()
+            .thenMany(
+                Flux.error(
+                    new UnsupportedMediaTypeException(
+                        "Expected text/event-stream from " + uri + ", got " + contentType)));
+      }
+      return SseDataBufferDecoder.decode(response.bodyToFlux(DataBuffer.class), MAX_EVENT_BYTES);
+    }
+
+    private void track(ServerSentEvent<String> event) {
+      if (event.id() != null) {
+        lastEventId = event.id();
+      }
+      if (event.retry() != null) {
+        serverRetry = event.retry();
+      }
+    }
+
+    private Mono<Long> reconnect(RetrySignal signal) {
+      Throwable error = signal.failure();
+      if (!isRetryable(error)) {
+        return Mono.error(error);
+      }
+      Duration delay = backoff(signal.totalRetriesInARow());
+      logger.info(
+          "Reconnecting to {} after Last-Event-ID {} in {}ms: {}",
+          uri,
+          lastEventId,
+          delay.toMillis(),
+          error.toString());
+      return Mono.delay(delay);
+    }
+
+    /** Equal jitter: half of the capped exponential delay, plus a random part of the other half. */
+    private Duration backoff(long failuresInARow) {
+      Duration retry = serverRetry;
+      long base = (retry != null ? retry : reconnectDelay).toMillis();
+      long max = Math.max(base, maxReconnectDelay.toMillis());
+      long delay = base;
+      for (long i = 0; i < failuresInARow && delay < max; i++) {
+        delay *= 2;
+      }
+      delay = Math.min(delay, max);
+      long half = delay / 2;
+      return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(delay - half + 1));
+    }
+  }
+
+  /** The server ended the response; reconnecting resumes after the last event received. */
+  static final class StreamEndedException extends RuntimeException {
+    StreamEndedException() {
+      super("Server closed the event stream", null, false, false);
+    }
   }
 }
@@ -0,0 +1,103 @@
+package com.example.demo.mcp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class StreamableHttpClientTest {
+
+  private static final String REQUEST = "{\"jsonrpc\":\"2.0\",\"id\":7,\"method\":\"tools/call\"}";
+
+  private static StreamableHttpClient client(ClientResponse response) {
+    return new StreamableHttpClient(
+        WebClient.builder().exchangeFunction(request -> Mono.just(response)).build());
+  }
+
+  private static Flux<DataBuffer> chunks(String... chunks) {
+    return Flux.fromArray(chunks)
+        .map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(UTF_8)));
+  }
+
+  @Test
+  void jsonAnswerIsReturnedAsIs() {
+    String json = "{\"jsonrpc\":\"2.0\",\"id\":7,\"result\":{}}";
+    ClientResponse response =
+        ClientResponse.create(HttpStatus.OK)
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .body(json)
+            .build();
+
+    assertThat(client(response).send(REQUEST).block()).isEqualTo(new JsonMcpResponse(json));
+  }
+
+  @Test
+  void sseAnswerCompletesWithTheResponseToTheRequestId() {
+    ClientResponse response =
+        ClientResponse.create(HttpStatus.OK)
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+            .body(
+                chunks(
+                    "data: {\"jsonrpc\":\"2.0\",\"method\":\"notifications/progress\"}\n\n",
+                    "data: {\"jsonrpc\":\"2.0\",\"id\":6,\"result\":{}}\n\n",
+                    ": keep-alive\n\n",
+                    "data: {\"jsonrpc\":\"2.0\",\"id\":7,\"result\":{\"ok\":true}}\n\n",
+                    // a server may keep the stream open after the response
+                    "data: {\"jsonrpc\":\"2.0\",\"method\":\"notifications/message\"}\n\n"))
+            .build();
+
+    McpResponse answer = client(response).send(REQUEST).block(Duration.ofSeconds(5));
+
+    assertThat(answer).isInstanceOf(SseMcpResponse.class);
+    List<String> data =
+        ((SseMcpResponse) answer).stream().map(ServerSentEvent::data).collectList().block();
+    assertThat(data).hasSize(3).last().asString().contains("\"ok\":true");
+  }
+
+  @Test
+  void acceptedNotificationHasNoAnswer() {
+    ClientResponse response = ClientResponse.create(HttpStatus.ACCEPTED).build();
+
+    assertThat(client(response).post("{\"jsonrpc\":\"2.0\",\"method\":\"initialized\"}")).isNull();
+  }
+
+  @Test
+  void otherContentTypesAreAProtocolViolation() {
+    ClientResponse response =
+        ClientResponse.create(HttpStatus.OK)
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_HTML_VALUE)
+            .body("<html/>")
+            .build();
+
+    assertThatIllegalStateException()
+        .isThrownBy(() -> client(response).post(REQUEST))
+        .withMessageContaining("text/html");
+  }
+
+  @Test
+  void responsesAreMatchedByIdValue() {
+    String response = "{\"jsonrpc\":\"2.0\",\"id\":7,\"result\":{}}";
+
+    assertThat(StreamableHttpClient.isResponseTo(response, IntNode.valueOf(7))).isTrue();
+    assertThat(StreamableHttpClient.isResponseTo(response, TextNode.valueOf("7"))).isFalse();
+    assertThat(
+            StreamableHttpClient.isResponseTo(
+                "{\"jsonrpc\":\"2.0\",\"id\":7,\"method\":\"sampling/createMessage\"}",
+                IntNode.valueOf(7)))
+        .isFalse();
+  }
+}
@@ -0,0 +1,114 @@
+package com.example.eventsource;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.UnsupportedMediaTypeException;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class SseClientTest {
+
+  private final Queue<ClientResponse> responses = new ConcurrentLinkedQueue<>();
+  private final List<String> lastEventIds = new CopyOnWriteArrayList<>();
+
+  private SseClient client(Duration idleTimeout) {
+    WebClient webClient =
+        WebClient.builder()
+            .exchangeFunction(
+                request -> {
+                  lastEventIds.add(request.headers().getFirst("Last-Event-ID"));
+                  ClientResponse response = responses.poll();
+                  return response == null ? Mono.never() : Mono.just(response);
+                })
+            .build();
+    return new SseClient(webClient, Duration.ofMillis(10), Duration.ofMillis(50), idleTimeout);
+  }
+
+  private void respond(String body) {
+    responses.add(
+        ClientResponse.create(HttpStatus.OK)
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+            .body(body)
+            .build());
+  }
+
+  @Test
+  void reconnectsAfterTheServerClosesAndResumesFromTheLastId() {
+    respond("id: 1\ndata: a\n\nid: 2\ndata: b\n\n");
+    respond(": heartbeat\n\nid: 3\ndata: c\n\n");
+    responses.add(ClientResponse.create(HttpStatus.NO_CONTENT).build());
+
+    List<ServerSentEvent<String>> events =
+        client(Duration.ofSeconds(5))
+            .subscribe("/orders")
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+    assertThat(events).extracting(ServerSentEvent::data).containsExactly("a", "b", "c");
+    assertThat(lastEventIds).containsExactly(null, "2", "3");
+  }
+
+  @Test
+  void idleStreamIsReopenedAfterTheTimeout() {
+    respond("id: 7\ndata: a\n\n");
+    // the second connection never sends anything and is reopened after the idle timeout
+    responses.add(
+        ClientResponse.create(HttpStatus.OK)
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE)
+            .body(Flux.never())
+            .build());
+    respond("id: 8\ndata: b\n\n");
+    responses.add(ClientResponse.create(HttpStatus.NO_CONTENT).build());
+
+    List<ServerSentEvent<String>> events =
+        client(Duration.ofMillis(100))
+            .subscribe("/orders", "6")
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+    assertThat(events).extracting(ServerSentEvent::id).containsExactly("7", "8");
+    assertThat(lastEventIds).containsExactly("6", "7", "7", "8");
+  }
+
+  @Test
+  void serverErrorsAreRetriedAndClientErrorsEndTheSubscription() {
+    responses.add(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+    respond("data: a\n\n");
+    responses.add(ClientResponse.create(HttpStatus.GONE).build());
+
+    assertThatExceptionOfType(WebClientResponseException.Gone.class)
+        .isThrownBy(
+            () ->
+                client(Duration.ofSeconds(5))
+                    .subscribe("/orders")
+                    .blockLast(Duration.ofSeconds(5)));
+    assertThat(lastEventIds).hasSize(3);
+  }
+
+  @Test
+  void retryableErrors() {
+    assertThat(SseClient.isRetryable(new SseClient.StreamEndedException())).isTrue();
+    assertThat(
+            SseClient.isRetryable(
+                WebClientResponseException.create(429, "Too Many Requests", null, null, null)))
+        .isTrue();
+    assertThat(
+            SseClient.isRetryable(
+                WebClientResponseException.create(404, "Not Found", null, null, null)))
+        .isFalse();
+    assertThat(SseClient.isRetryable(new UnsupportedMediaTypeException("text/html"))).isFalse();
+  }
+}
@@ -0,0 +1,344 @@
+package com.example.sse;
+
+import com.example.sse.SseStreamProcessor.ProcessingError;
+import com.example.sse.SseStreamProcessor.ProcessingError.Type;
+import com.example.sse.SseStreamProcessor.ProcessingResult;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Allocation-free, incremental Server-Sent Events parser working directly on UTF-8 bytes.
+ *
+ * <p>The String based {@link SseStreamProcessor#parseStream} allocates a String per line, a copy of
+ * the event text and then more Strings when {@link RawSseEvent#parseFields()} splits it. This
+ * parser instead scans the bytes of each chunk for line terminators, copies the line bytes once
+ * into a reusable event buffer and records the (offset, length) of every field value in a reusable
+ * {@link SseEventView}. In steady state parsing an event allocates nothing.
+ *
+ * <p>Implements WHATWG HTML Living Standard § 9.2.5 (Parsing an event stream) and § 9.2.6
+ * (Interpreting an event stream) with the same behaviour as {@link SseStreamProcessor}:
+ *
+ * <ul>
+ *   <li>Strips a leading UTF-8 BOM (EF BB BF) if present.
+ *   <li>Lines end with LF, CR or CRLF, including a CRLF split across two chunks.
+ *   <li>A blank line dispatches the event if any line was collected since the previous one.
+ *   <li>An unterminated event at end of stream is discarded.
+ *   <li>An event whose size (one LF per line included) exceeds the limit is reported as {@link
+ *       Type#SIZE_LIMIT_EXCEEDED}; the rest of the offending line is skipped.
+ *   <li>Exceptions thrown by the handler are reported as {@link Type#HANDLER_ERROR}.
+ *   <li>retry: only accepts ASCII digits, as § 9.2.6 requires.
+ * </ul>
+ *
+ * <p>Instances are stateful and not thread-safe: use one parser per stream, feed chunks in order,
+ * and call {@link #reset()} before reusing it for another stream.
+ */
+public final class SseByteStreamParser {
+
+  private static final int DEFAULT_READ_BUFFER_SIZE = 8192;
+  private static final int INITIAL_EVENT_BUFFER_SIZE = 1024;
+
+  private static final byte LF = '\n';
+  private static final byte CR = '\r';
+  private static final byte COLON = ':';
+  private static final byte SPACE = ' ';
+
+  private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+  private static final byte[] DATA = {'d', 'a', 't', 'a'};
+  private static final byte[] EVENT = {'e', 'v', 'e', 'n', 't'};
+  private static final byte[] ID = {'i', 'd'};
+  private static final byte[] RETRY = {'r', 'e', 't', 'r', 'y'};
+
+  private final SseEventViewHandler eventHandler;
+  private final Function<ProcessingError, ProcessingResult> errorHandler;
+  private final int maxEventBytes;
+  private final ByteBuffer readBuffer;
+  private final SseEventView view = new SseEventView();
+
+  // Complete lines of the current event, each followed by LF, then the partial current line
+  private byte[] eventBuffer;
+  private int eventLength;
+  private int lineLength;
+
+  private boolean skippingLine;
+  private boolean previousWasCr;
+  private int bomMatched;
+  private boolean stopped;
+
+  /**
+   * @param eventHandler callback for each complete event
+   * @param errorHandler callback for recoverable errors; return STOP to stop parsing
+   * @param maxEventBytes maximum allowed bytes per event to prevent unbounded growth
+   */
+  public SseByteStreamParser(
+      SseEventViewHandler eventHandler,
+      Function<ProcessingError, ProcessingResult> errorHandler,
+      int maxEventBytes) {
+    this(eventHandler, errorHandler, maxEventBytes, DEFAULT_READ_BUFFER_SIZE);
+  }
+
+  /**
+   * @param eventHandler callback for each complete event
+   * @param errorHandler callback for recoverable errors; return STOP to stop parsing
+   * @param maxEventBytes maximum allowed bytes per event to prevent unbounded growth
+   * @param readBufferSize size of the buffer {@link #parse(InputStream)} reads into
+   */
+  public SseByteStreamParser(
+      SseEventViewHandler eventHandler,
+      Function<ProcessingError, ProcessingResult> errorHandler,
+      int maxEventBytes,
+      int readBufferSize) {
+    if (maxEventBytes <= 0) {
+      throw new IllegalArgumentException("maxEventBytes must be positive");
+    }
+    if (readBufferSize <= 0) {
+      throw new IllegalArgumentException("readBufferSize must be positive");
+    }
+    this.eventHandler = Objects.requireNonNull(eventHandler, "eventHandler cannot be null");
+    this.errorHandler = errorHandler;
+    this.maxEventBytes = maxEventBytes;
+    this.readBuffer = ByteBuffer.allocate(readBufferSize);
+    this.eventBuffer = new byte[Math.min(INITIAL_EVENT_BUFFER_SIZE, maxEventBytes)];
+  }
+
+  /**
+   * Reads the stream to its end (or until a handler returns STOP) through a reusable buffer.
+   *
+   * @param in a UTF-8 text/event-stream source, not closed by this method
+   * @return STOP if a handler stopped the stream, CONTINUE if the end of the stream was reached
+   */
+  public ProcessingResult parse(InputStream in) throws IOException {
+    byte[] array = readBuffer.array();
+    int read;
+    while ((read = in.read(array, 0, array.length)) != -1) {
+      readBuffer.clear().limit(read);
+      if (feed(readBuffer) == ProcessingResult.STOP) {
+        return ProcessingResult.STOP;
+      }
+    }
+    // At EOF: per spec §9.2.5, discard any buffered but unterminated event
+    return ProcessingResult.CONTINUE;
+  }
+
+  /**
+   * Feeds the next chunk of the stream. Events completed by the chunk are dispatched before this
+   * method returns; a trailing partial line is kept for the next chunk. The chunk's position is
+   * advanced to the last byte consumed.
+   *
+   * @return STOP once a handler stopped the stream; every later call is ignored
+   */
+  public ProcessingResult feed(ByteBuffer chunk) {
+    if (stopped) {
+      return ProcessingResult.STOP;
+    }
+    int pos = chunk.position();
+    int limit = chunk.limit();
+
+    // Strip a leading UTF-8 BOM (U+FEFF) if present per SSE specification §9.2.5.
+    while (bomMatched >= 0 && pos < limit) {
+      if (chunk.get(pos) == BOM[bomMatched]) {
+        pos++;
+        bomMatched = (bomMatched == BOM.length - 1) ? -1 : bomMatched + 1;
+      } else {
+        // Not a BOM after all: the bytes matched so far are ordinary content
+        int matched = bomMatched;
+        bomMatched = -1;
+        if (matched > 0 && append(ByteBuffer.wrap(BOM), 0, matched) == ProcessingResult.STOP) {
+          return stop(chunk, pos);
+        }
+      }
+    }
+
+    while (pos < limit) {
+      byte b = chunk.get(pos);
+      if (previousWasCr) {
+        previousWasCr = false;
+        if (b == LF) {
+          // second half of a CRLF pair
+          pos++;
+          continue;
+        }
+      }
+      if (b == LF || b == CR) {
+        previousWasCr = (b == CR);
+        pos++;
+        if (endOfLine() == ProcessingResult.STOP) {
+          return stop(chunk, pos);
+        }
+        continue;
+      }
+
+      // Scan to the end of the line (or of the chunk) and copy the span in one go
+      int end = pos + 1;
+      while (end < limit) {
+        byte c = chunk.get(end);
+        if (c == LF || c == CR) {
+          break;
+        }
+        end++;
+      }
+      if (append(chunk, pos, end - pos) == ProcessingResult.STOP) {
+        return stop(chunk, end);
+      }
+      pos = end;
+    }
+    chunk.position(limit);
+    return ProcessingResult.CONTINUE;
+  }
+
+  /** Discards all state so the parser can be used for a new stream. */
+  public void reset() {
+    resetEvent();
+    skippingLine = false;
+    previousWasCr = false;
+    bomMatched = 0;
+    stopped = false;
+  }
+
+  private ProcessingResult stop(ByteBuffer chunk, int position) {
+    stopped = true;
+    chunk.position(position);
+    return ProcessingResult.STOP;
+  }
+
+  /** Adds bytes to the current line, enforcing the event size limit. */
+  private ProcessingResult append(ByteBuffer src, int offset, int length) {
+    if (skippingLine) {
+      return ProcessingResult.CONTINUE;
+    }
+    int required = eventLength + lineLength + length;
+    // Same accounting as SseStreamProcessor: buffered lines plus this line plus its LF
+    if ((long) required + 1 > maxEventBytes) {
+      ProcessingResult result =
+          errorHandler.apply(
+              new ProcessingError(
+                  Type.SIZE_LIMIT_EXCEEDED,
+                  "SSE event exceeds maximum allowed size of " + maxEventBytes,
+                  null));
+      // Skip this oversized event - reset buffer and ignore the rest of the line
+      resetEvent();
+      skippingLine = true;
+      return result == ProcessingResult.STOP ? ProcessingResult.STOP : ProcessingResult.CONTINUE;
+    }
+    ensureCapacity(required + 1);
+    src.get(offset, eventBuffer, eventLength + lineLength, length);
+    lineLength += length;
+    return ProcessingResult.CONTINUE;
+  }
+
+  private ProcessingResult endOfLine() {
+    if (skippingLine) {
+      skippingLine = false;
+      return ProcessingResult.CONTINUE;
+    }
+    if (lineLength == 0) {
+      // Blank line => dispatch complete event (§9.2.5)
+      return eventLength > 0 ? dispatch() : ProcessingResult.CONTINUE;
+    }
+    int lineStart = eventLength;
+    eventBuffer[lineStart + lineLength] = LF;
+    processField(lineStart, lineStart + lineLength);
+    eventLength += lineLength + 1;
+    lineLength = 0;
+    return ProcessingResult.CONTINUE;
+  }
+
+  private ProcessingResult dispatch() {
+    view.setBuffer(eventBuffer, eventLength);
+    ProcessingResult result;
+    try {
+      result = eventHandler.onEvent(view);
+    } catch (Exception e) {
+      result =
+          errorHandler.apply(
+              new ProcessingError(Type.HANDLER_ERROR, "Exception while executing handler", e));
+    }
+    resetEvent();
+    return result == ProcessingResult.STOP ? ProcessingResult.STOP : ProcessingResult.CONTINUE;
+  }
+
+  /** Records one non-blank line [start, end) of the event buffer in the view (§9.2.6). */
+  private void processField(int start, int end) {
+    byte[] line = eventBuffer;
+
+    // § 9.2.6: "If the line starts with a U+003A COLON character (:) - Ignore the line"
+    // Comments are still collected for debugging/logging, with one optional leading space removed
+    if (line[start] == COLON) {
+      int valueStart = start + 1;
+      if (valueStart < end && line[valueStart] == SPACE) valueStart++;
+      view.addCommentLine(valueStart, end - valueStart);
+      return;
+    }
+
+    int colon = indexOf(line, COLON, start, end);
+    int nameEnd = colon < 0 ? end : colon;
+
+    // § 9.2.6: "If value starts with a U+0020 SPACE character, remove it from value"
+    int valueStart = colon < 0 ? end : colon + 1;
+    if (valueStart < end && line[valueStart] == SPACE) valueStart++;
+    int valueLength = end - valueStart;
+
+    if (nameEquals(line, start, nameEnd, DATA)) {
+      view.addDataLine(valueStart, valueLength);
+    } else if (nameEquals(line, start, nameEnd, EVENT)) {
+      view.setEvent(valueStart, valueLength);
+    } else if (nameEquals(line, start, nameEnd, ID)) {
+      // § 9.2.6: "If the field value does not contain U+0000 NULL ..."
+      if (indexOf(line, (byte) 0, valueStart, end) < 0) {
+        view.setId(valueStart, valueLength);
+      }
+    } else if (nameEquals(line, start, nameEnd, RETRY)) {
+      // § 9.2.6: "If the field value consists of only ASCII digits ..." otherwise ignore the field
+      long retry = parseDigits(line, valueStart, end);
+      if (retry >= 0) {
+        view.setRetry(retry);
+      }
+    }
+    // § 9.2.6: "Otherwise - The field is ignored"
+  }
+
+  private void resetEvent() {
+    eventLength = 0;
+    lineLength = 0;
+    view.reset();
+  }
+
+  private void ensureCapacity(int required) {
+    if (required > eventBuffer.length) {
+      int grown = Math.max(required, Math.min(maxEventBytes, eventBuffer.length * 2));
+      eventBuffer = Arrays.copyOf(eventBuffer, grown);
+    }
+  }
+
+  private static int indexOf(byte[] bytes, byte value, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (bytes[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean nameEquals(byte[] bytes, int from, int to, byte[] name) {
+    return Arrays.equals(bytes, from, to, name, 0, name.length);
+  }
+
+  /** Parses an unsigned base-ten value, returning -1 for empty, non-digit or overflowing input. */
+  private static long parseDigits(byte[] bytes, int from, int to) {
+    if (from == to) {
+      return -1;
+    }
+    long value = 0;
+    for (int i = from; i < to; i++) {
+      int digit = bytes[i] - '0';
+      if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+}
@@ -0,0 +1,136 @@
+package com.example.sse;
+
+import com.example.sse.SseStreamProcessor.ProcessingError;
+import com.example.sse.SseStreamProcessor.ProcessingResult;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+
+/**
+ * Decodes a reactive {@code text/event-stream} body, e.g. {@code
+ * WebClient...retrieve().bodyToFlux(DataBuffer.class)}, with {@link SseByteStreamParser}.
+ *
+ * <p>Spring's {@code bodyToFlux(ServerSentEvent.class)} splits the body into a String per line
+ * before parsing it. Here each {@link DataBuffer} is fed to the byte parser as it arrives and
+ * released right away, so the same spec rules as {@link SseStreamProcessor} apply, events split
+ * across buffers are reassembled in the parser's bounded event buffer, and no String is created
+ * unless the mapper asks for one.
+ *
+ * <p>Demand drives the body: the next buffer is requested once the events of the previous one have
+ * been consumed, so a slow subscriber holds back the connection instead of piling up events. Every
+ * subscription gets its own parser, so the returned Flux can be retried or repeated.
+ */
+public final class SseDataBufferDecoder {
+
+  // Prevent instantiation
+  private SseDataBufferDecoder() {}
+
+  /**
+   * Decode the body into {@link ServerSentEvent}s, a drop-in replacement for {@code bodyToFlux(new
+   * ParameterizedTypeReference<ServerSentEvent<String>>() {})}. Fails with an {@link
+   * IllegalStateException} if an event exceeds {@code maxEventBytes}.
+   */
+  public static Flux<ServerSentEvent<String>> decode(Flux<DataBuffer> body, int maxEventBytes) {
+    return decode(body, SseDataBufferDecoder::toServerSentEvent, maxEventBytes);
+  }
+
+  /**
+   * Decode the body, mapping each event while its view is valid. Fails with an {@link
+   * IllegalStateException} on the first processing error, e.g. an event exceeding {@code
+   * maxEventBytes} or a mapper that throws.
+   *
+   * @param mapper copies what it needs out of the view; returns null to skip the event, e.g. a
+   *     heartbeat
+   */
+  public static <T> Flux<T> decode(
+      Flux<DataBuffer> body, Function<SseEventView, T> mapper, int maxEventBytes) {
+    return decode(
+        body,
+        mapper,
+        error -> {
+          throw new IllegalStateException(error.message(), error.cause());
+        },
+        maxEventBytes);
+  }
+
+  /**
+   * Decode the body, mapping each event while its view is valid.
+   *
+   * @param mapper copies what it needs out of the view; returns null to skip the event, e.g. a
+   *     heartbeat
+   * @param errorHandler callback for recoverable errors; return STOP to complete the Flux and
+   *     cancel the body, or throw to fail it
+   * @param maxEventBytes maximum allowed bytes per event to prevent unbounded growth
+   */
+  public static <T> Flux<T> decode(
+      Flux<DataBuffer> body,
+      Function<SseEventView, T> mapper,
+      Function<ProcessingError, ProcessingResult> errorHandler,
+      int maxEventBytes) {
+    return Flux.defer(
+        () -> {
+          ChunkDecoder<T> decoder = new ChunkDecoder<>(mapper, errorHandler, maxEventBytes);
+          return body.map(decoder::decode)
+              // cancels the body once the error handler stopped the parser
+              .takeUntil(events -> decoder.stopped)
+              // prefetch 1: decode one buffer ahead of the subscriber, no more
+              .concatMapIterable(Function.identity(), 1);
+        });
+  }
+
+  /** The spec's view of an event as Spring's {@link ServerSentEvent}. Allocates. */
+  public static ServerSentEvent<String> toServerSentEvent(SseEventView event) {
+    return ServerSentEvent.<String>builder()
+        .id(event.id())
+        .event(event.event())
+        .retry(event.retry())
+        .data(event.dataLineCount() == 0 ? null : event.data())
+        .comment(event.comment())
+        .build();
+  }
+
+  /** Feeds buffers to one parser and collects the events each of them completes. */
+  private static final class ChunkDecoder<T> {
+
+    private final SseByteStreamParser parser;
+    private final Function<SseEventView, T> mapper;
+    private List<T> events = new ArrayList<>();
+    private boolean stopped;
+
+    private ChunkDecoder(
+        Function<SseEventView, T> mapper,
+        Function<ProcessingError, ProcessingResult> errorHandler,
+        int maxEventBytes) {
+      this.mapper = mapper;
+      this.parser = new SseByteStreamParser(this::onEvent, errorHandler, maxEventBytes);
+    }
+
+    private List<T> decode(DataBuffer buffer) {
+      try (DataBuffer.ByteBufferIterator chunks = buffer.readableByteBuffers()) {
+        while (!stopped && chunks.hasNext()) {
+          stopped = parser.feed(chunks.next()) == ProcessingResult.STOP;
+        }
+      } finally {
+        DataBufferUtils.release(buffer);
+      }
+      if (events.isEmpty()) {
+        return List.of();
+      }
+      List<T> decoded = events;
+      events = new ArrayList<>();
+      return decoded;
+    }
+
+    private ProcessingResult onEvent(SseEventView view) {
+      T event = mapper.apply(view);
+      if (event != null) {
+        events.add(event);
+      }
+      return ProcessingResult.CONTINUE;
+    }
+  }
+}
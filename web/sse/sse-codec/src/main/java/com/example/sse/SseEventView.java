@@ -0,0 +1,254 @@
+package com.example.sse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Zero-copy view of one parsed SSE event, produced by {@link SseByteStreamParser}.
+ *
+ * <p>Instead of materializing a String per line, the parser records where each field value lives
+ * inside its reusable event buffer. The view exposes those (offset, length) pairs together with the
+ * backing array so consumers can compare, copy or decode only the bytes they actually need.
+ *
+ * <p>The view is reused for every event of a stream: it is only valid for the duration of the
+ * {@link SseEventViewHandler#onEvent(SseEventView)} callback. Call {@link #toFields()} or the
+ * String accessors to keep a copy.
+ *
+ * <p>Field semantics follow WHATWG HTML § 9.2.6 "Interpreting an event stream", exactly as {@link
+ * RawSseEvent#parseFields()} applies them.
+ */
+public final class SseEventView {
+
+  private static final int[] NO_RANGES = new int[0];
+
+  private byte[] buffer;
+  private int length;
+
+  private int idOffset = -1;
+  private int idLength;
+  private int eventOffset = -1;
+  private int eventLength;
+  private long retry = -1;
+
+  // (offset, length) pairs, one per data: / comment line
+  private int[] dataRanges = NO_RANGES;
+  private int dataLineCount;
+  private int[] commentRanges = NO_RANGES;
+  private int commentLineCount;
+
+  SseEventView() {}
+
+  /**
+   * The buffer holding the raw event text, every line terminated by a single LF. Only the first
+   * {@link #length()} bytes are meaningful, and the array is overwritten by the next event.
+   */
+  public byte[] buffer() {
+    return buffer;
+  }
+
+  /** Number of bytes of raw event text in {@link #buffer()}. */
+  public int length() {
+    return length;
+  }
+
+  public boolean hasId() {
+    return idOffset >= 0;
+  }
+
+  public int idOffset() {
+    return idOffset;
+  }
+
+  public int idLength() {
+    return idLength;
+  }
+
+  public boolean hasEvent() {
+    return eventOffset >= 0;
+  }
+
+  public int eventOffset() {
+    return eventOffset;
+  }
+
+  public int eventLength() {
+    return eventLength;
+  }
+
+  public boolean hasRetry() {
+    return retry >= 0;
+  }
+
+  /** The reconnection time in milliseconds, or -1 when the event had no valid retry field. */
+  public long retryMillis() {
+    return retry;
+  }
+
+  public int dataLineCount() {
+    return dataLineCount;
+  }
+
+  public int dataLineOffset(int line) {
+    return dataRanges[checkLine(line, dataLineCount) * 2];
+  }
+
+  public int dataLineLength(int line) {
+    return dataRanges[checkLine(line, dataLineCount) * 2 + 1];
+  }
+
+  /** Length in bytes of the data buffer once lines are joined with LF (§ 9.2.6). */
+  public int dataLength() {
+    if (dataLineCount == 0) {
+      return 0;
+    }
+    int total = dataLineCount - 1;
+    for (int i = 0; i < dataLineCount; i++) {
+      total += dataRanges[i * 2 + 1];
+    }
+    return total;
+  }
+
+  /** Writes the data buffer (lines joined with LF, no trailing LF) without an intermediate copy. */
+  public void writeData(OutputStream out) throws IOException {
+    for (int i = 0; i < dataLineCount; i++) {
+      if (i > 0) {
+        out.write('\n');
+      }
+      out.write(buffer, dataRanges[i * 2], dataRanges[i * 2 + 1]);
+    }
+  }
+
+  public int commentLineCount() {
+    return commentLineCount;
+  }
+
+  public int commentLineOffset(int line) {
+    return commentRanges[checkLine(line, commentLineCount) * 2];
+  }
+
+  public int commentLineLength(int line) {
+    return commentRanges[checkLine(line, commentLineCount) * 2 + 1];
+  }
+
+  /** Decodes the id field, or null when absent. Allocates. */
+  public String id() {
+    return hasId() ? decode(idOffset, idLength) : null;
+  }
+
+  /** Decodes the event type field, or null when absent. Allocates. */
+  public String event() {
+    return hasEvent() ? decode(eventOffset, eventLength) : null;
+  }
+
+  /** Returns the reconnection time, or null when absent. Allocates. */
+  public Duration retry() {
+    return hasRetry() ? Duration.ofMillis(retry) : null;
+  }
+
+  /** Decodes the data buffer; empty when the event had no data lines. Allocates. */
+  public String data() {
+    return join(dataRanges, dataLineCount, "");
+  }
+
+  /** Decodes the comment lines joined with LF, or null when there were none. Allocates. */
+  public String comment() {
+    return join(commentRanges, commentLineCount, null);
+  }
+
+  /** Copies the view into the same immutable holder {@link RawSseEvent#parseFields()} returns. */
+  public RawSseEvent.Fields toFields() {
+    return new RawSseEvent.Fields(id(), event(), retry(), data(), comment());
+  }
+
+  /** Copies the raw event text into a {@link RawSseEvent}. Allocates. */
+  public RawSseEvent toRawEvent() {
+    return new RawSseEvent(decode(0, length));
+  }
+
+  @Override
+  public String toString() {
+    return "SseEventView" + toFields();
+  }
+
+  // ---------------------------------------------------------------------------------------------
+  // Mutators used by SseByteStreamParser
+  // ---------------------------------------------------------------------------------------------
+
+  void reset() {
+    this.idOffset = -1;
+    this.idLength = 0;
+    this.eventOffset = -1;
+    this.eventLength = 0;
+    this.retry = -1;
+    this.dataLineCount = 0;
+    this.commentLineCount = 0;
+  }
+
+  void setBuffer(byte[] buffer, int length) {
+    this.buffer = buffer;
+    this.length = length;
+  }
+
+  void setId(int offset, int length) {
+    this.idOffset = offset;
+    this.idLength = length;
+  }
+
+  void setEvent(int offset, int length) {
+    this.eventOffset = offset;
+    this.eventLength = length;
+  }
+
+  void setRetry(long retry) {
+    this.retry = retry;
+  }
+
+  void addDataLine(int offset, int length) {
+    dataRanges = ensureCapacity(dataRanges, dataLineCount);
+    dataRanges[dataLineCount * 2] = offset;
+    dataRanges[dataLineCount * 2 + 1] = length;
+    dataLineCount++;
+  }
+
+  void addCommentLine(int offset, int length) {
+    commentRanges = ensureCapacity(commentRanges, commentLineCount);
+    commentRanges[commentLineCount * 2] = offset;
+    commentRanges[commentLineCount * 2 + 1] = length;
+    commentLineCount++;
+  }
+
+  private static int[] ensureCapacity(int[] ranges, int lines) {
+    if ((lines + 1) * 2 <= ranges.length) {
+      return ranges;
+    }
+    return Arrays.copyOf(ranges, Math.max(8, ranges.length * 2));
+  }
+
+  private static int checkLine(int line, int count) {
+    if (line < 0 || line >= count) {
+      throw new IndexOutOfBoundsException("line " + line + " out of bounds for " + count);
+    }
+    return line;
+  }
+
+  private String decode(int offset, int length) {
+    return new String(buffer, offset, length, StandardCharsets.UTF_8);
+  }
+
+  private String join(int[] ranges, int count, String whenEmpty) {
+    if (count == 0) {
+      return whenEmpty;
+    }
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        sb.append('\n');
+      }
+      sb.append(decode(ranges[i * 2], ranges[i * 2 + 1]));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,20 @@
+package com.example.sse;
+
+import com.example.sse.SseStreamProcessor.ProcessingResult;
+
+/**
+ * Callback receiving events from {@link SseByteStreamParser} as reusable {@link SseEventView}s.
+ *
+ * <p>The view is only valid until this method returns; copy anything that must outlive the call.
+ */
+@FunctionalInterface
+public interface SseEventViewHandler {
+
+  /**
+   * Handle one complete event.
+   *
+   * @param event zero-copy view of the event fields
+   * @return {@link ProcessingResult#STOP} to stop parsing the stream
+   */
+  ProcessingResult onEvent(SseEventView event);
+}
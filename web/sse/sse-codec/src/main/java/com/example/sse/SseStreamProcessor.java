@@ -3,6 +3,7 @@ package com.example.sse;
 import com.example.sse.SseStreamProcessor.ProcessingError.Type;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.function.Function;
@@ -60,6 +61,30 @@ public final class SseStreamProcessor {
     }
   }
 
+  /**
+   * Parse SSE stream from a RestClient response directly from its UTF-8 bytes.
+   *
+   * <p>Same spec rules and error contract as {@link #parseStream(ClientHttpResponse, Function,
+   * Function, int)}, but events are delivered as reusable zero-copy {@link SseEventView}s instead
+   * of {@link RawSseEvent}s, so no String is created per line or per event. See {@link
+   * SseByteStreamParser}.
+   *
+   * @param response the ClientHttpResponse containing the SSE stream
+   * @param eventHandler callback for each complete event; return STOP to stop early
+   * @param maxEventBytes maximum allowed bytes per event to prevent unbounded growth
+   */
+  public static void parseStreamBytes(
+      ClientHttpResponse response,
+      SseEventViewHandler eventHandler,
+      Function<ProcessingError, ProcessingResult> errorHandler,
+      int maxEventBytes) {
+    try (InputStream body = response.getBody()) {
+      new SseByteStreamParser(eventHandler, errorHandler, maxEventBytes).parse(body);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to process SSE stream", e);
+    }
+  }
+
   /**
    * Core SSE parsing implementation.
    *
@@ -0,0 +1,201 @@
+package com.example.demo.sse;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.example.sse.RawSseEvent;
+import com.example.sse.SseByteStreamParser;
+import com.example.sse.SseStreamProcessor.ProcessingError;
+import com.example.sse.SseStreamProcessor.ProcessingResult;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SseByteStreamParserTest {
+
+  private final List<RawSseEvent.Fields> events = new ArrayList<>();
+  private final List<ProcessingError> errors = new ArrayList<>();
+
+  private SseByteStreamParser parser(int maxEventBytes) {
+    return new SseByteStreamParser(
+        view -> {
+          events.add(view.toFields());
+          return ProcessingResult.CONTINUE;
+        },
+        error -> {
+          errors.add(error);
+          return ProcessingResult.CONTINUE;
+        },
+        maxEventBytes);
+  }
+
+  private void parse(String stream) throws IOException {
+    parser(1_000_000).parse(new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  void lfCrAndCrlfFramingAreEquivalent() throws IOException {
+    parse("id: 1\ndata: lf\n\n");
+    parse("id: 2\rdata: cr\r\r");
+    parse("id: 3\r\ndata: crlf\r\n\r\n");
+
+    assertThat(events)
+        .extracting(RawSseEvent.Fields::id, RawSseEvent.Fields::data)
+        .containsExactly(tuple("1", "lf"), tuple("2", "cr"), tuple("3", "crlf"));
+  }
+
+  @Test
+  void eventsSplitAcrossChunksOneByteAtATime() {
+    byte[] bytes =
+        "data: café\r\ndata: second\r\n\r\nevent: e\r\ndata: x\r\n\r\n"
+            .getBytes(StandardCharsets.UTF_8);
+    SseByteStreamParser parser = parser(1_000_000);
+
+    for (byte b : bytes) {
+      parser.feed(ByteBuffer.wrap(new byte[] {b}));
+    }
+
+    assertThat(events)
+        .extracting(RawSseEvent.Fields::event, RawSseEvent.Fields::data)
+        .containsExactly(tuple(null, "café\nsecond"), tuple("e", "x"));
+  }
+
+  @Test
+  void fieldsMatchRawSseEventParseFields() throws IOException {
+    String event =
+        """
+        :This event demonstrates all the fields allowed by SSE events
+        :   indented comment
+        retry:5000
+        id:event-1
+        event:custom-event-type
+        data:Line 1 of data
+        data:   Line 2 of data indentation is preserved
+        data:
+        data
+        foo:bar
+        data:{"firstName":"John","lastName":"Doe"}
+        """;
+
+    parse(event + "\n");
+
+    assertThat(events).containsExactly(new RawSseEvent(event).parseFields());
+  }
+
+  @Test
+  void leadingBomIsStripped() {
+    SseByteStreamParser parser = parser(1_000_000);
+    byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    parser.feed(ByteBuffer.wrap(bom, 0, 2));
+    parser.feed(ByteBuffer.wrap(bom, 2, 1));
+    parser.feed(ByteBuffer.wrap("data: after bom\n\n".getBytes(StandardCharsets.UTF_8)));
+
+    assertThat(events).extracting(RawSseEvent.Fields::data).containsExactly("after bom");
+  }
+
+  @Test
+  void incompleteEventAtEndOfStreamIsDiscarded() throws IOException {
+    parse("data: complete\n\ndata: incomplete\n");
+
+    assertThat(events).extracting(RawSseEvent.Fields::data).containsExactly("complete");
+  }
+
+  @Test
+  void retryAndIdFollowSpecRules() throws IOException {
+    parse("retry: 1500\nid: a\u0000b\ndata: x\n\nretry: -5\nretry: 99999999999999999999\n\n");
+
+    assertThat(events.get(0).retry()).isEqualTo(Duration.ofMillis(1500));
+    assertThat(events.get(0).id()).isNull();
+    assertThat(events.get(1).retry()).isNull();
+  }
+
+  @Test
+  void oversizedEventIsReportedAndSkipped() throws IOException {
+    SseByteStreamParser parser = parser(16);
+
+    parser.parse(
+        new ByteArrayInputStream(
+            "data: this line is far too long\n\ndata: ok\n\n".getBytes(StandardCharsets.UTF_8)));
+
+    assertThat(errors)
+        .extracting(ProcessingError::type)
+        .containsExactly(ProcessingError.Type.SIZE_LIMIT_EXCEEDED);
+    assertThat(events).extracting(RawSseEvent.Fields::data).containsExactly("ok");
+  }
+
+  @Test
+  void handlerExceptionIsReportedAndParsingContinues() throws IOException {
+    SseByteStreamParser parser =
+        new SseByteStreamParser(
+            view -> {
+              if (view.data().equals("boom")) {
+                throw new IllegalStateException("boom");
+              }
+              events.add(view.toFields());
+              return ProcessingResult.CONTINUE;
+            },
+            error -> {
+              errors.add(error);
+              return ProcessingResult.CONTINUE;
+            },
+            1024);
+
+    parser.parse(
+        new ByteArrayInputStream("data: boom\n\ndata: next\n\n".getBytes(StandardCharsets.UTF_8)));
+
+    assertThat(errors)
+        .extracting(ProcessingError::type)
+        .containsExactly(ProcessingError.Type.HANDLER_ERROR);
+    assertThat(events).extracting(RawSseEvent.Fields::data).containsExactly("next");
+  }
+
+  @Test
+  void stopEndsParsing() throws IOException {
+    SseByteStreamParser parser =
+        new SseByteStreamParser(
+            view -> {
+              events.add(view.toFields());
+              return ProcessingResult.STOP;
+            },
+            error -> ProcessingResult.STOP,
+            1024);
+
+    ProcessingResult result =
+        parser.parse(
+            new ByteArrayInputStream("data: 1\n\ndata: 2\n\n".getBytes(StandardCharsets.UTF_8)));
+
+    assertThat(result).isEqualTo(ProcessingResult.STOP);
+    assertThat(events).hasSize(1);
+  }
+
+  @Test
+  void viewExposesDataBytesWithoutDecoding() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SseByteStreamParser parser =
+        new SseByteStreamParser(
+            view -> {
+              assertThat(view.dataLineCount()).isEqualTo(2);
+              assertThat(view.dataLength()).isEqualTo("one\ntwo".length());
+              try {
+                view.writeData(out);
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+              return ProcessingResult.CONTINUE;
+            },
+            error -> ProcessingResult.STOP,
+            1024);
+
+    parser.parse(
+        new ByteArrayInputStream("data: one\ndata: two\n\n".getBytes(StandardCharsets.UTF_8)));
+
+    assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("one\ntwo");
+  }
+}
@@ -0,0 +1,135 @@
+package com.example.demo.sse;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.example.sse.SseDataBufferDecoder;
+import com.example.sse.SseEventView;
+import com.example.sse.SseStreamProcessor.ProcessingResult;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+class SseDataBufferDecoderTest {
+
+  private final NettyDataBufferFactory buffers =
+      new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+  private final List<NettyDataBuffer> sent = new ArrayList<>();
+
+  private Flux<DataBuffer> body(String... chunks) {
+    return Flux.fromArray(chunks)
+        .map(
+            chunk -> {
+              NettyDataBuffer buffer =
+                  buffers.wrap(Unpooled.wrappedBuffer(chunk.getBytes(StandardCharsets.UTF_8)));
+              sent.add(buffer);
+              return buffer;
+            });
+  }
+
+  @Test
+  void eventsSplitAcrossBuffersAreReassembled() {
+    List<ServerSentEvent<String>> events =
+        SseDataBufferDecoder.decode(
+                body("id: 1\r", "\nevent: tick\nda", "ta: caf", "é\ndata: x\n", "\n: ping\n\n"),
+                1024)
+            .collectList()
+            .block();
+
+    assertThat(events).hasSize(2);
+    assertThat(events.get(0).id()).isEqualTo("1");
+    assertThat(events.get(0).event()).isEqualTo("tick");
+    assertThat(events.get(0).data()).isEqualTo("café\nx");
+    assertThat(events.get(1).data()).isNull();
+    assertThat(events.get(1).comment()).isEqualTo("ping");
+    assertThat(sent).allSatisfy(buffer -> assertThat(buffer.getNativeBuffer().refCnt()).isZero());
+  }
+
+  @Test
+  void nullFromTheMapperSkipsTheEvent() {
+    List<String> data =
+        SseDataBufferDecoder.decode(
+                body(": heartbeat\n\ndata: a\n\n: heartbeat\n\ndata: b\n\n"),
+                view -> view.dataLineCount() == 0 ? null : view.data(),
+                1024)
+            .collectList()
+            .block();
+
+    assertThat(data).containsExactly("a", "b");
+  }
+
+  @Test
+  void buffersAreOnlyRequestedAsEventsAreConsumed() {
+    AtomicLong requested = new AtomicLong();
+    Flux<DataBuffer> body =
+        Flux.range(1, 100)
+            .map(i -> buffers.wrap(("data: " + i + "\n\n").getBytes(StandardCharsets.UTF_8)))
+            .cast(DataBuffer.class)
+            .doOnRequest(requested::addAndGet);
+    List<String> received = new ArrayList<>();
+
+    SseDataBufferDecoder.decode(body, SseEventView::data, 1024)
+        .subscribe(
+            new BaseSubscriber<>() {
+              @Override
+              protected void hookOnSubscribe(Subscription subscription) {
+                request(2);
+              }
+
+              @Override
+              protected void hookOnNext(String data) {
+                received.add(data);
+              }
+            });
+
+    assertThat(received).containsExactly("1", "2");
+    // the two buffers consumed plus one decoded ahead
+    assertThat(requested).hasValueLessThanOrEqualTo(3);
+  }
+
+  @Test
+  void oversizedEventFailsTheFlux() {
+    Flux<ServerSentEvent<String>> events =
+        SseDataBufferDecoder.decode(body("data: ok\n\n", "data: far too long\n\n"), 12);
+
+    assertThatIllegalStateException()
+        .isThrownBy(events::blockLast)
+        .withMessageContaining("maximum allowed size of 12");
+  }
+
+  @Test
+  void stopFromTheErrorHandlerCompletesAndCancelsTheBody() {
+    AtomicLong cancelled = new AtomicLong();
+    List<String> data =
+        SseDataBufferDecoder.decode(
+                body("data: ok\n\n", "data: far too long\n\n", "data: never\n\n")
+                    .doOnCancel(cancelled::incrementAndGet),
+                SseEventView::data,
+                error -> ProcessingResult.STOP,
+                12)
+            .collectList()
+            .block();
+
+    assertThat(data).containsExactly("ok");
+    assertThat(cancelled).hasValue(1);
+  }
+
+  @Test
+  void everySubscriptionStartsWithAFreshParser() {
+    Flux<String> events =
+        SseDataBufferDecoder.decode(
+            Flux.defer(() -> body("data: a\n\ndata: unterminated")), SseEventView::data, 1024);
+
+    assertThat(events.repeat(1).collectList().block()).containsExactly("a", "a");
+  }
+}
@@ -1,11 +1,11 @@
 package com.example.number.mvc;
 
+import com.example.sse.SseWriter;
 import jakarta.servlet.AsyncContext;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,8 +29,9 @@ public abstract class DirectAsyncContextAbstractSseStream {
      * The flow is as follows:
      * 1. A virtual thread is launched to handle the SSE stream independently.
      * 2. Response headers are prepared to indicate an SSE stream (`text/event-stream`).
-     * 3. The response OutputStream is opened and passed to the abstract `publishEvents()` method,
-     *    which performs blocking writes of SSE-formatted events.
+     * 3. The response OutputStream is opened and wrapped in an SseWriter, see `createWriter()`,
+     *    which is passed to the abstract `publishEvents()` method to perform blocking writes of
+     *    SSE events.
      * 4. If the client disconnects (e.g., pressing stop in IntelliJ, closing browser tab),
      *    Tomcat will throw a `ClientAbortException`, which we catch explicitly to indicate a normal termination.
      * 5. Other exceptions (IO or runtime) are also caught and logged.
@@ -45,8 +46,9 @@ public abstract class DirectAsyncContextAbstractSseStream {
 
           try {
             prepareResponse(response);
-            try (OutputStream outputStream = response.getOutputStream()) {
-              publishEvents(outputStream);
+            try (OutputStream outputStream = response.getOutputStream();
+                SseWriter writer = createWriter(outputStream)) {
+              publishEvents(writer);
             }
           } catch (org.apache.catalina.connector.ClientAbortException e) {
             // Expected when client disconnects (e.g., closes browser or stops request)
@@ -73,16 +75,20 @@ public abstract class DirectAsyncContextAbstractSseStream {
     response.setHeader("Connection", "keep-alive");
   }
 
-  /** Subclasses implement this to emit one or more SSE events. */
-  protected abstract void publishEvents(OutputStream outputStream) throws IOException;
-
-  /** Sends a raw SSE event block. Caller is responsible for all lines and line endings. */
-  protected void sendEvent(OutputStream outputStream, String sseFormattedBlock) throws IOException {
-    checkInterruption();
-    outputStream.write(sseFormattedBlock.getBytes(StandardCharsets.UTF_8));
-    outputStream.flush(); // IOException will occur here if client disconnected
+  /**
+   * Override this to configure the writer, e.g. to coalesce flushes or send heartbeats. By default
+   * every event is flushed as it is written.
+   */
+  protected SseWriter createWriter(OutputStream outputStream) {
+    return SseWriter.builder(outputStream).build();
   }
 
+  /**
+   * Subclasses implement this to emit one or more SSE events. The writer throws an IOException, a
+   * ClientAbortException on Tomcat, once the client has disconnected.
+   */
+  protected abstract void publishEvents(SseWriter writer) throws IOException;
+
   protected void pause(Duration duration) {
     checkInterruption();
     try {
@@ -1,8 +1,8 @@
 package com.example.number.mvc;
 
+import com.example.sse.SseWriter;
 import jakarta.servlet.AsyncContext;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,21 +16,12 @@ public class NumbersStreamDirectAsyncContext extends DirectAsyncContextAbstractS
   }
 
   @Override
-  protected void publishEvents(OutputStream outputStream) throws IOException {
+  protected void publishEvents(SseWriter writer) throws IOException {
     log.info("Publishing events");
     int counter = 0;
-    while (true) {
-      String event =
-          """
-                    id: %d
-                    event: number
-                    data: %d
-
-                    """
-              .formatted(counter, counter);
-
-      log.info("publishing event: \n{}", event);
-      sendEvent(outputStream, event);
+    while (writer.isOpen()) {
+      log.info("publishing event: id={}, data={}", counter, counter);
+      writer.event(String.valueOf(counter), "number", String.valueOf(counter));
       pause(Duration.ofSeconds(1));
       counter++;
     }
@@ -58,8 +58,12 @@ public abstract class ResponseEmitterBasedSseStream {
 
   // Helper method to send SSE events
   protected void sendSseEvent(String eventId, String eventType, String data) throws IOException {
-    String sseEvent = String.format("id: %s\nevent: %s\ndata: %s\n\n", eventId, eventType, data);
-    emitter.send(sseEvent, MediaType.TEXT_PLAIN);
+    emitter.send(formatSseEvent(eventId, eventType, data), MediaType.TEXT_PLAIN);
+  }
+
+  // Formats a single-line SSE event block
+  protected static String formatSseEvent(String eventId, String eventType, String data) {
+    return String.format("id: %s\nevent: %s\ndata: %s\n\n", eventId, eventType, data);
   }
 
   // Lifecycle hooks for subclasses
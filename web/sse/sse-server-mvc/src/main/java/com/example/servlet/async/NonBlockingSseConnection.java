@@ -0,0 +1,270 @@
+package com.example.servlet.async;
+
+import com.example.sse.OverflowPolicy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non-blocking SSE transport for a raw servlet async request, built on Servlet 3.1 {@link
+ * WriteListener}.
+ *
+ * <p>{@link #send(byte[])} never blocks: frames are written while {@code isReady()} says the socket
+ * can take them and are queued otherwise, and the container calls {@link #onWritePossible()} once
+ * the client catches up. A slow client therefore never pins a thread, virtual or platform, and the
+ * frames queued for it are bounded by {@code highWaterMark} bytes. On top of that the container
+ * holds at most its response buffer plus the frame it could not write in full.
+ *
+ * <p>When a frame would take the queue past the high-water mark, the {@link OverflowPolicy}
+ * decides: drop the oldest frames, keep only the newest one, or disconnect the client so it
+ * reconnects with its Last-Event-ID.
+ *
+ * <p>The connection ends on {@link #complete()} once its queue is written, on a write failure, or
+ * when the async request completes, times out or fails; {@link #onClose(Runnable)} callbacks run
+ * once in every case and are the place to stop whatever produces the stream's events.
+ *
+ * <p>All methods are safe to call from any thread. They synchronize on the connection, because the
+ * servlet spec forbids writing concurrently with the write listener.
+ */
+public final class NonBlockingSseConnection implements WriteListener {
+
+  private static final Logger logger = LoggerFactory.getLogger(NonBlockingSseConnection.class);
+
+  private final AsyncContext asyncContext;
+  private final ServletOutputStream out;
+  private final int highWaterMark;
+  private final OverflowPolicy overflowPolicy;
+  private final ArrayDeque<byte[]> pending = new ArrayDeque<>();
+  private final List<Runnable> closeCallbacks = new ArrayList<>();
+  private byte[] timeoutFrame;
+  private int pendingBytes;
+  private boolean unflushed;
+  private boolean completing;
+  private boolean closed;
+
+  private NonBlockingSseConnection(
+      AsyncContext asyncContext,
+      ServletOutputStream out,
+      int highWaterMark,
+      OverflowPolicy overflowPolicy) {
+    this.asyncContext = asyncContext;
+    this.out = out;
+    this.highWaterMark = highWaterMark;
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  /**
+   * Switch an async request's response to non-blocking writes.
+   *
+   * @param asyncContext the started async request; its response headers must already be set
+   * @param highWaterMark most bytes queued for the client before {@code overflowPolicy} applies
+   * @param overflowPolicy what to do with a client that falls behind by more than that
+   */
+  public static NonBlockingSseConnection open(
+      AsyncContext asyncContext, int highWaterMark, OverflowPolicy overflowPolicy)
+      throws IOException {
+    if (highWaterMark < 1) {
+      throw new IllegalArgumentException("highWaterMark must be positive");
+    }
+    NonBlockingSseConnection connection =
+        new NonBlockingSseConnection(
+            asyncContext,
+            asyncContext.getResponse().getOutputStream(),
+            highWaterMark,
+            overflowPolicy);
+    asyncContext.addListener(connection.new Lifecycle());
+    connection.out.setWriteListener(connection);
+    return connection;
+  }
+
+  /**
+   * Queue a frame, e.g. from {@link com.example.sse.SseFrameEncoder}, and write as much as the
+   * socket takes without blocking.
+   *
+   * @return false if the connection no longer accepts frames
+   */
+  public synchronized boolean send(byte[] frame) {
+    if (closed || completing) {
+      return false;
+    }
+    if (pendingBytes + frame.length > highWaterMark && !pending.isEmpty()) {
+      switch (overflowPolicy) {
+        case DROP_OLDEST -> {
+          while (!pending.isEmpty() && pendingBytes + frame.length > highWaterMark) {
+            pendingBytes -= pending.removeFirst().length;
+          }
+        }
+        case COALESCE_LATEST -> {
+          pending.clear();
+          pendingBytes = 0;
+        }
+        case DISCONNECT -> {
+          logger.info("Disconnecting client that fell {} bytes behind", pendingBytes);
+          end();
+          return false;
+        }
+      }
+    }
+    pending.addLast(frame);
+    pendingBytes += frame.length;
+    write();
+    return !closed;
+  }
+
+  /**
+   * Tell the client why the stream ends when the async request times out. The frame skips the queue
+   * and is only written if that cannot block; the stream is ending anyway.
+   */
+  public synchronized void onTimeout(byte[] frame) {
+    this.timeoutFrame = frame;
+  }
+
+  private synchronized void sendIfReady(byte[] frame) {
+    try {
+      if (!closed && pending.isEmpty() && out.isReady()) {
+        out.write(frame);
+        if (out.isReady()) {
+          out.flush();
+        }
+      }
+    } catch (IOException e) {
+      logger.debug("Could not write to ending stream: {}", e.toString());
+    }
+  }
+
+  /** Complete the async request once every queued frame is written. Accepts no further frames. */
+  public synchronized void complete() {
+    if (!closed && !completing) {
+      completing = true;
+      write();
+    }
+  }
+
+  /** Run {@code callback} when the connection ends, or now if it already has. */
+  public void onClose(Runnable callback) {
+    synchronized (this) {
+      if (!closed) {
+        closeCallbacks.add(callback);
+        return;
+      }
+    }
+    callback.run();
+  }
+
+  /** True until the connection completes, fails or is disconnected. */
+  public synchronized boolean isOpen() {
+    return !closed;
+  }
+
+  /** Bytes queued and not yet handed to the container. */
+  public synchronized int pendingBytes() {
+    return pendingBytes;
+  }
+
+  @Override
+  public synchronized void onWritePossible() {
+    write();
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    logger.info("Stream write failed: {}", t.toString());
+    end();
+  }
+
+  private void write() {
+    try {
+      // isReady() returning false registers interest: onWritePossible() follows when writable
+      while (!closed && out.isReady()) {
+        byte[] next = pending.poll();
+        if (next != null) {
+          pendingBytes -= next.length;
+          out.write(next);
+          unflushed = true;
+        } else if (unflushed) {
+          unflushed = false;
+          out.flush();
+        } else {
+          if (completing) {
+            end();
+          }
+          return;
+        }
+      }
+    } catch (IOException e) {
+      onError(e);
+    }
+  }
+
+  /** Drop what is queued, run the close callbacks and complete the async request. */
+  private void end() {
+    if (!close()) {
+      return;
+    }
+    try {
+      asyncContext.complete();
+    } catch (IllegalStateException e) {
+      // the container already completed the request
+      logger.debug("Async request already completed: {}", e.toString());
+    }
+  }
+
+  private boolean close() {
+    List<Runnable> callbacks;
+    synchronized (this) {
+      if (closed) {
+        return false;
+      }
+      closed = true;
+      pending.clear();
+      pendingBytes = 0;
+      callbacks = List.copyOf(closeCallbacks);
+      closeCallbacks.clear();
+    }
+    for (Runnable callback : callbacks) {
+      try {
+        callback.run();
+      } catch (RuntimeException e) {
+        logger.warn("Error in close callback: {}", e.toString());
+      }
+    }
+    return true;
+  }
+
+  /** Ends the connection however the container ends the async request. */
+  private final class Lifecycle implements AsyncListener {
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      close();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      byte[] frame;
+      synchronized (NonBlockingSseConnection.this) {
+        frame = timeoutFrame;
+      }
+      if (frame != null) {
+        sendIfReady(frame);
+      }
+      end();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      end();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {}
+  }
+}
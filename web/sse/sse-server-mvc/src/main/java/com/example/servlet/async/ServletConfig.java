@@ -1,25 +1,26 @@
 package com.example.servlet.async;
 
-import jakarta.servlet.Servlet;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
 
 @Configuration
 public class ServletConfig {
 
   @Bean
-  public ServletRegistrationBean<SseServlet> sseServlet() {
+  public ServletRegistrationBean<SseServlet> sseServlet(TaskScheduler sseScheduler) {
     ServletRegistrationBean<SseServlet> bean =
-        new ServletRegistrationBean<>(new SseServlet(), "/servlet/async");
+        new ServletRegistrationBean<>(new SseServlet(sseScheduler), "/servlet/async");
     bean.setAsyncSupported(true);
     return bean;
   }
 
-//  @Bean
-//  public ServletRegistrationBean<Servlet> numberStreamServlet() {
-//    ServletRegistrationBean<Servlet> bean = new ServletRegistrationBean<>(new NumberStreamServlet(), "/servlet/numbers");
-//    bean.setAsyncSupported(true);
-//    return bean;
-//  }
+  //  @Bean
+  //  public ServletRegistrationBean<Servlet> numberStreamServlet() {
+  //    ServletRegistrationBean<Servlet> bean = new ServletRegistrationBean<>(new
+  // NumberStreamServlet(), "/servlet/numbers");
+  //    bean.setAsyncSupported(true);
+  //    return bean;
+  //  }
 }
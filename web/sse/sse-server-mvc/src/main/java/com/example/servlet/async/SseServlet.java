@@ -1,5 +1,6 @@
 package com.example.servlet.async;
 
+import com.example.sse.OverflowPolicy;
 import jakarta.servlet.AsyncContext;
 import jakarta.servlet.AsyncEvent;
 import jakarta.servlet.AsyncListener;
@@ -8,13 +9,14 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.TaskScheduler;
 
 /**
  * Asynchronous Servlet Processing Demo
@@ -34,6 +36,12 @@ import org.slf4j.LoggerFactory;
  * threads 5. asyncContext.complete() signals completion → Response is finalized and sent to client
  * 6. Connection is closed and resources are cleaned up
  *
+ * <p>Scaling to many streams: all requests share one bounded {@link TaskScheduler} that only
+ * produces events, and events are written with non-blocking I/O through a {@link
+ * NonBlockingSseConnection}. No thread ever waits on a slow client, so the number of open streams
+ * is bounded by memory, not threads. The stream's task is cancelled however the request ends,
+ * including timeouts and client disconnects.
+ *
  * <p>Benefits of async processing: - Scalability: Servlet threads aren't blocked during
  * long-running operations - Better resource utilization: Thread pool efficiency is maximized -
  * Improved throughput: Container can handle more concurrent requests - Non-blocking I/O: Background
@@ -44,6 +52,22 @@ import org.slf4j.LoggerFactory;
 public class SseServlet extends HttpServlet {
   private final Logger logger = LoggerFactory.getLogger(SseServlet.class);
 
+  private static final byte[] TIMEOUT_EVENT =
+      "event: error\ndata: Timeout occurred\n\n".getBytes(StandardCharsets.UTF_8);
+  // about a hundred of this servlet's events; a client further behind is disconnected
+  private static final int HIGH_WATER_MARK = 16 * 1024;
+
+  // Shared by every request; a pool per request would cost its threads per connected client
+  private final TaskScheduler scheduler;
+
+  /**
+   * @param scheduler produces the events of every stream; its tasks only queue frames, so a small
+   *     fixed pool serves any number of streams
+   */
+  public SseServlet(TaskScheduler scheduler) {
+    this.scheduler = scheduler;
+  }
+
   @Override
   protected void doGet(HttpServletRequest req, HttpServletResponse resp)
       throws ServletException, IOException {
@@ -86,31 +110,20 @@ public class SseServlet extends HttpServlet {
 
           @Override
           public void onComplete(AsyncEvent event) throws IOException {
-            // Called when async processing completes successfully
-            // This is where you'd typically clean up resources
+            // Called when async processing completes, normally or after a timeout or error
             logger.info("Async processing complete.");
           }
 
           @Override
           public void onTimeout(AsyncEvent event) throws IOException {
             // Called when async processing exceeds the timeout period
-            // Important: We must handle this gracefully and close the connection
+            // The connection sends its timeout frame and completes the async context
             logger.info("Async processing timed out.");
-
-            // Send error message to client before closing
-            HttpServletResponse response =
-                (HttpServletResponse) event.getAsyncContext().getResponse();
-            response.getWriter().write("event: error\ndata: Timeout occurred\n\n");
-            response.getWriter().flush();
-
-            // Complete the async context to close the connection
-            event.getAsyncContext().complete();
           }
 
           @Override
           public void onError(AsyncEvent event) throws IOException {
-            // Called when an error occurs during async processing
-            // Log the error for debugging purposes
+            // Called when an error occurs during async processing, e.g. the client went away
             logger.info("Async processing error: " + event.getThrowable());
           }
 
@@ -121,59 +134,54 @@ public class SseServlet extends HttpServlet {
           }
         });
 
-    // ========== BACKGROUND TASK SCHEDULER ==========
-    // Create a thread pool for background processing - this is the key to async servlets
-    ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(20);
+    // ========== NON-BLOCKING OUTPUT ==========
+    // Switch the response to non-blocking writes: frames are written when the socket can take
+    // them, and at most HIGH_WATER_MARK bytes wait for a slow client
+    NonBlockingSseConnection connection =
+        NonBlockingSseConnection.open(asyncContext, HIGH_WATER_MARK, OverflowPolicy.DISCONNECT);
+    // Important: on timeout tell the client why the stream ends before closing the connection
+    connection.onTimeout(TIMEOUT_EVENT);
 
     // Thread-safe counter for tracking iteration numbers
     AtomicInteger current = new AtomicInteger(1);
 
     // ========== BACKGROUND TASK FOR ASYNC PROCESSING ==========
-    // Schedule a recurring task to simulate long-running background work
-    // This demonstrates how async servlets can delegate work to background threads
-    scheduler.scheduleAtFixedRate(
-        () -> {
-          try {
-            PrintWriter writer = resp.getWriter();
-            int i = current.getAndIncrement();
-
-            // ========== RESPONSE DATA GENERATION ==========
-            // Generate response data in event-stream format for demo purposes
-            // The key point is that this work happens on a background thread
-            writer.write("id: " + i + "\n");
-            writer.write("event: message\n");
-            writer.write("data: Generated on thread " + Thread.currentThread().getName() + "\n");
-            writer.write("data: Event number " + i + "\n\n");
-
-            // Flush immediately to send data to client
-            writer.flush();
-
-            // ========== COMPLETION LOGIC ==========
-            // Check if we've completed all iterations
-            if (i >= count) {
-              // Signal that async processing is complete
-              asyncContext.complete();
-
-              // Shut down scheduler to free resources
-              scheduler.shutdown();
-            }
-          } catch (Exception e) {
-            e.printStackTrace();
-
-            // Clean up resources on error - critical in async processing
-            asyncContext.complete();
-            scheduler.shutdown();
-          }
-        },
-        1, // Initial delay: wait 1 second before first iteration
-        1, // Period: process every 1 second
-        TimeUnit.SECONDS // Time unit for delays
-        );
+    // Schedule a recurring task on the shared scheduler to simulate long-running background work.
+    // The task only generates and queues an event; writing it never blocks the scheduler thread.
+    ScheduledFuture<?> task =
+        scheduler.scheduleAtFixedRate(
+            () -> {
+              int i = current.getAndIncrement();
+
+              // ========== RESPONSE DATA GENERATION ==========
+              // Generate response data in event-stream format for demo purposes
+              // The key point is that this work happens on a background thread
+              String event =
+                  "id: "
+                      + i
+                      + "\nevent: message\ndata: Generated on thread "
+                      + Thread.currentThread().getName()
+                      + "\ndata: Event number "
+                      + i
+                      + "\n\n";
+
+              connection.send(event.getBytes(StandardCharsets.UTF_8));
+
+              // ========== COMPLETION LOGIC ==========
+              // After the last iteration the async context completes once the queue is written
+              if (i >= count) {
+                connection.complete();
+              }
+            },
+            Instant.now().plusSeconds(1), // Initial delay: wait 1 second before first iteration
+            Duration.ofSeconds(1)); // Period: process every 1 second
+    // Stop producing however the stream ends
+    connection.onClose(() -> task.cancel(false));
 
     // ========== METHOD COMPLETION ==========
     // Important: doGet() returns immediately after starting async processing
     // The original servlet thread is now free to handle other requests
-    // Background scheduler continues processing until asyncContext.complete() is called
+    // The shared scheduler continues producing events until the stream completes
     // This is the core benefit of async servlets - non-blocking request handling
   }
 }
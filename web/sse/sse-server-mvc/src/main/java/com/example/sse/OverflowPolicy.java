@@ -0,0 +1,20 @@
+package com.example.sse;
+
+/**
+ * What to do when a subscriber's bounded event queue is full because its client reads slower than
+ * events are produced.
+ */
+public enum OverflowPolicy {
+  /** Discard the oldest queued event to make room; the client silently misses it. */
+  DROP_OLDEST,
+  /**
+   * End the subscription. Right for resumable streams: the client reconnects with its Last-Event-ID
+   * and replays what it missed from the stream's retained events.
+   */
+  DISCONNECT,
+  /**
+   * Discard everything queued and keep only the newest event. Right for state snapshots such as
+   * prices, where only the latest value matters.
+   */
+  COALESCE_LATEST
+}
@@ -0,0 +1,129 @@
+package com.example.sse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+
+/**
+ * Encodes SSE events into ready-to-write UTF-8 frames.
+ *
+ * <p>A frame is encoded once and can then be written to any number of connections, which is what
+ * makes fan-out cheap: {@code SseEmitter.SseEventBuilder} re-runs the message converters for every
+ * emitter, while {@link #send(ResponseBodyEmitter, byte[])} hands the same byte array to each one.
+ *
+ * <p>Framing follows WHATWG HTML § 9.2.5: multi-line data is split into one {@code data:} line per
+ * line, and the frame ends with the blank line that dispatches the event.
+ */
+public final class SseFrameEncoder {
+
+  private static final byte[] DATA_PREFIX = "data: ".getBytes(StandardCharsets.US_ASCII);
+
+  private SseFrameEncoder() {}
+
+  /**
+   * Encode an event frame.
+   *
+   * @param id the event id, or null to omit the field
+   * @param event the event type, or null to omit the field
+   * @param data the event data; CR, LF and CRLF start a new data line
+   * @throws IllegalArgumentException if id or event contain a line break
+   */
+  public static byte[] encode(String id, String event, String data) {
+    StringBuilder frame = new StringBuilder(data.length() + 64);
+    if (id != null) {
+      appendField(frame, "id", SseLines.requireSingleLine("id", id));
+    }
+    if (event != null) {
+      appendField(frame, "event", SseLines.requireSingleLine("event", event));
+    }
+    appendData(frame, data);
+    frame.append('\n');
+    return frame.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Encode an event frame around data that is already UTF-8, e.g. a message body, without decoding
+   * it to a String. The bytes are copied once, into a frame allocated at its exact size.
+   *
+   * <p>Line breaks are found on the raw bytes, see {@link SseLines}.
+   *
+   * @param id the event id, or null to omit the field
+   * @param event the event type, or null to omit the field
+   * @param data the UTF-8 event data; CR, LF and CRLF start a new data line
+   * @throws IllegalArgumentException if id or event contain a line break
+   */
+  public static byte[] encode(String id, String event, byte[] data) {
+    byte[] idField = id == null ? null : field("id", SseLines.requireSingleLine("id", id));
+    byte[] eventField =
+        event == null ? null : field("event", SseLines.requireSingleLine("event", event));
+
+    int lines = 0;
+    int lineBytes = 0;
+    for (int start = 0; start >= 0; ) {
+      int end = SseLines.end(data, start);
+      lines++;
+      lineBytes += end - start;
+      start = SseLines.next(data, end);
+    }
+    // each line becomes "data: " + line + LF, then one LF dispatches the event
+    int length = lines * (DATA_PREFIX.length + 1) + lineBytes + 1;
+    if (idField != null) {
+      length += idField.length;
+    }
+    if (eventField != null) {
+      length += eventField.length;
+    }
+
+    byte[] frame = new byte[length];
+    int pos = 0;
+    if (idField != null) {
+      System.arraycopy(idField, 0, frame, pos, idField.length);
+      pos += idField.length;
+    }
+    if (eventField != null) {
+      System.arraycopy(eventField, 0, frame, pos, eventField.length);
+      pos += eventField.length;
+    }
+    for (int start = 0; start >= 0; ) {
+      int end = SseLines.end(data, start);
+      System.arraycopy(DATA_PREFIX, 0, frame, pos, DATA_PREFIX.length);
+      pos += DATA_PREFIX.length;
+      System.arraycopy(data, start, frame, pos, end - start);
+      pos += end - start;
+      frame[pos++] = '\n';
+      start = SseLines.next(data, end);
+    }
+    frame[pos] = '\n';
+    return frame;
+  }
+
+  /**
+   * Write a pre-encoded frame to an emitter without going through the message converters.
+   *
+   * <p>Works for {@link org.springframework.web.servlet.mvc.method.annotation.SseEmitter} too: the
+   * response already has the {@code text/event-stream} content type, the media type here only
+   * selects the byte array converter.
+   */
+  public static void send(ResponseBodyEmitter emitter, byte[] frame) throws IOException {
+    emitter.send(Set.of(new DataWithMediaType(frame, MediaType.TEXT_PLAIN)));
+  }
+
+  private static byte[] field(String name, String value) {
+    return (name + ": " + value + "\n").getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static void appendField(StringBuilder frame, String name, String value) {
+    frame.append(name).append(": ").append(value).append('\n');
+  }
+
+  private static void appendData(StringBuilder frame, String data) {
+    for (int start = 0; start >= 0; ) {
+      int end = SseLines.end(data, start);
+      frame.append("data: ").append(data, start, end).append('\n');
+      start = SseLines.next(data, end);
+    }
+  }
+}
@@ -0,0 +1,229 @@
+package com.example.sse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+/**
+ * Sends keep-alive comments on long-lived SSE streams and reclaims the ones whose client is gone.
+ *
+ * <p>An emitter created with a timeout of 0 never times out, and a client behind a load balancer
+ * can vanish without a FIN, so the only way to notice it is to write. Every watched emitter gets a
+ * {@code :} comment frame each {@code interval}; the first write that fails completes the emitter
+ * with the error, which releases whatever is bound to it in the {@link SseSubscriptionRegistry}.
+ * Emitters older than their endpoint's max lifetime are completed too, and the client reconnects
+ * with its Last-Event-ID.
+ *
+ * <p>All streams share one hashed timer wheel with a slot per {@code tick}, advanced by a single
+ * scheduled task: a stream sits in the slot of the tick it was watched on and is visited once per
+ * turn of the wheel, so there is no task, and no rescheduling, per stream. Comments are written on
+ * the {@link SseWriters}, never by the wheel itself, and a stream whose previous comment is still
+ * blocked on a full socket buffer is skipped; how many such clients the writers absorb before other
+ * writes wait is described there.
+ *
+ * <p>Max lifetimes are configured per endpoint name, e.g. {@code
+ * sse.heartbeat.max-lifetime[/watchlist]=PT1H}; endpoints without one live as long as their client.
+ * Lifetimes are enforced when the stream's slot comes round, so up to one interval late.
+ *
+ * <p>Metrics, all tagged with the low-cardinality {@code endpoint} name passed to watch:
+ *
+ * <ul>
+ *   <li>{@code sse.heartbeat.connections}: emitters currently watched
+ *   <li>{@code sse.heartbeat.reaped}: emitters completed by the wheel, tagged {@code reason} {@code
+ *       dead-peer} when a heartbeat failed and {@code max-lifetime} when they got too old
+ * </ul>
+ */
+@Component
+public class SseHeartbeats {
+
+  private static final Logger logger = LoggerFactory.getLogger(SseHeartbeats.class);
+  private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.US_ASCII);
+  private static final long NEVER = Long.MAX_VALUE;
+
+  private final MeterRegistry meterRegistry;
+  private final long tickNanos;
+  private final Map<String, Duration> maxLifetimes;
+  private final LongSupplier nanoClock;
+  private final Executor sender;
+  private final List<Set<Watch>> wheel;
+  private final long startNanos;
+  private final Map<String, AtomicInteger> connectionsByEndpoint = new ConcurrentHashMap<>();
+  // last tick whose slot has been visited; only the scheduled task advances it
+  private long visitedTick;
+
+  @Autowired
+  public SseHeartbeats(
+      MeterRegistry meterRegistry,
+      @Value("${sse.heartbeat.interval:PT15S}") Duration interval,
+      @Value("${sse.heartbeat.tick:PT1S}") Duration tick,
+      Environment environment,
+      SseWriters writers) {
+    this(
+        meterRegistry,
+        interval,
+        tick,
+        Binder.get(environment)
+            .bind("sse.heartbeat.max-lifetime", Bindable.mapOf(String.class, Duration.class))
+            .orElse(Map.of()),
+        System::nanoTime,
+        writers);
+  }
+
+  public SseHeartbeats(
+      MeterRegistry meterRegistry,
+      Duration interval,
+      Duration tick,
+      Map<String, Duration> maxLifetimes,
+      LongSupplier nanoClock,
+      Executor sender) {
+    if (tick.isNegative() || tick.isZero() || interval.compareTo(tick) < 0) {
+      throw new IllegalArgumentException("tick must be positive and no longer than interval");
+    }
+    this.meterRegistry = meterRegistry;
+    this.tickNanos = tick.toNanos();
+    this.maxLifetimes = Map.copyOf(maxLifetimes);
+    this.nanoClock = nanoClock;
+    this.sender = sender;
+    int slots = (int) Math.ceilDiv(interval.toNanos(), tickNanos);
+    this.wheel = new ArrayList<>(slots);
+    for (int i = 0; i < slots; i++) {
+      wheel.add(ConcurrentHashMap.newKeySet());
+    }
+    this.startNanos = nanoClock.getAsLong();
+  }
+
+  /**
+   * Start sending heartbeats to an emitter. Bind the returned watch to the emitter's {@link
+   * SseSubscriptionRegistry.Registration} so it stops when the emitter ends.
+   *
+   * @param endpoint metric tag and max lifetime key, e.g. {@code /watchlist}
+   * @param emitter the emitter returned to Spring MVC
+   */
+  public AutoCloseable watch(String endpoint, ResponseBodyEmitter emitter) {
+    long now = nanoClock.getAsLong();
+    Duration maxLifetime = maxLifetimes.get(endpoint);
+    long expiresAt = maxLifetime == null ? NEVER : now + maxLifetime.toNanos();
+    Set<Watch> slot = wheel.get((int) Math.floorMod(tickOf(now), wheel.size()));
+    Watch watch = new Watch(endpoint, emitter, expiresAt, slot);
+    slot.add(watch);
+    gauge(endpoint).incrementAndGet();
+    return watch;
+  }
+
+  /** Number of emitters currently watched, across all endpoints. */
+  public int watchedCount() {
+    return wheel.stream().mapToInt(Set::size).sum();
+  }
+
+  /**
+   * Visit the slots of every tick that has passed since the last call. One call per {@code tick}
+   * keeps heartbeats on schedule; a late call catches up without skipping slots.
+   */
+  @Scheduled(fixedRateString = "${sse.heartbeat.tick:PT1S}")
+  public synchronized void advance() {
+    long now = nanoClock.getAsLong();
+    long currentTick = tickOf(now);
+    // after a long stall every slot is due once, not once per missed turn
+    long from = Math.max(visitedTick + 1, currentTick - wheel.size() + 1);
+    for (long tick = from; tick <= currentTick; tick++) {
+      for (Watch watch : wheel.get((int) Math.floorMod(tick, wheel.size()))) {
+        watch.visit(now);
+      }
+    }
+    visitedTick = Math.max(visitedTick, currentTick);
+  }
+
+  private long tickOf(long nanos) {
+    return (nanos - startNanos) / tickNanos;
+  }
+
+  private AtomicInteger gauge(String endpoint) {
+    return connectionsByEndpoint.computeIfAbsent(
+        endpoint,
+        key ->
+            meterRegistry.gauge(
+                "sse.heartbeat.connections", Tags.of("endpoint", key), new AtomicInteger()));
+  }
+
+  private final class Watch implements AutoCloseable {
+
+    private final String endpoint;
+    private final ResponseBodyEmitter emitter;
+    private final long expiresAtNanos;
+    private final Set<Watch> slot;
+    // a heartbeat still blocked on a full socket buffer is not followed by another one
+    private final AtomicBoolean sending = new AtomicBoolean();
+
+    private Watch(String endpoint, ResponseBodyEmitter emitter, long expiresAt, Set<Watch> slot) {
+      this.endpoint = endpoint;
+      this.emitter = emitter;
+      this.expiresAtNanos = expiresAt;
+      this.slot = slot;
+    }
+
+    private void visit(long now) {
+      if (expiresAtNanos != NEVER && now - expiresAtNanos >= 0) {
+        reap("max-lifetime", null);
+      } else if (sending.compareAndSet(false, true)) {
+        sender.execute(this::sendHeartbeat);
+      }
+    }
+
+    private void sendHeartbeat() {
+      try {
+        SseFrameEncoder.send(emitter, HEARTBEAT);
+      } catch (IOException | IllegalStateException e) {
+        // IllegalStateException: the emitter completed in the meantime
+        if (slot.contains(this)) {
+          reap("dead-peer", e);
+        }
+      } finally {
+        sending.set(false);
+      }
+    }
+
+    private void reap(String reason, Throwable failure) {
+      if (!slot.remove(this)) {
+        return;
+      }
+      gauge(endpoint).decrementAndGet();
+      logger.debug("Reaping {} emitter: {}", endpoint, reason);
+      meterRegistry
+          .counter("sse.heartbeat.reaped", "endpoint", endpoint, "reason", reason)
+          .increment();
+      if (failure == null) {
+        emitter.complete();
+      } else {
+        emitter.completeWithError(failure);
+      }
+    }
+
+    @Override
+    public void close() {
+      if (slot.remove(this)) {
+        gauge(endpoint).decrementAndGet();
+      }
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package com.example.sse;
+
+/**
+ * Where SSE text breaks into lines: at CR, LF and CRLF, as WHATWG HTML § 9.2.5 reads them. {@link
+ * SseFrameEncoder} and {@link SseWriter} write each line of an event's data as a {@code data:}
+ * field of its own, and both find the lines here.
+ *
+ * <p>Text without line breaks is one line, and a trailing line break starts an empty last line.
+ * Walk the lines of {@code text} with:
+ *
+ * <pre>{@code
+ * for (int start = 0; start >= 0; ) {
+ *   int end = SseLines.end(text, start);
+ *   // the line is text[start, end)
+ *   start = SseLines.next(text, end);
+ * }
+ * }</pre>
+ */
+final class SseLines {
+
+  private SseLines() {}
+
+  /** Index of the line break ending the line that starts at {@code start}, or the text length. */
+  static int end(CharSequence text, int start) {
+    int i = start;
+    while (i < text.length() && !isBreak(text.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * Start of the line after the one ending at {@code end}, skipping CRLF as one break; -1 if that
+   * line was the last.
+   */
+  static int next(CharSequence text, int end) {
+    if (end == text.length()) {
+      return -1;
+    }
+    boolean crlf =
+        text.charAt(end) == '\r' && end + 1 < text.length() && text.charAt(end + 1) == '\n';
+    return crlf ? end + 2 : end + 1;
+  }
+
+  /**
+   * Like {@link #end(CharSequence, int)} on UTF-8 bytes; CR and LF never occur inside a multi-byte
+   * sequence, so no decoding is needed.
+   */
+  static int end(byte[] text, int start) {
+    int i = start;
+    while (i < text.length && !isBreak((char) text[i])) {
+      i++;
+    }
+    return i;
+  }
+
+  /** Like {@link #next(CharSequence, int)} on UTF-8 bytes. */
+  static int next(byte[] text, int end) {
+    if (end == text.length) {
+      return -1;
+    }
+    boolean crlf = text[end] == '\r' && end + 1 < text.length && text[end + 1] == '\n';
+    return crlf ? end + 2 : end + 1;
+  }
+
+  /**
+   * Returns {@code value}, which may be null.
+   *
+   * @throws IllegalArgumentException if the value of the single-line {@code field} has a line break
+   */
+  static String requireSingleLine(String field, String value) {
+    if (value != null && end(value, 0) != value.length()) {
+      throw new IllegalArgumentException(field + " must not contain line breaks");
+    }
+    return value;
+  }
+
+  private static boolean isBreak(char c) {
+    return c == '\r' || c == '\n';
+  }
+}
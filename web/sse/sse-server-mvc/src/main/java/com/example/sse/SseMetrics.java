@@ -0,0 +1,150 @@
+package com.example.sse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+/**
+ * Times each SSE event from the moment it is produced to the moment its bytes are written, so slow
+ * clients and back-pressure show up as a growing stage rather than as a vague "SSE is slow".
+ *
+ * <p>The time an event spends in each stage, and in all of them, is recorded in one timer, {@code
+ * sse.event.latency}, tagged with the low-cardinality {@code endpoint} and a {@code stage}:
+ *
+ * <ul>
+ *   <li>{@code enqueue}: produced (price tick fired, RabbitMQ message arrived) until queued for a
+ *       client, which includes fanning out to the clients ahead of it
+ *   <li>{@code queue}: queued until its write starts, i.e. time spent behind a slow client
+ *   <li>{@code write}: one {@code send} call, which blocks while the socket buffer is full
+ *   <li>{@code total}: produced until written
+ * </ul>
+ *
+ * <p>Streams written directly, without a send queue, skip the {@code enqueue} and {@code queue}
+ * stages. Alongside: {@code sse.events.sent}, {@code sse.bytes.written} and {@code
+ * sse.send.failures} counters and the {@code sse.send.bytes} size of each write. Open streams and
+ * queued events are gauged by {@link SseSubscriptionRegistry} ({@code sse.subscriptions.active})
+ * and {@link SseSendQueues} ({@code sse.send.queue.depth}).
+ *
+ * <p>All times are {@link System#nanoTime()} values.
+ */
+@Component
+public class SseMetrics {
+
+  private final MeterRegistry meterRegistry;
+  private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+  public SseMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /** The meters of one kind of stream, e.g. {@code /orders}; never a per-client name. */
+  public Endpoint endpoint(String endpoint) {
+    return endpoints.computeIfAbsent(endpoint, Endpoint::new);
+  }
+
+  /** Meters of one endpoint. */
+  public final class Endpoint {
+
+    private final Timer enqueue;
+    private final Timer queue;
+    private final Timer write;
+    private final Timer total;
+    private final Counter eventsSent;
+    private final Counter bytesWritten;
+    private final Counter sendFailures;
+    private final DistributionSummary writeSize;
+
+    private Endpoint(String endpoint) {
+      this.enqueue = stage(endpoint, "enqueue");
+      this.queue = stage(endpoint, "queue");
+      this.write = stage(endpoint, "write");
+      this.total = stage(endpoint, "total");
+      this.eventsSent = meterRegistry.counter("sse.events.sent", "endpoint", endpoint);
+      this.bytesWritten =
+          Counter.builder("sse.bytes.written")
+              .baseUnit("bytes")
+              .tag("endpoint", endpoint)
+              .register(meterRegistry);
+      this.sendFailures = meterRegistry.counter("sse.send.failures", "endpoint", endpoint);
+      this.writeSize =
+          DistributionSummary.builder("sse.send.bytes")
+              .baseUnit("bytes")
+              .tag("endpoint", endpoint)
+              .register(meterRegistry);
+    }
+
+    private Timer stage(String endpoint, String stage) {
+      return Timer.builder("sse.event.latency")
+          .tag("endpoint", endpoint)
+          .tag("stage", stage)
+          .publishPercentileHistogram()
+          .register(meterRegistry);
+    }
+
+    /** An event produced at {@code producedAt} was queued for a client at {@code queuedAt}. */
+    public void queued(long producedAt, long queuedAt) {
+      record(enqueue, queuedAt - producedAt);
+    }
+
+    /** A queued event left its queue when its write started at {@code writeStart}. */
+    public void dequeued(long queuedAt, long writeStart) {
+      record(queue, writeStart - queuedAt);
+    }
+
+    /** An event produced at {@code producedAt} was written by {@code writtenAt}. */
+    public void delivered(long producedAt, long writtenAt) {
+      record(total, writtenAt - producedAt);
+    }
+
+    /** One send call wrote {@code events} events, {@code bytes} bytes in all. */
+    public void written(int events, long bytes, long writeStart, long writeEnd) {
+      record(write, writeEnd - writeStart);
+      eventsSent.increment(events);
+      bytesWritten.increment(bytes);
+      writeSize.record(bytes);
+    }
+
+    /** A send call failed, usually because the client went away. */
+    public void failed() {
+      sendFailures.increment();
+    }
+
+    /**
+     * Write a pre-encoded frame straight to an emitter, timing the write and the event's whole way
+     * from its producer.
+     */
+    public void send(ResponseBodyEmitter emitter, byte[] frame, long producedAt)
+        throws IOException {
+      delivered(producedAt, send(emitter, frame));
+    }
+
+    /**
+     * Write a pre-encoded frame straight to an emitter, timing the write only.
+     *
+     * @return when the write completed
+     */
+    public long send(ResponseBodyEmitter emitter, byte[] frame) throws IOException {
+      long writeStart = System.nanoTime();
+      try {
+        SseFrameEncoder.send(emitter, frame);
+      } catch (IOException | RuntimeException e) {
+        failed();
+        throw e;
+      }
+      long writeEnd = System.nanoTime();
+      written(1, frame.length, writeStart, writeEnd);
+      return writeEnd;
+    }
+
+    private static void record(Timer timer, long nanos) {
+      timer.record(Math.max(0, nanos), TimeUnit.NANOSECONDS);
+    }
+  }
+}
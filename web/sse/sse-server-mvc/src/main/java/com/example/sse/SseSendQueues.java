@@ -0,0 +1,318 @@
+package com.example.sse;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+
+/**
+ * Gives each emitter a single writer: a bounded, ordered queue drained on the {@link SseWriters}.
+ *
+ * <p>Producers only enqueue, so they never block on a slow client and never call {@code send}
+ * concurrently on the same emitter. A queue that has events gets one drain task at a time, which
+ * takes everything queued, up to {@code max-batch} events, and writes it with one {@code
+ * send(Set)}, which flushes the response once for the whole batch. It then hands the writer thread
+ * back and queues itself again for the next batch, so a busy stream takes turns with the others
+ * instead of holding a writer thread. When a client falls {@code capacity} events behind, the
+ * {@link OverflowPolicy} decides: drop the oldest event, keep only the latest, or disconnect the
+ * client so it reconnects with its Last-Event-ID.
+ *
+ * <p>Metrics, all tagged with the low-cardinality {@code endpoint} name passed to open:
+ *
+ * <ul>
+ *   <li>{@code sse.send.queue.depth}: events queued and not yet written, over all open queues
+ *   <li>{@code sse.send.queue.dropped}: events discarded by DROP_OLDEST or COALESCE_LATEST
+ *   <li>{@code sse.send.queue.disconnects}: clients disconnected by DISCONNECT
+ *   <li>{@code sse.send.batch.size}: events written per flush
+ * </ul>
+ *
+ * <p>Queued events are also timed through {@link SseMetrics}: how long they waited in the queue,
+ * how long each batch took to write and, for frames offered with their production time, how long
+ * they took from their producer to the client.
+ */
+@Component
+public class SseSendQueues {
+
+  private static final Logger logger = LoggerFactory.getLogger(SseSendQueues.class);
+
+  private final MeterRegistry meterRegistry;
+  private final SseMetrics metrics;
+  private final SseWriters writers;
+  private final int capacity;
+  private final int maxBatch;
+  private final OverflowPolicy overflowPolicy;
+  private final Map<String, AtomicInteger> depthByEndpoint = new ConcurrentHashMap<>();
+
+  public SseSendQueues(
+      MeterRegistry meterRegistry,
+      SseMetrics metrics,
+      SseWriters writers,
+      @Value("${sse.send-queue.capacity:256}") int capacity,
+      @Value("${sse.send-queue.max-batch:64}") int maxBatch,
+      @Value("${sse.send-queue.overflow-policy:DISCONNECT}") OverflowPolicy overflowPolicy) {
+    if (capacity < 1 || maxBatch < 1) {
+      throw new IllegalArgumentException("capacity and max-batch must be positive");
+    }
+    this.meterRegistry = meterRegistry;
+    this.metrics = metrics;
+    this.writers = writers;
+    this.capacity = capacity;
+    this.maxBatch = maxBatch;
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  /**
+   * Start a queue for an emitter. The queue stops, dropping what is left, when the emitter
+   * completes, times out or fails.
+   *
+   * @param endpoint metric tag identifying the kind of stream, e.g. {@code /orders}
+   * @param emitter the emitter returned to Spring MVC
+   */
+  public SendQueue open(String endpoint, ResponseBodyEmitter emitter) {
+    SendQueue queue = new SendQueue(endpoint, emitter);
+    emitter.onCompletion(queue::close);
+    emitter.onTimeout(queue::close);
+    emitter.onError(e -> queue.close());
+    return queue;
+  }
+
+  /** The send queue of one emitter. */
+  public final class SendQueue implements AutoCloseable {
+
+    private final String endpoint;
+    private final ResponseBodyEmitter emitter;
+    private final AtomicInteger endpointDepth;
+    private final DistributionSummary batchSize;
+    private final SseMetrics.Endpoint endpointMetrics;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Queued> queue = new ArrayDeque<>();
+    private boolean completing;
+    private boolean closed;
+    // a drain task is queued or running; it clears this when it finds the queue empty
+    private boolean draining;
+
+    private SendQueue(String endpoint, ResponseBodyEmitter emitter) {
+      this.endpoint = endpoint;
+      this.emitter = emitter;
+      this.endpointDepth =
+          depthByEndpoint.computeIfAbsent(
+              endpoint,
+              key ->
+                  meterRegistry.gauge(
+                      "sse.send.queue.depth", Tags.of("endpoint", key), new AtomicInteger()));
+      this.batchSize =
+          DistributionSummary.builder("sse.send.batch.size")
+              .tag("endpoint", endpoint)
+              .register(meterRegistry);
+      this.endpointMetrics = metrics.endpoint(endpoint);
+    }
+
+    /**
+     * Queue a pre-encoded frame, see {@link SseFrameEncoder}.
+     *
+     * @return false if the queue no longer accepts events
+     */
+    public boolean offer(byte[] frame) {
+      return offer(frame, System.nanoTime());
+    }
+
+    /**
+     * Queue a pre-encoded frame produced at {@code producedAt}, a {@link System#nanoTime()} value
+     * taken when the event was created or arrived, so its latency includes the fan-out.
+     *
+     * @return false if the queue no longer accepts events
+     */
+    public boolean offer(byte[] frame, long producedAt) {
+      return offer(
+          Set.of(new DataWithMediaType(frame, MediaType.TEXT_PLAIN)), frame.length, producedAt);
+    }
+
+    /**
+     * Queue an event, e.g. {@code SseEmitter.event()...build()}.
+     *
+     * @return false if the queue no longer accepts events
+     */
+    public boolean offer(Set<DataWithMediaType> event) {
+      return offer(event, sizeOf(event), System.nanoTime());
+    }
+
+    private boolean offer(Set<DataWithMediaType> event, long bytes, long producedAt) {
+      boolean disconnect = false;
+      boolean startDrain = false;
+      lock.lock();
+      try {
+        if (closed || completing) {
+          return false;
+        }
+        if (queue.size() >= capacity) {
+          switch (overflowPolicy) {
+            case DROP_OLDEST -> discard(1);
+            case COALESCE_LATEST -> discard(queue.size());
+            case DISCONNECT -> disconnect = true;
+          }
+        }
+        if (!disconnect) {
+          long queuedAt = System.nanoTime();
+          queue.addLast(new Queued(event, bytes, producedAt, queuedAt));
+          endpointMetrics.queued(producedAt, queuedAt);
+          endpointDepth.incrementAndGet();
+          startDrain = claimDrain();
+        }
+      } finally {
+        lock.unlock();
+      }
+      if (!disconnect) {
+        if (startDrain) {
+          writers.execute(this::drain);
+        }
+        return true;
+      }
+      logger.info("Disconnecting {} client that fell {} events behind", endpoint, capacity);
+      meterRegistry.counter("sse.send.queue.disconnects", "endpoint", endpoint).increment();
+      close();
+      emitter.complete();
+      return false;
+    }
+
+    /** Send whatever is still queued, then complete the emitter. Accepts no further events. */
+    public void complete() {
+      boolean startDrain;
+      lock.lock();
+      try {
+        if (closed) {
+          return;
+        }
+        completing = true;
+        startDrain = claimDrain();
+      } finally {
+        lock.unlock();
+      }
+      if (startDrain) {
+        writers.execute(this::drain);
+      }
+    }
+
+    /** Stop without sending what is still queued; the emitter is left as it is. */
+    @Override
+    public void close() {
+      lock.lock();
+      try {
+        closed = true;
+        endpointDepth.addAndGet(-queue.size());
+        queue.clear();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /** Number of events queued and not yet written. */
+    public int depth() {
+      lock.lock();
+      try {
+        return queue.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void discard(int count) {
+      for (int i = 0; i < count; i++) {
+        queue.removeFirst();
+      }
+      endpointDepth.addAndGet(-count);
+      meterRegistry.counter("sse.send.queue.dropped", "endpoint", endpoint).increment(count);
+    }
+
+    /** Whether the caller should start a drain task; call with the lock held. */
+    private boolean claimDrain() {
+      if (draining) {
+        return false;
+      }
+      draining = true;
+      return true;
+    }
+
+    /** Writes one batch, then queues itself again until the queue is empty. */
+    private void drain() {
+      Set<DataWithMediaType> batch = new LinkedHashSet<>();
+      List<Queued> events = new ArrayList<>();
+      lock.lock();
+      try {
+        if (closed) {
+          return;
+        }
+        if (queue.isEmpty() && !completing) {
+          draining = false;
+          return;
+        }
+        while (!queue.isEmpty() && events.size() < maxBatch) {
+          Queued queued = queue.removeFirst();
+          batch.addAll(queued.event());
+          events.add(queued);
+        }
+        endpointDepth.addAndGet(-events.size());
+      } finally {
+        lock.unlock();
+      }
+      try {
+        if (events.isEmpty()) {
+          // completing and fully sent
+          close();
+          emitter.complete();
+          return;
+        }
+        write(batch, events);
+      } catch (IOException | IllegalStateException e) {
+        // the client went away or the emitter already completed
+        endpointMetrics.failed();
+        logger.debug("Stopping {} send queue: {}", endpoint, e.toString());
+        close();
+        emitter.completeWithError(e);
+        return;
+      }
+      writers.execute(this::drain);
+    }
+
+    private void write(Set<DataWithMediaType> batch, List<Queued> events) throws IOException {
+      long writeStart = System.nanoTime();
+      emitter.send(batch);
+      long writeEnd = System.nanoTime();
+      long bytes = 0;
+      for (Queued queued : events) {
+        endpointMetrics.dequeued(queued.queuedAt(), writeStart);
+        endpointMetrics.delivered(queued.producedAt(), writeEnd);
+        bytes += queued.bytes();
+      }
+      endpointMetrics.written(events.size(), bytes, writeStart, writeEnd);
+      batchSize.record(events.size());
+    }
+  }
+
+  /** An event waiting in a send queue, with the {@link System#nanoTime()} of its way there. */
+  private record Queued(Set<DataWithMediaType> event, long bytes, long producedAt, long queuedAt) {}
+
+  private static long sizeOf(Set<DataWithMediaType> event) {
+    long bytes = 0;
+    for (DataWithMediaType part : event) {
+      bytes +=
+          part.getData() instanceof byte[] data ? data.length : part.getData().toString().length();
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,124 @@
+package com.example.sse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+/**
+ * Owns the resources that feed each open SSE emitter and releases them when the emitter ends.
+ *
+ * <p>An emitter is only the outbound half of a stream; something else (a scheduled task, a
+ * broadcaster subscription, a RabbitMQ consumer) produces its events. If nobody stops that producer
+ * when the client goes away, it keeps running, and keeps appending to buffers, until a write
+ * happens to fail. On a long-running pod those leftovers add up.
+ *
+ * <p>Usage: register the emitter, then bind every producer to the returned {@link Registration}.
+ * Bound resources are closed in reverse order as soon as the emitter completes, times out or fails.
+ * Binding to an already released registration closes the resource immediately, so a client that
+ * disconnects during setup cannot leak either.
+ *
+ * <p>{@code sse.subscriptions.active} gauges the registrations whose emitter is still open, tagged
+ * with the low-cardinality {@code endpoint} name passed to register. A count that keeps growing
+ * while clients come and go means a producer is not being bound. Clients that vanish without
+ * closing the connection are noticed by {@link SseHeartbeats}.
+ */
+@Component
+public class SseSubscriptionRegistry {
+
+  private static final Logger logger = LoggerFactory.getLogger(SseSubscriptionRegistry.class);
+
+  private final MeterRegistry meterRegistry;
+  private final Set<Registration> registrations = ConcurrentHashMap.newKeySet();
+  private final Map<String, AtomicInteger> activeByEndpoint = new ConcurrentHashMap<>();
+
+  public SseSubscriptionRegistry(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Track an emitter and release everything bound to it once it completes.
+   *
+   * @param endpoint metric tag identifying the kind of stream, e.g. {@code /watchlist}; keep it to
+   *     a fixed set of values, never a per-client id
+   * @param emitter the emitter returned to Spring MVC
+   */
+  public Registration register(String endpoint, ResponseBodyEmitter emitter) {
+    Registration registration = new Registration(endpoint, emitter);
+    registrations.add(registration);
+    gauge("sse.subscriptions.active", activeByEndpoint, endpoint).incrementAndGet();
+
+    emitter.onCompletion(registration::release);
+    emitter.onTimeout(registration::release);
+    emitter.onError(e -> registration.release());
+    return registration;
+  }
+
+  /** Number of registrations whose emitter is still open, across all endpoints. */
+  public int activeCount() {
+    return registrations.size();
+  }
+
+  private AtomicInteger gauge(String name, Map<String, AtomicInteger> values, String endpoint) {
+    return values.computeIfAbsent(
+        endpoint, key -> meterRegistry.gauge(name, Tags.of("endpoint", key), new AtomicInteger()));
+  }
+
+  /** Resources bound to one emitter. */
+  public final class Registration {
+
+    private final String endpoint;
+    private final ResponseBodyEmitter emitter;
+    private final Deque<AutoCloseable> resources = new ArrayDeque<>();
+    private boolean released;
+
+    private Registration(String endpoint, ResponseBodyEmitter emitter) {
+      this.endpoint = endpoint;
+      this.emitter = emitter;
+    }
+
+    /** Close {@code resource} when the emitter ends. */
+    public Registration bind(AutoCloseable resource) {
+      synchronized (this) {
+        if (!released) {
+          resources.push(resource);
+          return this;
+        }
+      }
+      close(resource);
+      return this;
+    }
+
+    /** Release all bound resources now. Safe to call more than once. */
+    public void release() {
+      synchronized (this) {
+        if (released) {
+          return;
+        }
+        released = true;
+      }
+      registrations.remove(this);
+      gauge("sse.subscriptions.active", activeByEndpoint, endpoint).decrementAndGet();
+
+      while (!resources.isEmpty()) {
+        close(resources.pop());
+      }
+    }
+
+    private void close(AutoCloseable resource) {
+      try {
+        resource.close();
+      } catch (Exception e) {
+        logger.warn("Error releasing {} resource: {}", endpoint, e.toString());
+      }
+    }
+  }
+}
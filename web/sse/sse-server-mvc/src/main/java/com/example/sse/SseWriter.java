@@ -0,0 +1,409 @@
+package com.example.sse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.scheduling.TaskScheduler;
+
+/**
+ * Writes SSE events straight to a response output stream, for code that owns the stream, e.g. a
+ * virtual thread blocking on an {@link jakarta.servlet.AsyncContext} response.
+ *
+ * <p>Events are encoded into one reusable buffer, UTF-8 without intermediate Strings or byte
+ * arrays, and split into one {@code data:} line per line like {@link SseFrameEncoder}. By default
+ * every event is flushed at once. With {@link Builder#coalesce} events are held back until {@code
+ * maxDelay} has passed since the last flush or {@code maxBytes} are pending, so a burst of events
+ * costs one write and one flush.
+ *
+ * <p>With {@link Builder#scheduler} a periodic task flushes held-back events once they are due and
+ * writes a {@code :} comment whenever nothing was written for the {@link Builder#heartbeat}
+ * interval. The comment keeps proxies from closing an idle stream, and writing it is what detects a
+ * client that went away without closing the connection.
+ *
+ * <p>The first write that fails marks the writer disconnected: it closes, runs the {@link
+ * Builder#onDisconnect} callback once, and every further write throws. Producers can loop on {@link
+ * #isOpen()}. All methods may be called from any thread.
+ */
+public final class SseWriter implements Closeable {
+
+  private static final int INITIAL_BUFFER_SIZE = 1024;
+
+  private final OutputStream out;
+  private final long maxDelayNanos;
+  private final int maxBytes;
+  private final long heartbeatNanos;
+  private final Runnable onDisconnect;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final ScheduledFuture<?> maintenance;
+
+  private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+  private int pending;
+  private long lastFlushNanos = System.nanoTime();
+  private long lastWriteNanos = lastFlushNanos;
+  private boolean closed;
+  private IOException failure;
+
+  private SseWriter(Builder builder) {
+    this.out = builder.out;
+    this.maxDelayNanos = builder.maxDelay.toNanos();
+    this.maxBytes = builder.maxBytes;
+    this.heartbeatNanos = builder.heartbeat == null ? 0 : builder.heartbeat.toNanos();
+    this.onDisconnect = builder.onDisconnect;
+    Duration period = builder.heartbeat;
+    if (maxDelayNanos > 0 && (period == null || builder.maxDelay.compareTo(period) < 0)) {
+      period = builder.maxDelay;
+    }
+    this.maintenance =
+        builder.scheduler == null || period == null
+            ? null
+            : builder.scheduler.scheduleAtFixedRate(this::maintain, period);
+  }
+
+  /** Starts configuring a writer to {@code out}; without options every event is flushed. */
+  public static Builder builder(OutputStream out) {
+    return new Builder(out);
+  }
+
+  /** Options of a {@link SseWriter}. */
+  public static final class Builder {
+
+    private final OutputStream out;
+    private Duration maxDelay = Duration.ZERO;
+    private int maxBytes;
+    private Duration heartbeat;
+    private TaskScheduler scheduler;
+    private Runnable onDisconnect = () -> {};
+
+    private Builder(OutputStream out) {
+      this.out = out;
+    }
+
+    /**
+     * Flush at most every {@code maxDelay}, or earlier once {@code maxBytes} are pending. Without a
+     * scheduler, held-back events go out with a later event or on {@link SseWriter#flush()}.
+     */
+    public Builder coalesce(Duration maxDelay, int maxBytes) {
+      if (maxDelay.isNegative() || maxBytes < 1) {
+        throw new IllegalArgumentException("maxDelay must not be negative, maxBytes positive");
+      }
+      this.maxDelay = maxDelay;
+      this.maxBytes = maxBytes;
+      return this;
+    }
+
+    /** Write a comment when nothing else was written for {@code interval}; needs a scheduler. */
+    public Builder heartbeat(Duration interval) {
+      if (interval.isNegative() || interval.isZero()) {
+        throw new IllegalArgumentException("heartbeat interval must be positive");
+      }
+      this.heartbeat = interval;
+      return this;
+    }
+
+    /** Runs the due flushes and heartbeats; the writer cancels its task when it closes. */
+    public Builder scheduler(TaskScheduler scheduler) {
+      this.scheduler = scheduler;
+      return this;
+    }
+
+    /** Called once, on the thread whose write failed, when the client is found gone. */
+    public Builder onDisconnect(Runnable onDisconnect) {
+      this.onDisconnect = onDisconnect;
+      return this;
+    }
+
+    public SseWriter build() {
+      if (heartbeat != null && scheduler == null) {
+        throw new IllegalStateException("heartbeats need a scheduler");
+      }
+      return new SseWriter(this);
+    }
+  }
+
+  /**
+   * Writes an event.
+   *
+   * @param id the event id, or null to omit the field
+   * @param type the event type, or null to omit the field
+   * @param data the event data; CR, LF and CRLF start a new data line
+   * @throws IllegalArgumentException if id or type contain a line break
+   * @throws IOException if the client is gone
+   */
+  public SseWriter event(String id, String type, String data) throws IOException {
+    SseLines.requireSingleLine("id", id);
+    SseLines.requireSingleLine("event", type);
+    lock.lock();
+    try {
+      ensureOpen();
+      appendField("id", id);
+      appendField("event", type);
+      appendLines("data: ", data);
+      append('\n');
+      written();
+    } finally {
+      lock.unlock();
+    }
+    return this;
+  }
+
+  /** Writes an event whose data is already UTF-8, see {@link #event(String, String, String)}. */
+  public SseWriter event(String id, String type, byte[] data) throws IOException {
+    SseLines.requireSingleLine("id", id);
+    SseLines.requireSingleLine("event", type);
+    lock.lock();
+    try {
+      ensureOpen();
+      appendField("id", id);
+      appendField("event", type);
+      for (int start = 0; start >= 0; ) {
+        int end = SseLines.end(data, start);
+        appendAscii("data: ");
+        ensureCapacity(end - start);
+        System.arraycopy(data, start, buffer, pending, end - start);
+        pending += end - start;
+        append('\n');
+        start = SseLines.next(data, end);
+      }
+      append('\n');
+      written();
+    } finally {
+      lock.unlock();
+    }
+    return this;
+  }
+
+  /** Writes an event with only data. */
+  public SseWriter data(String data) throws IOException {
+    return event(null, null, data);
+  }
+
+  /**
+   * Writes a comment, which clients ignore, and flushes. Line breaks in the text start new comment
+   * lines.
+   */
+  public SseWriter comment(String text) throws IOException {
+    lock.lock();
+    try {
+      ensureOpen();
+      appendLines(": ", text);
+      append('\n');
+      flushLocked();
+    } finally {
+      lock.unlock();
+    }
+    return this;
+  }
+
+  /** Tells the client how long to wait before reconnecting. */
+  public SseWriter retry(Duration delay) throws IOException {
+    lock.lock();
+    try {
+      ensureOpen();
+      appendAscii("retry: ");
+      appendAscii(Long.toString(delay.toMillis()));
+      appendAscii("\n\n");
+      written();
+    } finally {
+      lock.unlock();
+    }
+    return this;
+  }
+
+  /** Writes and flushes the events held back by coalescing. */
+  public void flush() throws IOException {
+    lock.lock();
+    try {
+      ensureOpen();
+      flushLocked();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Whether events can still be written: not closed and the client not found gone. */
+  public boolean isOpen() {
+    lock.lock();
+    try {
+      return !closed;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** The write failure that disconnected this writer, or null. */
+  public IOException failure() {
+    lock.lock();
+    try {
+      return failure;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Flushes what is held back and stops writing. Does not close the output stream, which belongs to
+   * the response.
+   */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      try {
+        flushLocked();
+      } catch (IOException e) {
+        // the client is gone; nothing left to tell it
+      }
+      closed = true;
+    } finally {
+      lock.unlock();
+    }
+    if (maintenance != null) {
+      maintenance.cancel(false);
+    }
+  }
+
+  /** Flushes held-back events that are due and writes a heartbeat on an idle stream. */
+  private void maintain() {
+    // a producer holding the lock is writing anyway, and may be blocked on a slow client
+    if (!lock.tryLock()) {
+      return;
+    }
+    try {
+      if (closed) {
+        return;
+      }
+      long now = System.nanoTime();
+      if (heartbeatNanos > 0 && now - lastWriteNanos >= heartbeatNanos) {
+        append(':');
+        append('\n');
+        append('\n');
+        flushLocked();
+      } else if (pending > 0 && now - lastFlushNanos >= maxDelayNanos) {
+        flushLocked();
+      }
+    } catch (IOException e) {
+      // recorded as the failure, the producer sees it on its next write
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void written() throws IOException {
+    if (maxBytes == 0
+        || pending >= maxBytes
+        || System.nanoTime() - lastFlushNanos >= maxDelayNanos) {
+      flushLocked();
+    }
+  }
+
+  private void flushLocked() throws IOException {
+    try {
+      if (pending > 0) {
+        out.write(buffer, 0, pending);
+        pending = 0;
+        lastWriteNanos = System.nanoTime();
+      }
+      out.flush();
+      lastFlushNanos = System.nanoTime();
+    } catch (IOException e) {
+      disconnected(e);
+      throw e;
+    }
+    if (buffer.length > 64 * INITIAL_BUFFER_SIZE) {
+      buffer = new byte[INITIAL_BUFFER_SIZE]; // do not keep one huge event's buffer around
+    }
+  }
+
+  private void disconnected(IOException e) {
+    boolean first = failure == null;
+    failure = e;
+    closed = true;
+    pending = 0;
+    if (maintenance != null) {
+      maintenance.cancel(false);
+    }
+    if (first) {
+      onDisconnect.run();
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (failure != null) {
+      throw new IOException("Client disconnected", failure);
+    }
+    if (closed) {
+      throw new IOException("SseWriter is closed");
+    }
+  }
+
+  private void appendField(String name, String value) {
+    if (value != null) {
+      appendAscii(name);
+      appendAscii(": ");
+      appendUtf8(value, 0, value.length());
+      append('\n');
+    }
+  }
+
+  private void appendLines(String prefix, String text) {
+    for (int start = 0; start >= 0; ) {
+      int end = SseLines.end(text, start);
+      appendAscii(prefix);
+      appendUtf8(text, start, end);
+      append('\n');
+      start = SseLines.next(text, end);
+    }
+  }
+
+  private void appendAscii(String text) {
+    ensureCapacity(text.length());
+    for (int i = 0; i < text.length(); i++) {
+      buffer[pending++] = (byte) text.charAt(i);
+    }
+  }
+
+  private void append(char c) {
+    ensureCapacity(1);
+    buffer[pending++] = (byte) c;
+  }
+
+  private void appendUtf8(String text, int from, int to) {
+    ensureCapacity((to - from) * 3);
+    for (int i = from; i < to; i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        buffer[pending++] = (byte) c;
+      } else if (c < 0x800) {
+        buffer[pending++] = (byte) (0xC0 | (c >> 6));
+        buffer[pending++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < to
+          && Character.isLowSurrogate(text.charAt(i + 1))) {
+        int cp = Character.toCodePoint(c, text.charAt(++i));
+        buffer[pending++] = (byte) (0xF0 | (cp >> 18));
+        buffer[pending++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+        buffer[pending++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+        buffer[pending++] = (byte) (0x80 | (cp & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        buffer[pending++] = '?'; // unpaired surrogate, as String.getBytes does
+      } else {
+        buffer[pending++] = (byte) (0xE0 | (c >> 12));
+        buffer[pending++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buffer[pending++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+  }
+
+  private void ensureCapacity(int extra) {
+    if (pending + extra > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, pending + extra));
+    }
+  }
+}
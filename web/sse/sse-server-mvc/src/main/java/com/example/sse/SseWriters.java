@@ -0,0 +1,68 @@
+package com.example.sse;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The platform threads that write to SSE emitters: the {@link SseSendQueues} drains, the {@link
+ * SseHeartbeats} comments and the {@link com.example.stocks.StockPriceBroadcaster} deliveries to
+ * emitters.
+ *
+ * <p>{@code ResponseBodyEmitter.send} is {@code synchronized}. On JDK 21 a virtual thread that
+ * blocks on a full socket buffer inside it pins its carrier thread, and with one carrier per core a
+ * handful of slow clients would stall every virtual thread in the application, request handlers
+ * included (JEP 491 lifts this in JDK 24). Writes therefore run here, on {@code
+ * sse.writers.threads} threads of their own, so a slow client blocks one of these and never a
+ * carrier.
+ *
+ * <p>The limit: once every writer thread is blocked on a slow client, writes to the other clients
+ * wait in this pool's queue until one is freed, or until the heartbeats or the send queue's {@link
+ * OverflowPolicy} give up on the slow client. Request threads and the producers, which only
+ * enqueue, are not held up.
+ *
+ * <p>Metric: {@code sse.writers.queued}, writes waiting for a writer thread.
+ */
+@Component
+public class SseWriters implements Executor, AutoCloseable {
+
+  private final ThreadPoolExecutor pool;
+
+  public SseWriters(@Value("${sse.writers.threads:16}") int threads, MeterRegistry meterRegistry) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive: " + threads);
+    }
+    AtomicInteger count = new AtomicInteger();
+    this.pool =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            task -> {
+              Thread thread = new Thread(task, "sse-writer-" + count.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            },
+            // writes handed over during shutdown are dropped with their connection
+            new ThreadPoolExecutor.DiscardPolicy());
+    Gauge.builder("sse.writers.queued", pool, p -> p.getQueue().size()).register(meterRegistry);
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    pool.execute(task);
+  }
+
+  @Override
+  public void close() {
+    pool.shutdownNow();
+  }
+}
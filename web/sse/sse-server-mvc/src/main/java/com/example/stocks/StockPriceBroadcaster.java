@@ -0,0 +1,264 @@
+package com.example.stocks;
+
+import com.example.sse.SseFrameEncoder;
+import com.example.sse.SseWriters;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Shared per-symbol stock price ticker that fans each tick out to every subscriber.
+ *
+ * <p>Scheduling one task per connected client means N timers, N price lookups and N JSON encodings
+ * per second for what is the same price. Instead, each symbol gets a single ticker that fetches the
+ * price once, serializes it once and encodes it once into an SSE frame, then writes the same bytes
+ * to every subscribed {@link SseEmitter}.
+ *
+ * <p>Tickers are reference counted: the first subscription for a symbol starts its ticker and the
+ * last one to close stops it, so symbols nobody watches cost nothing.
+ *
+ * <p>The ticker thread never waits on a subscriber: it only leaves the tick in each subscriber's
+ * one-slot mailbox, and a delivery task runs the listener. A subscriber that falls behind skips to
+ * the latest price when it catches up instead of queueing stale ones. Listeners that write to an
+ * emitter are delivered on the {@link SseWriters}, since a blocked {@code send} would pin a virtual
+ * thread; a client with a full socket buffer holds one writer thread, and only when all of them are
+ * held do other clients' ticks wait. Other listeners, such as the order matching engine, run on
+ * virtual threads and keep getting every tick on time regardless. A subscriber whose listener
+ * throws (typically a client that went away) is unsubscribed.
+ */
+@Component
+public class StockPriceBroadcaster {
+
+  public static final String EVENT_TYPE = "stock-price";
+  private static final Duration TICK_INTERVAL = Duration.ofSeconds(1);
+
+  private final Logger logger = LoggerFactory.getLogger(StockPriceBroadcaster.class);
+  private final TaskScheduler scheduler;
+  private final StockPriceService stockPriceService;
+  private final ObjectMapper objectMapper;
+  private final Executor delivery;
+  private final Executor emitterDelivery;
+  private final ConcurrentMap<String, SymbolTicker> tickers = new ConcurrentHashMap<>();
+
+  @Autowired
+  public StockPriceBroadcaster(
+      TaskScheduler scheduler,
+      StockPriceService stockPriceService,
+      ObjectMapper objectMapper,
+      SseWriters writers) {
+    this(
+        scheduler,
+        stockPriceService,
+        objectMapper,
+        task -> Thread.ofVirtual().name("stock-price-delivery").start(task),
+        writers);
+  }
+
+  /**
+   * @param delivery runs the deliveries of plain listeners, at most one task per subscriber at a
+   *     time
+   * @param emitterDelivery runs the deliveries of listeners subscribed with an emitter, likewise
+   */
+  public StockPriceBroadcaster(
+      TaskScheduler scheduler,
+      StockPriceService stockPriceService,
+      ObjectMapper objectMapper,
+      Executor delivery,
+      Executor emitterDelivery) {
+    this.scheduler = scheduler;
+    this.stockPriceService = stockPriceService;
+    this.objectMapper = objectMapper;
+    this.delivery = delivery;
+    this.emitterDelivery = emitterDelivery;
+  }
+
+  /**
+   * One price update, shared by all subscribers of the symbol.
+   *
+   * @param sequence per-symbol tick number, starting at 1 when the ticker starts
+   * @param price the price
+   * @param json the price serialized with the application's ObjectMapper
+   * @param frame complete SSE frame ({@code id: sequence}, {@code event: stock-price}, {@code data:
+   *     json}); shared, do not modify
+   * @param producedAtNanos {@link System#nanoTime()} when the tick fired, for latency metrics
+   */
+  public record Tick(
+      long sequence, StockPrice price, String json, byte[] frame, long producedAtNanos) {}
+
+  /**
+   * Receives ticks one at a time, in order, on a delivery task of its own; a listener slower than
+   * the ticker skips to the latest tick. Throwing unsubscribes the listener.
+   */
+  @FunctionalInterface
+  public interface Listener {
+    void onTick(Tick tick) throws Exception;
+  }
+
+  /** Handle returned by subscribe; closing it more than once is harmless. */
+  public interface Subscription extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  /**
+   * Stream the pre-encoded tick frames for {@code symbol} to an emitter. Close the returned
+   * subscription when the emitter completes, e.g. by binding it to an {@link
+   * com.example.sse.SseSubscriptionRegistry} registration.
+   */
+  public Subscription subscribe(String symbol, SseEmitter emitter) {
+    return subscribe(symbol, emitter, tick -> SseFrameEncoder.send(emitter, tick.frame()));
+  }
+
+  /**
+   * Subscribe a listener that writes to {@code emitter}: if the listener throws, the emitter is
+   * completed with the error and the listener is unsubscribed.
+   */
+  public Subscription subscribe(String symbol, SseEmitter emitter, Listener listener) {
+    return subscribe(
+        symbol,
+        emitterDelivery,
+        tick -> {
+          try {
+            listener.onTick(tick);
+          } catch (Exception e) {
+            emitter.completeWithError(e);
+            throw e;
+          }
+        });
+  }
+
+  /** Subscribe a listener to the ticks of {@code symbol}, starting its ticker if needed. */
+  public Subscription subscribe(String symbol, Listener listener) {
+    return subscribe(symbol, delivery, listener);
+  }
+
+  private Subscription subscribe(String symbol, Executor executor, Listener listener) {
+    Subscriber subscriber = new Subscriber(symbol, executor, listener);
+    tickers.compute(
+        symbol,
+        (key, ticker) -> {
+          if (ticker == null) {
+            ticker = new SymbolTicker(key);
+            ticker.future = scheduler.scheduleAtFixedRate(ticker, TICK_INTERVAL);
+            logger.info("Started price ticker for {}", key);
+          }
+          ticker.subscribers.add(subscriber);
+          return ticker;
+        });
+    return subscriber;
+  }
+
+  /** Number of live subscriptions for {@code symbol}; 0 when its ticker is stopped. */
+  public int subscriberCount(String symbol) {
+    SymbolTicker ticker = tickers.get(symbol);
+    return ticker == null ? 0 : ticker.subscribers.size();
+  }
+
+  private void release(Subscriber subscriber) {
+    tickers.computeIfPresent(
+        subscriber.symbol,
+        (key, ticker) -> {
+          ticker.subscribers.remove(subscriber);
+          if (!ticker.subscribers.isEmpty()) {
+            return ticker;
+          }
+          ticker.future.cancel(false);
+          logger.info("Stopped price ticker for {}", key);
+          return null;
+        });
+  }
+
+  private final class SymbolTicker implements Runnable {
+
+    private final String symbol;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private ScheduledFuture<?> future;
+
+    private SymbolTicker(String symbol) {
+      this.symbol = symbol;
+    }
+
+    @Override
+    public void run() {
+      long producedAt = System.nanoTime();
+      Tick tick;
+      try {
+        StockPrice price = stockPriceService.getCurrentPrice(symbol);
+        String json = objectMapper.writeValueAsString(price);
+        long id = sequence.incrementAndGet();
+        byte[] frame = SseFrameEncoder.encode(String.valueOf(id), EVENT_TYPE, json);
+        tick = new Tick(id, price, json, frame, producedAt);
+      } catch (Exception e) {
+        logger.error("Error producing stock price update for {}", symbol, e);
+        return;
+      }
+
+      for (Subscriber subscriber : subscribers) {
+        subscriber.offer(tick);
+      }
+    }
+  }
+
+  private final class Subscriber implements Subscription, Runnable {
+
+    private final String symbol;
+    private final Executor executor;
+    private final Listener listener;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // the tick not delivered yet; a newer one replaces it
+    private final AtomicReference<Tick> latest = new AtomicReference<>();
+    private final AtomicBoolean delivering = new AtomicBoolean();
+
+    private Subscriber(String symbol, Executor executor, Listener listener) {
+      this.symbol = symbol;
+      this.executor = executor;
+      this.listener = listener;
+    }
+
+    /** Called by the ticker: never blocks, at most starts a delivery task. */
+    private void offer(Tick tick) {
+      latest.set(tick);
+      if (!closed.get() && delivering.compareAndSet(false, true)) {
+        executor.execute(this);
+      }
+    }
+
+    /** Delivers until the mailbox is empty, rechecking it after letting go of the task. */
+    @Override
+    public void run() {
+      do {
+        Tick tick;
+        while (!closed.get() && (tick = latest.getAndSet(null)) != null) {
+          try {
+            listener.onTick(tick);
+          } catch (Exception e) {
+            logger.debug("Dropping {} subscriber: {}", symbol, e.toString());
+            close();
+          }
+        }
+        delivering.set(false);
+      } while (!closed.get() && latest.get() != null && delivering.compareAndSet(false, true));
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        release(this);
+      }
+    }
+  }
+}
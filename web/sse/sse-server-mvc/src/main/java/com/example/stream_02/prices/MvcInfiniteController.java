@@ -1,19 +1,17 @@
 package com.example.stream_02.prices;
 
-import com.example.stocks.StockPrice;
-import com.example.stocks.StockPriceService;
-import java.time.Duration;
-import java.util.concurrent.atomic.AtomicInteger;
+import com.example.sse.SseHeartbeats;
+import com.example.sse.SseMetrics;
+import com.example.sse.SseSubscriptionRegistry;
+import com.example.stocks.StockPriceBroadcaster;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
 
 /**
  * Educational Spring MVC controller demonstrating infinite SSE streams with strongly typed objects.
@@ -31,12 +29,20 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEvent
 class MvcInfiniteController {
 
   private final Logger logger = LoggerFactory.getLogger(MvcInfiniteController.class);
-  private final TaskScheduler scheduler;
-  private final StockPriceService stockPriceService;
+  private final StockPriceBroadcaster broadcaster;
+  private final SseSubscriptionRegistry subscriptions;
+  private final SseHeartbeats heartbeats;
+  private final SseMetrics.Endpoint metrics;
 
-  public MvcInfiniteController(TaskScheduler scheduler, StockPriceService stockPriceService) {
-    this.scheduler = scheduler;
-    this.stockPriceService = stockPriceService;
+  public MvcInfiniteController(
+      StockPriceBroadcaster broadcaster,
+      SseSubscriptionRegistry subscriptions,
+      SseHeartbeats heartbeats,
+      SseMetrics sseMetrics) {
+    this.broadcaster = broadcaster;
+    this.subscriptions = subscriptions;
+    this.heartbeats = heartbeats;
+    this.metrics = sseMetrics.endpoint("/mvc/stream/infinite");
   }
 
   /**
@@ -45,6 +51,11 @@ class MvcInfiniteController {
    * <p>Demonstrates real-world usage with strongly typed Java objects serialized to JSON. Uses only
    * the essential SSE fields: event name, id, and data.
    *
+   * <p>All clients watching the same symbol share one {@link StockPriceBroadcaster} ticker: the
+   * price is serialized once per tick and the same encoded frame is written to every emitter, so
+   * the event id is the per-symbol tick number. Each write is timed from the moment the tick fired,
+   * see {@link SseMetrics}.
+   *
    * @return SseEmitter that streams stock price updates indefinitely
    */
   @GetMapping(path = "/mvc/stream/infinite", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
@@ -60,29 +71,16 @@ class MvcInfiniteController {
     emitter.onTimeout(() -> logger.info("Stock price stream timed out"));
     emitter.onError(e -> logger.error("Stock price stream error", e));
 
-    AtomicInteger eventId = new AtomicInteger(1);
-
-    // Schedule stock price updates every second
-    scheduler.scheduleAtFixedRate(
-        () -> {
-          try {
-            // Generate random stock price update
-            StockPrice stockPrice = stockPriceService.getCurrentPrice(symbol);
-
-            // Build SSE event with strongly typed object
-            SseEventBuilder event =
-                SseEmitter.event()
-                    .id(String.valueOf(eventId.getAndIncrement())) // Sequential event ID
-                    .name("stock-price") // Event type for client filtering
-                    .data(stockPrice); // Jackson will serialize StockPrice to JSON
-
-            emitter.send(event);
-          } catch (Exception e) {
-            logger.error("Error sending stock price update", e);
-            emitter.completeWithError(e);
-          }
-        },
-        Duration.ofSeconds(1));
+    // Join the shared ticker for this symbol, unsubscribed when the emitter completes. Without a
+    // timeout only the heartbeats notice a client that vanished without closing the connection.
+    subscriptions
+        .register("/mvc/stream/infinite", emitter)
+        .bind(heartbeats.watch("/mvc/stream/infinite", emitter))
+        .bind(
+            broadcaster.subscribe(
+                symbol,
+                emitter,
+                tick -> metrics.send(emitter, tick.frame(), tick.producedAtNanos())));
 
     return emitter;
   }
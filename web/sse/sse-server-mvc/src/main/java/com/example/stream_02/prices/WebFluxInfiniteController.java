@@ -1,9 +1,12 @@
 package com.example.stream_02.prices;
 
-import com.example.stocks.StockPrice;
 import com.example.stocks.StockPriceService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.time.Duration;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
@@ -20,6 +23,9 @@ import reactor.core.publisher.Flux;
  * <p>Streams real-time stock price updates using Jackson for JSON serialization. Focuses on the
  * core SSE fields: event name, id, and data using reactive streams.
  *
+ * <p>All clients of a symbol share one hot Flux: one price lookup and one JSON serialization per
+ * tick, however many clients there are.
+ *
  * <p>Test with: {@code curl -N -H "Accept: text/event-stream"
  * http://localhost:8080/webflux/stream/infinite} or {@code curl -N -H "Accept: text/event-stream"
  * http://localhost:8080/webflux/stream/infinite?symbol=GOOGL}
@@ -27,11 +33,18 @@ import reactor.core.publisher.Flux;
 @RestController
 class WebFluxInfiniteController {
 
+  /** How long a symbol's price stream keeps running after its last client left. */
+  private static final Duration GRACE_PERIOD = Duration.ofSeconds(5);
+
   private final Logger logger = LoggerFactory.getLogger(WebFluxInfiniteController.class);
   private final StockPriceService stockPriceService;
+  private final ObjectMapper objectMapper;
+  private final ConcurrentMap<String, Flux<ServerSentEvent<String>>> prices =
+      new ConcurrentHashMap<>();
 
-  public WebFluxInfiniteController(StockPriceService stockPriceService) {
+  public WebFluxInfiniteController(StockPriceService stockPriceService, ObjectMapper objectMapper) {
     this.stockPriceService = stockPriceService;
+    this.objectMapper = objectMapper;
   }
 
   /**
@@ -42,31 +55,21 @@ class WebFluxInfiniteController {
    * the essential SSE fields: event name, id, and data. Shows the reactive approach compared to the
    * imperative Spring MVC version.
    *
+   * <p>Clients join the symbol's shared stream and start with its latest price. A client that
+   * cannot keep up skips to the newest price instead of buffering the ones it missed.
+   *
    * @param symbol Stock symbol to stream (defaults to AAPL)
    * @return Flux of ServerSentEvent that streams stock price updates indefinitely
    */
   @GetMapping(path = "/webflux/stream/infinite", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-  public Flux<ServerSentEvent<StockPrice>> infinite(
+  public Flux<ServerSentEvent<String>> infinite(
       @RequestParam(defaultValue = "AAPL") String symbol) {
 
     logger.info("Starting WebFlux infinite stock price stream for symbol: {}", symbol);
 
-    AtomicInteger eventId = new AtomicInteger(1);
-
-    return Flux.interval(Duration.ofSeconds(1)) // Emit every second
-        .flatMap(
-            tick ->
-                // Use reactive stock price service - non-blocking!
-                stockPriceService.getCurrentPriceReactive(symbol))
-        .map(
-            stockPrice -> {
-              // Build ServerSentEvent with strongly typed object
-              return ServerSentEvent.<StockPrice>builder()
-                  .id(String.valueOf(eventId.getAndIncrement())) // Sequential event ID
-                  .event("stock-price") // Event type for client filtering
-                  .data(stockPrice) // Jackson will serialize StockPrice to JSON
-                  .build();
-            })
+    return sharedPrices(symbol)
+        // per client: keep only the latest price while the client is busy writing
+        .onBackpressureLatest()
         .doOnSubscribe(
             subscription ->
                 logger.info("Client subscribed to WebFlux stock price stream for {}", symbol))
@@ -80,4 +83,41 @@ class WebFluxInfiniteController {
                     symbol,
                     signalType));
   }
+
+  /**
+   * The hot price stream of a symbol: it starts with its first client, replays the latest event to
+   * each new one and stops {@link #GRACE_PERIOD} after the last one left.
+   *
+   * <p>A stopped stream stays in the map: {@code refCount} starts it again for the next client.
+   * Removing it would race with a caller that already holds it, and two streams would tick for one
+   * symbol. What stays behind per symbol is the assembled, idle Flux.
+   */
+  private Flux<ServerSentEvent<String>> sharedPrices(String symbol) {
+    return prices.computeIfAbsent(symbol, this::createSharedPrices);
+  }
+
+  private Flux<ServerSentEvent<String>> createSharedPrices(String symbol) {
+    AtomicLong eventId = new AtomicLong();
+    return Flux.interval(Duration.ofSeconds(1)) // Emit every second
+        // Use reactive stock price service - non-blocking! One lookup at a time.
+        .concatMap(tick -> stockPriceService.getCurrentPriceReactive(symbol))
+        .<ServerSentEvent<String>>handle(
+            (stockPrice, sink) -> {
+              try {
+                // Serialized once here, written as is to every client
+                sink.next(
+                    ServerSentEvent.<String>builder()
+                        .id(String.valueOf(eventId.incrementAndGet())) // per-symbol tick
+                        .event("stock-price") // Event type for client filtering
+                        .data(objectMapper.writeValueAsString(stockPrice))
+                        .build());
+              } catch (JsonProcessingException e) {
+                sink.error(e);
+              }
+            })
+        .doOnSubscribe(subscription -> logger.info("Started price stream for {}", symbol))
+        .doFinally(signalType -> logger.info("Stopped price stream for {}: {}", symbol, signalType))
+        .replay(1)
+        .refCount(1, GRACE_PERIOD);
+  }
 }
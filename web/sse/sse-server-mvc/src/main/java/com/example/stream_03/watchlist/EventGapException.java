@@ -0,0 +1,29 @@
+package com.example.stream_03.watchlist;
+
+/**
+ * Thrown when a client resumes from an event that is no longer retained, so the events it missed
+ * cannot be replayed. The client has to start over from the current state.
+ */
+class EventGapException extends RuntimeException {
+
+  private final EventId lastEventId;
+  private final int oldestRetainedIndex;
+
+  EventGapException(EventId lastEventId, int oldestRetainedIndex) {
+    super(
+        "Events after "
+            + lastEventId
+            + " are no longer retained, oldest retained index is "
+            + oldestRetainedIndex);
+    this.lastEventId = lastEventId;
+    this.oldestRetainedIndex = oldestRetainedIndex;
+  }
+
+  EventId lastEventId() {
+    return lastEventId;
+  }
+
+  int oldestRetainedIndex() {
+    return oldestRetainedIndex;
+  }
+}
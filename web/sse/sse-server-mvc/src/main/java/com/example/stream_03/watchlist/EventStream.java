@@ -1,8 +1,8 @@
 package com.example.stream_03.watchlist;
 
+import com.example.sse.OverflowPolicy;
 import java.util.List;
 import java.util.Optional;
-import java.util.function.Consumer;
 
 interface EventStream {
 
@@ -13,11 +13,42 @@ interface EventStream {
   List<Event> getEventsAfter(EventId after);
 
   /**
-   * Returns all events with index > after.index in the same stream. and register a consumer that
-   * will be called for any new events that are aviable to the event store
+   * Replays all events with index > after.index, then keeps delivering new events as they are
+   * appended, each exactly once and in index order. With an empty {@code after} only new events are
+   * delivered.
+   *
+   * <p>Events are delivered on a thread owned by the subscription, so a slow subscriber never
+   * blocks the appender. Live events wait in a queue of at most {@code bufferSize} events; when it
+   * is full {@code overflowPolicy} decides what gives.
+   *
+   * @throws EventGapException if the events to replay are no longer retained; thrown here, before
+   *     anything is delivered
    */
-  void consumeAfter(Optional<EventId> after, Consumer<EventId> consumer);
+  Subscription consumeAfter(
+      Optional<EventId> after,
+      int bufferSize,
+      OverflowPolicy overflowPolicy,
+      Subscriber subscriber);
 
   /** Returns this stream's StreamId. */
   StreamId getStreamId();
+
+  /** Receives the events of a {@link #consumeAfter} subscription. */
+  interface Subscriber {
+
+    /** Called for each event, one at a time. Throwing ends the subscription via onError. */
+    void onEvent(Event event) throws Exception;
+
+    /**
+     * Called once if the subscription ends on its own: the queue overflowed under {@link
+     * OverflowPolicy#DISCONNECT}, or {@link #onEvent} threw. Not called after close.
+     */
+    void onError(Throwable error);
+  }
+
+  /** Handle to stop a {@link #consumeAfter} subscription; closing twice is harmless. */
+  interface Subscription extends AutoCloseable {
+    @Override
+    void close();
+  }
 }
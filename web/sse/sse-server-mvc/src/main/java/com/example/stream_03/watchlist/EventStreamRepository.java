@@ -1,6 +1,7 @@
 package com.example.stream_03.watchlist;
 
 import java.util.Optional;
+import java.util.function.Consumer;
 
 interface EventStreamRepository {
 
@@ -12,4 +13,7 @@ interface EventStreamRepository {
 
   /** Deletes an event stream by StreamId. */
   void delete(StreamId streamId);
+
+  /** Registers a callback invoked with the id of every stream that is deleted or expires. */
+  void addRemovalListener(Consumer<StreamId> listener);
 }
@@ -0,0 +1,195 @@
+package com.example.stream_03.watchlist;
+
+import com.example.sse.OverflowPolicy;
+import com.example.stream_03.watchlist.EventStream.Subscriber;
+import com.example.stream_03.watchlist.EventStream.Subscription;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The live subscriptions of one event stream; backs {@link EventStream#consumeAfter} for the stream
+ * implementations.
+ *
+ * <p>A subscription is registered for live events <em>before</em> its replay is read, so an event
+ * appended during the handoff is seen by the replay, the live queue, or both, never by neither.
+ * Both are delivered through one cursor that skips any index already delivered, which makes the
+ * switch from replay to live lossless and duplicate free.
+ *
+ * <p>The stream calls {@link #publish(Event)} after each append. That only enqueues, so the
+ * appender never waits on a client; each subscription drains its queue on its own virtual thread.
+ * Appends to a stream are expected to come from one producer at a time, so that events are
+ * published in index order.
+ */
+class EventSubscriptions {
+
+  private static final Logger logger = LoggerFactory.getLogger(EventSubscriptions.class);
+
+  private final EventStream stream;
+  private final Set<QueueSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+  EventSubscriptions(EventStream stream) {
+    this.stream = stream;
+  }
+
+  Subscription subscribe(
+      Optional<EventId> after,
+      int bufferSize,
+      OverflowPolicy overflowPolicy,
+      Subscriber subscriber) {
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+    }
+    int cursor = after.map(EventId::index).orElse(0);
+    QueueSubscription subscription =
+        new QueueSubscription(cursor, bufferSize, overflowPolicy, subscriber);
+    subscriptions.add(subscription);
+    List<Event> replay;
+    try {
+      replay = after.map(stream::getEventsAfter).orElse(List.of());
+    } catch (RuntimeException e) {
+      subscriptions.remove(subscription);
+      throw e;
+    }
+    Thread.ofVirtual()
+        .name("event-stream-" + stream.getStreamId())
+        .start(() -> subscription.run(replay));
+    return subscription;
+  }
+
+  /** Hands a freshly appended event to every live subscription. */
+  void publish(Event event) {
+    for (QueueSubscription subscription : subscriptions) {
+      subscription.offer(event);
+    }
+  }
+
+  /** Number of live subscriptions. */
+  int size() {
+    return subscriptions.size();
+  }
+
+  private final class QueueSubscription implements Subscription {
+
+    private final int bufferSize;
+    private final OverflowPolicy overflowPolicy;
+    private final Subscriber subscriber;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final ArrayDeque<Event> queue;
+    private boolean overflowed;
+    private volatile boolean closed;
+
+    /** Index of the last event handed to the subscriber; only touched by the drain thread. */
+    private int cursor;
+
+    private QueueSubscription(
+        int cursor, int bufferSize, OverflowPolicy overflowPolicy, Subscriber subscriber) {
+      this.cursor = cursor;
+      this.bufferSize = bufferSize;
+      this.overflowPolicy = overflowPolicy;
+      this.subscriber = subscriber;
+      this.queue = new ArrayDeque<>(Math.min(bufferSize, 64));
+    }
+
+    private void offer(Event event) {
+      lock.lock();
+      try {
+        if (closed || overflowed) {
+          return;
+        }
+        if (queue.size() >= bufferSize) {
+          switch (overflowPolicy) {
+            case DROP_OLDEST -> queue.pollFirst();
+            case COALESCE_LATEST -> queue.clear();
+            case DISCONNECT -> {
+              overflowed = true;
+              changed.signal();
+              return;
+            }
+          }
+        }
+        queue.addLast(event);
+        changed.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void run(List<Event> replay) {
+      try {
+        for (Event event : replay) {
+          if (closed) {
+            return;
+          }
+          deliver(event);
+        }
+        while (true) {
+          Event event = take();
+          if (event == null) {
+            return;
+          }
+          deliver(event);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (Exception e) {
+        if (!closed) {
+          logger.debug("Subscription to stream {} ended: {}", stream.getStreamId(), e.toString());
+          closed = true;
+          subscriber.onError(e);
+        }
+      } finally {
+        close();
+      }
+    }
+
+    /** Next queued event, or null once closed; throws once the queue overflowed. */
+    private Event take() throws InterruptedException {
+      lock.lock();
+      try {
+        while (queue.isEmpty() && !closed && !overflowed) {
+          changed.await();
+        }
+        if (closed) {
+          return null;
+        }
+        if (overflowed) {
+          throw new IllegalStateException(
+              "Subscriber fell more than " + bufferSize + " events behind");
+        }
+        return queue.pollFirst();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void deliver(Event event) throws Exception {
+      int index = event.id().index();
+      if (index <= cursor) {
+        return; // already delivered by the replay
+      }
+      cursor = index;
+      subscriber.onEvent(event);
+    }
+
+    @Override
+    public void close() {
+      subscriptions.remove(this);
+      lock.lock();
+      try {
+        closed = true;
+        queue.clear();
+        changed.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
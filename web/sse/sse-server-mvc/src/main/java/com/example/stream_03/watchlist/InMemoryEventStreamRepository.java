@@ -1,28 +1,147 @@
 package com.example.stream_03.watchlist;
 
+import com.example.sse.OverflowPolicy;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 
+/**
+ * Keeps event streams in memory and forgets streams nobody has used for {@code idleTimeout}.
+ *
+ * <p>A stream counts as used whenever an event is appended or read, or it is looked up for a
+ * resume. A watchlist with a connected client appends every second, so only streams whose client is
+ * gone and has not come back within the timeout are expired.
+ */
 class InMemoryEventStreamRepository implements EventStreamRepository {
 
-  private final Map<StreamId, EventStream> streams = new ConcurrentHashMap<>();
+  private final Logger logger = LoggerFactory.getLogger(InMemoryEventStreamRepository.class);
+  private final Map<StreamId, TrackedEventStream> streams = new ConcurrentHashMap<>();
+  private final List<Consumer<StreamId>> removalListeners = new CopyOnWriteArrayList<>();
+  private final Function<StreamId, EventStream> streamFactory;
+  private final long idleTimeoutNanos;
+  private final LongSupplier nanoClock;
+
+  /**
+   * @param streamFactory creates the stream implementation for a new id
+   * @param idleTimeout how long an unused stream is kept; zero or negative keeps streams forever
+   */
+  InMemoryEventStreamRepository(
+      Function<StreamId, EventStream> streamFactory, Duration idleTimeout) {
+    this(streamFactory, idleTimeout, System::nanoTime);
+  }
+
+  InMemoryEventStreamRepository(
+      Function<StreamId, EventStream> streamFactory, Duration idleTimeout, LongSupplier nanoClock) {
+    this.streamFactory = streamFactory;
+    this.idleTimeoutNanos = idleTimeout.toNanos();
+    this.nanoClock = nanoClock;
+  }
 
   @Override
   public EventStream create() {
     StreamId id = StreamId.newStreamId();
-    EventStream stream = new InMemoryEventStream(id);
+    TrackedEventStream stream = new TrackedEventStream(streamFactory.apply(id));
     streams.put(id, stream);
     return stream;
   }
 
   @Override
   public Optional<EventStream> get(StreamId streamId) {
-    return Optional.ofNullable(streams.get(streamId));
+    TrackedEventStream stream = streams.get(streamId);
+    if (stream == null) {
+      return Optional.empty();
+    }
+    stream.touch();
+    return Optional.of(stream);
   }
 
   @Override
   public void delete(StreamId streamId) {
-    streams.remove(streamId);
+    if (streams.remove(streamId) != null) {
+      removalListeners.forEach(listener -> listener.accept(streamId));
+    }
+  }
+
+  @Override
+  public void addRemovalListener(Consumer<StreamId> listener) {
+    removalListeners.add(listener);
+  }
+
+  /** Remove streams that have not been used for longer than the idle timeout. */
+  @Scheduled(
+      initialDelayString = "${watchlist.stream.expiry-interval:PT1M}",
+      fixedDelayString = "${watchlist.stream.expiry-interval:PT1M}")
+  public void expireIdleStreams() {
+    if (idleTimeoutNanos <= 0) {
+      return;
+    }
+    long now = nanoClock.getAsLong();
+    int expired = 0;
+    for (TrackedEventStream stream : streams.values()) {
+      StreamId streamId = stream.getStreamId();
+      if (now - stream.lastUsed > idleTimeoutNanos && streams.remove(streamId, stream)) {
+        removalListeners.forEach(listener -> listener.accept(streamId));
+        expired++;
+      }
+    }
+    if (expired > 0) {
+      logger.info("Expired {} idle event streams, {} remaining", expired, streams.size());
+    }
+  }
+
+  /** Number of streams currently held. */
+  int size() {
+    return streams.size();
+  }
+
+  /** Records when the stream was last used so the repository can expire it. */
+  private final class TrackedEventStream implements EventStream {
+
+    private final EventStream delegate;
+    private volatile long lastUsed = nanoClock.getAsLong();
+
+    private TrackedEventStream(EventStream delegate) {
+      this.delegate = delegate;
+    }
+
+    private void touch() {
+      lastUsed = nanoClock.getAsLong();
+    }
+
+    @Override
+    public Event append(String value) {
+      touch();
+      return delegate.append(value);
+    }
+
+    @Override
+    public List<Event> getEventsAfter(EventId after) {
+      touch();
+      return delegate.getEventsAfter(after);
+    }
+
+    @Override
+    public Subscription consumeAfter(
+        Optional<EventId> after,
+        int bufferSize,
+        OverflowPolicy overflowPolicy,
+        Subscriber subscriber) {
+      touch();
+      return delegate.consumeAfter(after, bufferSize, overflowPolicy, subscriber);
+    }
+
+    @Override
+    public StreamId getStreamId() {
+      return delegate.getStreamId();
+    }
   }
 }
@@ -0,0 +1,212 @@
+package com.example.stream_03.watchlist;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One file of a {@link MappedFileEventStream}: the events from {@link #baseIndex()} onwards, stored
+ * back to back as
+ *
+ * <pre>
+ * [int payloadLength + 1][int crc32c][long timestampMillis][payload bytes (UTF-8)]
+ * </pre>
+ *
+ * <p>The file is preallocated to its full size and memory mapped, so an append is a sequential
+ * write into the page cache with no system call, and reads are absolute gets from the mapping. The
+ * unwritten tail is zeros, which reads as "end of segment"; the length is stored plus one so that
+ * an empty payload is never mistaken for it. The CRC covers the timestamp and the payload, so a
+ * record torn by a crash fails the check on recovery.
+ *
+ * <p>A single writer appends; readers run concurrently. The writer fills a record and its position
+ * before publishing the new {@link #count()} through a volatile write, and readers only look at
+ * records below the count they read.
+ */
+final class LogSegment {
+
+  static final int HEADER_BYTES = 16;
+
+  private static final Logger logger = LoggerFactory.getLogger(LogSegment.class);
+
+  private final Path path;
+  private final int baseIndex;
+  private final MappedByteBuffer buffer;
+
+  /** File position of record {@code baseIndex + i}. */
+  private volatile int[] positions;
+
+  private volatile int count;
+  private volatile long lastTimestamp;
+  private int writePosition;
+  private boolean truncated;
+
+  private LogSegment(Path path, int baseIndex, MappedByteBuffer buffer) {
+    this.path = path;
+    this.baseIndex = baseIndex;
+    this.buffer = buffer;
+    this.positions = new int[64];
+  }
+
+  /** Creates an empty segment file of {@code size} bytes whose first event is {@code baseIndex}. */
+  static LogSegment create(Path directory, int baseIndex, int size) {
+    Path path = directory.resolve(fileName(baseIndex));
+    try (FileChannel channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      return new LogSegment(path, baseIndex, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not create segment " + path, e);
+    }
+  }
+
+  /**
+   * Maps an existing segment file and rebuilds its index by scanning the records. Scanning stops at
+   * the first record that is incomplete or fails its CRC; that record and everything after it is
+   * zeroed so later appends continue from the last good record.
+   */
+  static LogSegment recover(Path path) {
+    int baseIndex = parseBaseIndex(path.getFileName().toString());
+    MappedByteBuffer buffer;
+    try (FileChannel channel =
+        FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not open segment " + path, e);
+    }
+    LogSegment segment = new LogSegment(path, baseIndex, buffer);
+    int position = 0;
+    while (position + HEADER_BYTES <= buffer.capacity()) {
+      int storedLength = buffer.getInt(position);
+      if (storedLength == 0) {
+        break;
+      }
+      int length = storedLength - 1;
+      if (length < 0
+          || position + HEADER_BYTES + length > buffer.capacity()
+          || buffer.getInt(position + 4) != checksum(buffer, position, length)) {
+        logger.warn(
+            "Truncating {} at byte {} after {} good records: torn or corrupt record",
+            path,
+            position,
+            segment.count);
+        segment.truncated = true;
+        break;
+      }
+      segment.addPosition(position, buffer.getLong(position + 8));
+      position += HEADER_BYTES + length;
+    }
+    segment.writePosition = position;
+    if (segment.truncated) {
+      segment.zeroFrom(position);
+    }
+    return segment;
+  }
+
+  /** Whether {@link #recover} had to cut off a bad record. */
+  boolean truncated() {
+    return truncated;
+  }
+
+  /** Appends a record and returns its event index, or -1 if it does not fit into the space left. */
+  int append(byte[] payload, long timestampMillis) {
+    int position = writePosition;
+    if (position + HEADER_BYTES + payload.length > buffer.capacity()) {
+      return -1;
+    }
+    buffer.put(position + HEADER_BYTES, payload);
+    buffer.putLong(position + 8, timestampMillis);
+    buffer.putInt(position + 4, checksum(buffer, position, payload.length));
+    buffer.putInt(position, payload.length + 1);
+    writePosition = position + HEADER_BYTES + payload.length;
+    return addPosition(position, timestampMillis);
+  }
+
+  /** Reads the payload of event {@code index}, which must be in this segment and published. */
+  String read(int index) {
+    int position = positions[index - baseIndex];
+    byte[] payload = new byte[buffer.getInt(position) - 1];
+    buffer.get(position + HEADER_BYTES, payload);
+    return new String(payload, StandardCharsets.UTF_8);
+  }
+
+  /** Writes the mapped pages to the storage device. */
+  void force() {
+    buffer.force();
+  }
+
+  void delete() {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      logger.warn("Could not delete segment {}", path, e);
+    }
+  }
+
+  int baseIndex() {
+    return baseIndex;
+  }
+
+  /** Number of published events; events {@code baseIndex .. baseIndex + count - 1} are readable. */
+  int count() {
+    return count;
+  }
+
+  /** Timestamp of the newest event, or 0 when the segment is empty. */
+  long lastTimestamp() {
+    return lastTimestamp;
+  }
+
+  /** Size of the segment file. */
+  int size() {
+    return buffer.capacity();
+  }
+
+  static boolean isSegmentFile(Path path) {
+    return path.getFileName().toString().endsWith(".log");
+  }
+
+  private static String fileName(int baseIndex) {
+    return String.format("%010d.log", baseIndex);
+  }
+
+  private static int parseBaseIndex(String fileName) {
+    return Integer.parseInt(fileName.substring(0, fileName.length() - ".log".length()));
+  }
+
+  private int addPosition(int position, long timestampMillis) {
+    int n = count;
+    if (n == positions.length) {
+      positions = Arrays.copyOf(positions, n * 2);
+    }
+    positions[n] = position;
+    lastTimestamp = timestampMillis;
+    count = n + 1;
+    return baseIndex + n;
+  }
+
+  private void zeroFrom(int position) {
+    byte[] zeros = new byte[Math.min(8192, buffer.capacity() - position)];
+    for (int p = position; p < buffer.capacity(); p += zeros.length) {
+      buffer.put(p, zeros, 0, Math.min(zeros.length, buffer.capacity() - p));
+    }
+    buffer.force();
+  }
+
+  private static int checksum(MappedByteBuffer buffer, int position, int payloadLength) {
+    CRC32C crc = new CRC32C();
+    crc.update(buffer.slice(position + 8, 8 + payloadLength));
+    return (int) crc.getValue();
+  }
+}
@@ -0,0 +1,254 @@
+package com.example.stream_03.watchlist;
+
+import com.example.sse.OverflowPolicy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Event stream persisted as an append-only log in its own directory, split into memory-mapped
+ * {@link LogSegment} files of a fixed size.
+ *
+ * <p>Event indexes are dense, so finding an event is a binary search over the segments' base
+ * indexes followed by an array lookup of its position; replay then reads straight out of the
+ * mapping. When the active segment is full a new one is started and the full one is forced to disk.
+ * Appends only reach the page cache, which survives a process crash or pod restart; a machine crash
+ * can lose the events of the active segment written since the last roll.
+ *
+ * <p>Retention drops whole segments, oldest first, once the stream is larger than {@code maxBytes}
+ * or a segment's newest event is older than {@code maxAge}. The active segment is never dropped.
+ * Resuming from an event that was dropped throws {@link EventGapException}.
+ */
+class MappedFileEventStream implements EventStream {
+
+  private static final Logger logger = LoggerFactory.getLogger(MappedFileEventStream.class);
+
+  private final StreamId streamId;
+  private final Path directory;
+  private final int segmentSize;
+  private final Clock clock;
+  private final EventSubscriptions subscriptions = new EventSubscriptions(this);
+
+  /** Ordered by base index; replaced, never mutated, under the stream's lock. */
+  private volatile List<LogSegment> segments;
+
+  private volatile long lastUsedMillis;
+
+  private MappedFileEventStream(
+      StreamId streamId, Path directory, int segmentSize, Clock clock, List<LogSegment> segments) {
+    this.streamId = streamId;
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.clock = clock;
+    this.segments = segments;
+    this.lastUsedMillis = clock.millis();
+  }
+
+  /** Creates the directory for a new stream with an empty first segment. */
+  static MappedFileEventStream create(
+      StreamId streamId, Path directory, int segmentSize, Clock clock) {
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not create stream directory " + directory, e);
+    }
+    return new MappedFileEventStream(
+        streamId,
+        directory,
+        segmentSize,
+        clock,
+        List.of(LogSegment.create(directory, 1, segmentSize)));
+  }
+
+  /**
+   * Reopens a stream from its directory. Segments are recovered in order; a corrupt record cuts the
+   * log at that point, and any later segments are deleted so the indexes stay contiguous.
+   */
+  static MappedFileEventStream open(
+      StreamId streamId, Path directory, int segmentSize, Clock clock) {
+    List<Path> files;
+    try (Stream<Path> list = Files.list(directory)) {
+      files = list.filter(LogSegment::isSegmentFile).sorted(Comparator.naturalOrder()).toList();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not list stream directory " + directory, e);
+    }
+
+    List<LogSegment> segments = new ArrayList<>();
+    for (Path file : files) {
+      LogSegment segment = LogSegment.recover(file);
+      LogSegment previous = segments.isEmpty() ? null : segments.getLast();
+      boolean contiguous =
+          previous == null
+              || (!previous.truncated()
+                  && segment.baseIndex() == previous.baseIndex() + previous.count());
+      if (!contiguous) {
+        logger.warn("Deleting segment {} that does not continue the log of {}", file, streamId);
+        segment.delete();
+        continue;
+      }
+      segments.add(segment);
+    }
+    if (segments.isEmpty()) {
+      segments.add(LogSegment.create(directory, 1, segmentSize));
+    }
+    return new MappedFileEventStream(
+        streamId, directory, segmentSize, clock, List.copyOf(segments));
+  }
+
+  @Override
+  public Event append(String value) {
+    byte[] payload = value.getBytes(StandardCharsets.UTF_8);
+    if (payload.length > segmentSize - LogSegment.HEADER_BYTES) {
+      throw new IllegalArgumentException(
+          "Event of " + payload.length + " bytes does not fit into a segment of " + segmentSize);
+    }
+    Event event;
+    synchronized (this) {
+      long now = clock.millis();
+      lastUsedMillis = now;
+      LogSegment active = segments.getLast();
+      int index = active.append(payload, now);
+      if (index < 0) {
+        active.force();
+        active = LogSegment.create(directory, active.baseIndex() + active.count(), segmentSize);
+        segments = withSegment(segments, active);
+        index = active.append(payload, now);
+      }
+      event = new Event(new EventId(streamId, index), value);
+      // published under the lock so subscribers see events in index order
+      subscriptions.publish(event);
+    }
+    return event;
+  }
+
+  /**
+   * Returns the events after {@code after}, oldest first.
+   *
+   * @throws EventGapException if some of those events have been dropped by retention
+   */
+  @Override
+  public List<Event> getEventsAfter(EventId after) {
+    if (!after.streamId().equals(this.streamId)) {
+      throw new IllegalArgumentException("StreamId mismatch");
+    }
+    lastUsedMillis = clock.millis();
+    List<LogSegment> snapshot = segments;
+    int first = after.index() + 1;
+    int oldest = snapshot.getFirst().baseIndex();
+    if (first < oldest && lastIndex(snapshot) >= first) {
+      throw new EventGapException(after, oldest);
+    }
+
+    List<Event> events = new ArrayList<>();
+    for (int s = Math.max(0, findSegment(snapshot, first)); s < snapshot.size(); s++) {
+      LogSegment segment = snapshot.get(s);
+      int end = segment.baseIndex() + segment.count();
+      for (int index = Math.max(first, segment.baseIndex()); index < end; index++) {
+        events.add(new Event(new EventId(streamId, index), segment.read(index)));
+      }
+    }
+    return events;
+  }
+
+  @Override
+  public Subscription consumeAfter(
+      Optional<EventId> after,
+      int bufferSize,
+      OverflowPolicy overflowPolicy,
+      Subscriber subscriber) {
+    lastUsedMillis = clock.millis();
+    return subscriptions.subscribe(after, bufferSize, overflowPolicy, subscriber);
+  }
+
+  @Override
+  public StreamId getStreamId() {
+    return streamId;
+  }
+
+  /** Drops the oldest segments that exceed the size or age limit; zero disables a limit. */
+  synchronized void enforceRetention(long maxBytes, long maxAgeMillis) {
+    List<LogSegment> snapshot = segments;
+    long totalBytes = (long) snapshot.size() * segmentSize;
+    long now = clock.millis();
+    int drop = 0;
+    while (drop < snapshot.size() - 1) {
+      LogSegment oldest = snapshot.get(drop);
+      boolean tooBig = maxBytes > 0 && totalBytes > maxBytes;
+      boolean tooOld = maxAgeMillis > 0 && now - oldest.lastTimestamp() > maxAgeMillis;
+      if (!tooBig && !tooOld) {
+        break;
+      }
+      totalBytes -= segmentSize;
+      drop++;
+    }
+    if (drop == 0) {
+      return;
+    }
+    segments = List.copyOf(snapshot.subList(drop, snapshot.size()));
+    // Readers holding the old snapshot keep the mapping alive; deleting the file is safe.
+    snapshot.subList(0, drop).forEach(LogSegment::delete);
+    logger.debug("Dropped {} segments of stream {}", drop, streamId);
+  }
+
+  /** Forces the active segment to disk. The mappings are released once no longer referenced. */
+  synchronized void close() {
+    segments.getLast().force();
+  }
+
+  /** Wall-clock time of the last append, read or subscription. */
+  long lastUsedMillis() {
+    return lastUsedMillis;
+  }
+
+  /** Timestamp of the newest event, or 0 when the stream is empty. */
+  long lastEventMillis() {
+    List<LogSegment> snapshot = segments;
+    for (int s = snapshot.size() - 1; s >= 0; s--) {
+      if (snapshot.get(s).count() > 0) {
+        return snapshot.get(s).lastTimestamp();
+      }
+    }
+    return 0;
+  }
+
+  int segmentCount() {
+    return segments.size();
+  }
+
+  private static int lastIndex(List<LogSegment> segments) {
+    LogSegment last = segments.getLast();
+    return last.baseIndex() + last.count() - 1;
+  }
+
+  /** Position of the segment holding {@code index}: the last one whose base index is <= index. */
+  private static int findSegment(List<LogSegment> segments, int index) {
+    int low = 0;
+    int high = segments.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (segments.get(mid).baseIndex() <= index) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return high;
+  }
+
+  private static List<LogSegment> withSegment(List<LogSegment> segments, LogSegment segment) {
+    List<LogSegment> copy = new ArrayList<>(segments.size() + 1);
+    copy.addAll(segments);
+    copy.add(segment);
+    return List.copyOf(copy);
+  }
+}
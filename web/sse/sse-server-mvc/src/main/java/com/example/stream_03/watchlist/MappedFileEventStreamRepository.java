@@ -0,0 +1,208 @@
+package com.example.stream_03.watchlist;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Keeps each event stream as a {@link MappedFileEventStream} in {@code directory/<streamId>}, so
+ * streams and their resume history survive a restart.
+ *
+ * <p>Streams are opened lazily on first use after a restart, which is when a torn tail left by a
+ * crash is cut off. Streams nobody has used for {@code idleTimeout} are closed but stay on disk for
+ * a later resume; streams whose newest event is older than {@code maxAge} are deleted.
+ */
+class MappedFileEventStreamRepository implements EventStreamRepository, AutoCloseable {
+
+  private final Logger logger = LoggerFactory.getLogger(MappedFileEventStreamRepository.class);
+  private final Map<StreamId, MappedFileEventStream> open = new ConcurrentHashMap<>();
+  private final List<Consumer<StreamId>> removalListeners = new CopyOnWriteArrayList<>();
+  private final Path directory;
+  private final int segmentSize;
+  private final long maxBytes;
+  private final long maxAgeMillis;
+  private final long idleTimeoutMillis;
+  private final Clock clock;
+
+  /**
+   * @param segmentSize size of each segment file, the largest event must fit into one
+   * @param maxBytes how much log a stream keeps before its oldest segments are dropped
+   * @param maxAge how long events are kept; zero keeps them until the size limit
+   * @param idleTimeout how long an unused stream stays open; zero or negative keeps it open
+   */
+  MappedFileEventStreamRepository(
+      Path directory,
+      int segmentSize,
+      long maxBytes,
+      Duration maxAge,
+      Duration idleTimeout,
+      Clock clock) {
+    if (segmentSize <= LogSegment.HEADER_BYTES) {
+      throw new IllegalArgumentException("segmentSize too small: " + segmentSize);
+    }
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not create event stream directory " + directory, e);
+    }
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.maxBytes = maxBytes;
+    this.maxAgeMillis = maxAge.toMillis();
+    this.idleTimeoutMillis = idleTimeout.toMillis();
+    this.clock = clock;
+  }
+
+  @Override
+  public EventStream create() {
+    StreamId id = StreamId.newStreamId();
+    MappedFileEventStream stream =
+        MappedFileEventStream.create(id, directoryOf(id), segmentSize, clock);
+    open.put(id, stream);
+    return stream;
+  }
+
+  @Override
+  public Optional<EventStream> get(StreamId streamId) {
+    return Optional.ofNullable(
+        open.computeIfAbsent(
+            streamId,
+            id ->
+                Files.isDirectory(directoryOf(id))
+                    ? MappedFileEventStream.open(id, directoryOf(id), segmentSize, clock)
+                    : null));
+  }
+
+  @Override
+  public void delete(StreamId streamId) {
+    MappedFileEventStream stream = open.remove(streamId);
+    if (stream != null) {
+      stream.close();
+    }
+    if (deleteDirectory(directoryOf(streamId))) {
+      removalListeners.forEach(listener -> listener.accept(streamId));
+    }
+  }
+
+  @Override
+  public void addRemovalListener(Consumer<StreamId> listener) {
+    removalListeners.add(listener);
+  }
+
+  /**
+   * Applies retention to the open streams, closes idle ones and deletes streams on disk whose
+   * events have all expired.
+   */
+  @Scheduled(
+      initialDelayString = "${watchlist.stream.expiry-interval:PT1M}",
+      fixedDelayString = "${watchlist.stream.expiry-interval:PT1M}")
+  public void enforceRetention() {
+    long now = clock.millis();
+    for (MappedFileEventStream stream : open.values()) {
+      stream.enforceRetention(maxBytes, maxAgeMillis);
+      if (idleTimeoutMillis > 0
+          && now - stream.lastUsedMillis() > idleTimeoutMillis
+          && open.remove(stream.getStreamId(), stream)) {
+        stream.close();
+      }
+    }
+    if (maxAgeMillis <= 0) {
+      return;
+    }
+    int deleted = 0;
+    for (Path streamDirectory : streamDirectories()) {
+      StreamId streamId = StreamId.fromString(streamDirectory.getFileName().toString());
+      if (!open.containsKey(streamId) && now - lastModifiedMillis(streamDirectory) > maxAgeMillis) {
+        delete(streamId);
+        deleted++;
+      }
+    }
+    if (deleted > 0) {
+      logger.info("Deleted {} expired event streams, {} open", deleted, open.size());
+    }
+  }
+
+  /** Forces every open stream to disk. */
+  @Override
+  public void close() {
+    open.values().forEach(MappedFileEventStream::close);
+    open.clear();
+  }
+
+  /** Number of streams currently open. */
+  int openCount() {
+    return open.size();
+  }
+
+  private Path directoryOf(StreamId streamId) {
+    return directory.resolve(streamId.toString());
+  }
+
+  private List<Path> streamDirectories() {
+    try (Stream<Path> list = Files.list(directory)) {
+      return list.filter(Files::isDirectory)
+          .filter(MappedFileEventStreamRepository::isStreamId)
+          .toList();
+    } catch (IOException e) {
+      logger.warn("Could not list {}", directory, e);
+      return List.of();
+    }
+  }
+
+  private static boolean isStreamId(Path path) {
+    try {
+      StreamId.fromString(path.getFileName().toString());
+      return true;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /** Newest modification time of the stream's segment files. */
+  private static long lastModifiedMillis(Path streamDirectory) {
+    try (Stream<Path> files = Files.list(streamDirectory)) {
+      return files
+          .mapToLong(
+              file -> {
+                try {
+                  return Files.getLastModifiedTime(file).toMillis();
+                } catch (IOException e) {
+                  return 0;
+                }
+              })
+          .max()
+          .orElse(0);
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private boolean deleteDirectory(Path streamDirectory) {
+    if (!Files.isDirectory(streamDirectory)) {
+      return false;
+    }
+    try (Stream<Path> walk = Files.walk(streamDirectory)) {
+      for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+        Files.deleteIfExists(path);
+      }
+      return true;
+    } catch (IOException e) {
+      logger.warn("Could not delete {}", streamDirectory, e);
+      return false;
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package com.example.stream_03.watchlist;
+
+import com.example.sse.OverflowPolicy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Event stream that only retains the resume window: the last {@code capacity} events, and of those
+ * only the ones younger than {@code maxAge}.
+ *
+ * <p>Events live in a fixed array of slots, event {@code index} in slot {@code index & mask}, so
+ * memory per stream is constant no matter how long it runs, and {@link #getEventsAfter(EventId)}
+ * walks exactly the k missed slots with no boxed keys or map lookups.
+ *
+ * <p>The buffer is lock free. Each slot carries the index of the event it holds; a writer claims
+ * the slot by swapping the previous lap's index for its own negated index ("being written"), fills
+ * it, then publishes its index. Readers check that index before and after copying a slot, so they
+ * never return a half-written or overwritten event.
+ *
+ * <p>When a client resumes from an event that has been overwritten or has expired, the stream
+ * throws {@link EventGapException} rather than silently skipping what the client missed.
+ */
+class RingBufferEventStream implements EventStream {
+
+  private final StreamId streamId;
+  private final int mask;
+  private final long maxAgeNanos;
+  private final LongSupplier nanoClock;
+
+  private final AtomicInteger indexCounter = new AtomicInteger();
+  private final AtomicLongArray sequences;
+  private final AtomicLongArray timestamps;
+  private final AtomicReferenceArray<String> values;
+  private final EventSubscriptions subscriptions = new EventSubscriptions(this);
+
+  RingBufferEventStream(StreamId streamId, int capacity, Duration maxAge) {
+    this(streamId, capacity, maxAge, System::nanoTime);
+  }
+
+  RingBufferEventStream(StreamId streamId, int capacity, Duration maxAge, LongSupplier nanoClock) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("capacity must be between 1 and 2^30: " + capacity);
+    }
+    int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.streamId = streamId;
+    this.mask = size - 1;
+    this.maxAgeNanos = maxAge.toNanos();
+    this.nanoClock = nanoClock;
+    this.sequences = new AtomicLongArray(size);
+    this.timestamps = new AtomicLongArray(size);
+    this.values = new AtomicReferenceArray<>(size);
+  }
+
+  @Override
+  public Event append(String value) {
+    int index = indexCounter.incrementAndGet();
+    int slot = index & mask;
+    // slot holds 0 until its first write, then the index of the event published in it
+    long previous = Math.max(0, index - capacity());
+
+    // Wait for the writer of the previous lap, only ever contended with capacity writers in flight
+    while (!sequences.compareAndSet(slot, previous, -index)) {
+      Thread.onSpinWait();
+    }
+    values.set(slot, value);
+    timestamps.set(slot, nanoClock.getAsLong());
+    sequences.set(slot, index);
+
+    Event event = new Event(new EventId(streamId, index), value);
+    subscriptions.publish(event);
+    return event;
+  }
+
+  /**
+   * Returns the events after {@code after}, oldest first.
+   *
+   * @throws EventGapException if some of those events are no longer retained
+   */
+  @Override
+  public List<Event> getEventsAfter(EventId after) {
+    if (!after.streamId().equals(this.streamId)) {
+      throw new IllegalArgumentException("StreamId mismatch");
+    }
+    int last = indexCounter.get();
+    int first = after.index() + 1;
+    if (first > last) {
+      return List.of();
+    }
+    if (last - first >= capacity()) {
+      // the first event has been overwritten; checked before sizing the list from a client's id
+      throw new EventGapException(after, oldestRetainedIndex());
+    }
+
+    long now = nanoClock.getAsLong();
+    List<Event> events = new ArrayList<>(last - first + 1);
+    for (int index = first; index <= last; index++) {
+      int slot = index & mask;
+      long sequence = sequences.get(slot);
+      if (sequence != index && Math.abs(sequence) <= index) {
+        // not published yet (previous lap, or being written); later events would be out of order
+        break;
+      }
+      String value = values.get(slot);
+      long timestamp = timestamps.get(slot);
+      boolean expired = maxAgeNanos > 0 && now - timestamp > maxAgeNanos;
+      if (sequence != index || sequences.get(slot) != index || expired) {
+        // overwritten by a later lap, before or while we read it, or past its retention time
+        throw new EventGapException(after, oldestRetainedIndex());
+      }
+      events.add(new Event(new EventId(streamId, index), value));
+    }
+    return events;
+  }
+
+  @Override
+  public Subscription consumeAfter(
+      Optional<EventId> after,
+      int bufferSize,
+      OverflowPolicy overflowPolicy,
+      Subscriber subscriber) {
+    return subscriptions.subscribe(after, bufferSize, overflowPolicy, subscriber);
+  }
+
+  @Override
+  public StreamId getStreamId() {
+    return streamId;
+  }
+
+  /** Number of events this stream retains at most. */
+  int capacity() {
+    return mask + 1;
+  }
+
+  /** Index of the oldest event still held in the buffer, ignoring age; 0 when empty. */
+  private int oldestRetainedIndex() {
+    int last = indexCounter.get();
+    return last == 0 ? 0 : Math.max(1, last - mask);
+  }
+}
@@ -0,0 +1,50 @@
+package com.example.stream_03.watchlist;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+@Configuration
+class WatchListConfig {
+
+  /**
+   * Watchlist streams keep only their resume window: the last {@code capacity} events no older than
+   * {@code max-age}. Streams unused for {@code idle-timeout} are dropped.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "watchlist.store", havingValue = "memory", matchIfMissing = true)
+  InMemoryEventStreamRepository eventStreamRepository(
+      @Value("${watchlist.replay.capacity:1024}") int capacity,
+      @Value("${watchlist.replay.max-age:PT5M}") Duration maxAge,
+      @Value("${watchlist.stream.idle-timeout:PT30M}") Duration idleTimeout) {
+    return new InMemoryEventStreamRepository(
+        streamId -> new RingBufferEventStream(streamId, capacity, maxAge), idleTimeout);
+  }
+
+  /**
+   * With {@code watchlist.store=file} streams are memory-mapped logs under {@code
+   * watchlist.log.directory} and can be resumed across restarts. Each stream keeps up to {@code
+   * retention.max-size} of events no older than {@code retention.max-age}.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "watchlist.store", havingValue = "file")
+  MappedFileEventStreamRepository fileEventStreamRepository(
+      @Value("${watchlist.log.directory:${java.io.tmpdir}/watchlist-streams}") Path directory,
+      @Value("${watchlist.log.segment-size:1MB}") DataSize segmentSize,
+      @Value("${watchlist.log.retention.max-size:16MB}") DataSize maxSize,
+      @Value("${watchlist.log.retention.max-age:PT24H}") Duration maxAge,
+      @Value("${watchlist.stream.idle-timeout:PT30M}") Duration idleTimeout) {
+    return new MappedFileEventStreamRepository(
+        directory,
+        Math.toIntExact(segmentSize.toBytes()),
+        maxSize.toBytes(),
+        maxAge,
+        idleTimeout,
+        Clock.systemUTC());
+  }
+}
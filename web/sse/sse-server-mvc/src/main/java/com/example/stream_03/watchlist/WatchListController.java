@@ -1,6 +1,8 @@
 package com.example.stream_03.watchlist;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
@@ -25,4 +27,13 @@ class WatchListController {
   public SseEmitter resume(@RequestHeader("Last-Event-ID") String lastEventId) {
     return service.resumeWatchList(lastEventId);
   }
+
+  /**
+   * The events the client missed are no longer retained. 410 makes EventSource give up instead of
+   * reconnecting with the same Last-Event-ID; the client has to create a new watchlist.
+   */
+  @ExceptionHandler(EventGapException.class)
+  public ResponseEntity<Void> eventGap() {
+    return ResponseEntity.status(HttpStatus.GONE).build();
+  }
 }
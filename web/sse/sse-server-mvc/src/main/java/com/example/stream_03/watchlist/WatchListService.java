@@ -1,35 +1,72 @@
 package com.example.stream_03.watchlist;
 
+import com.example.sse.OverflowPolicy;
+import com.example.sse.SseFrameEncoder;
+import com.example.sse.SseHeartbeats;
+import com.example.sse.SseMetrics;
+import com.example.sse.SseSubscriptionRegistry;
 import com.example.stocks.StockPrice;
-import com.example.stocks.StockPriceService;
+import com.example.stocks.StockPriceBroadcaster;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
-import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.TaskScheduler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
 
+/**
+ * Watchlists are fed by one appender per stream: a single broadcaster subscription appends each
+ * price tick to the stream once. Every connected client, new or resumed, is a live-tail
+ * subscription on that stream, so resuming clients replay from their Last-Event-ID and continue
+ * with live events without polling and without appending duplicate events.
+ */
 @Service
 class WatchListService {
 
   private final Logger logger = LoggerFactory.getLogger(WatchListService.class);
-  private final TaskScheduler scheduler;
-  private final StockPriceService stockPriceService;
+  private final StockPriceBroadcaster broadcaster;
+  private final SseSubscriptionRegistry subscriptions;
+  private final SseHeartbeats heartbeats;
+  private final SseMetrics.Endpoint metrics;
   private final EventStreamRepository repository;
-
-  public WatchListService(TaskScheduler scheduler, StockPriceService stockPriceService) {
-    this.scheduler = scheduler;
-    this.stockPriceService = stockPriceService;
-    this.repository = new InMemoryEventStreamRepository();
+  private final ObjectMapper objectMapper;
+  private final int bufferSize;
+  private final OverflowPolicy overflowPolicy;
+  // symbol watched by each stream, so a resumed stream keeps receiving the same prices
+  private final Map<StreamId, String> symbols = new ConcurrentHashMap<>();
+  private final Map<StreamId, Appender> appenders = new ConcurrentHashMap<>();
+
+  public WatchListService(
+      StockPriceBroadcaster broadcaster,
+      SseSubscriptionRegistry subscriptions,
+      SseHeartbeats heartbeats,
+      SseMetrics sseMetrics,
+      EventStreamRepository repository,
+      ObjectMapper objectMapper,
+      @Value("${watchlist.subscriber.buffer-size:256}") int bufferSize,
+      @Value("${watchlist.subscriber.overflow-policy:DISCONNECT}") OverflowPolicy overflowPolicy) {
+    this.broadcaster = broadcaster;
+    this.subscriptions = subscriptions;
+    this.heartbeats = heartbeats;
+    this.metrics = sseMetrics.endpoint("/watchlist");
+    this.repository = repository;
+    this.objectMapper = objectMapper;
+    this.bufferSize = bufferSize;
+    this.overflowPolicy = overflowPolicy;
+    repository.addRemovalListener(symbols::remove);
   }
 
   public SseEmitter createWatchList(String symbol) {
     EventStream stream = repository.create();
+    symbols.put(stream.getStreamId(), symbol);
     logger.info("Created new watchlist stream {} for symbol {}", stream.getStreamId(), symbol);
-    return createEmitterForStream(stream, symbol);
+    return connect(stream, Optional.empty());
   }
 
   public SseEmitter resumeWatchList(String lastEventIdStr) {
@@ -40,29 +77,41 @@ class WatchListService {
         repository
             .get(streamId)
             .orElseThrow(() -> new IllegalArgumentException("Stream not found: " + streamId));
+    // A persistent stream can outlive this process and with it the symbols map
+    symbols.computeIfAbsent(streamId, id -> symbolOf(stream, startingEventId));
 
-    SseEmitter emitter = createEmitter(stream);
-
-    // Send missed events
-    List<Event> missed = stream.getEventsAfter(startingEventId);
-    try {
-      for (Event event : missed) {
-        emitter.send(
-            SseEmitter.event().id(event.id().toString()).name("stock-price").data(event.value()));
-      }
-    } catch (IOException e) {
-      emitter.completeWithError(e);
-      return emitter;
-    }
-
-    // Continue streaming new updates
-    scheduleStockPriceUpdates(emitter, stream);
-    return emitter;
+    return connect(stream, Optional.of(startingEventId));
   }
 
-  private SseEmitter createEmitterForStream(EventStream stream, String symbol) {
+  /**
+   * Replays the events after {@code after} and then tails the stream live. Fails with {@link
+   * EventGapException} before any response is written if the client is too far behind. Under {@link
+   * OverflowPolicy#DISCONNECT} a client that cannot keep up is disconnected and resumes from its
+   * Last-Event-ID.
+   */
+  private SseEmitter connect(EventStream stream, Optional<EventId> after) {
     SseEmitter emitter = createEmitter(stream);
-    scheduleStockPriceUpdates(emitter, stream, symbol);
+    EventStream.Subscription tail =
+        stream.consumeAfter(
+            after,
+            bufferSize,
+            overflowPolicy,
+            new EventStream.Subscriber() {
+              @Override
+              public void onEvent(Event event) throws IOException {
+                sendEvent(emitter, event);
+              }
+
+              @Override
+              public void onError(Throwable error) {
+                emitter.completeWithError(error);
+              }
+            });
+    subscriptions
+        .register("/watchlist", emitter)
+        .bind(heartbeats.watch("/watchlist", emitter))
+        .bind(retainAppender(stream))
+        .bind(tail);
     return emitter;
   }
 
@@ -77,44 +126,67 @@ class WatchListService {
     return emitter;
   }
 
-  private void scheduleStockPriceUpdates(SseEmitter emitter, EventStream stream, String symbol) {
-    scheduler.scheduleAtFixedRate(
-        () -> {
-          try {
-            StockPrice price = stockPriceService.getCurrentPrice(symbol);
-            String value = price.toString(); // Replace with JSON serialization if needed
-
-            Event event = stream.append(value);
-
-            SseEventBuilder builder =
-                SseEmitter.event().id(event.id().toString()).name("stock-price").data(value);
-
-            emitter.send(builder);
-          } catch (Exception e) {
-            logger.error("Error sending stock price update", e);
-            emitter.completeWithError(e);
+  /**
+   * Keeps the stream's appender running until the returned handle is closed. The first client of a
+   * stream starts it, the last one to leave stops it; the stream itself is kept so the client can
+   * resume.
+   */
+  private AutoCloseable retainAppender(EventStream stream) {
+    StreamId streamId = stream.getStreamId();
+    String symbol = symbols.get(streamId);
+    appenders.compute(
+        streamId,
+        (id, appender) -> {
+          if (appender == null) {
+            appender =
+                new Appender(broadcaster.subscribe(symbol, tick -> stream.append(tick.json())));
           }
-        },
-        Duration.ofSeconds(1));
+          appender.clients++;
+          return appender;
+        });
+    return () ->
+        appenders.computeIfPresent(
+            streamId,
+            (id, appender) -> {
+              if (--appender.clients > 0) {
+                return appender;
+              }
+              appender.ticks.close();
+              return null;
+            });
   }
 
-  private void scheduleStockPriceUpdates(SseEmitter emitter, EventStream stream) {
-    scheduler.scheduleAtFixedRate(
-        () -> {
-          try {
-            String value = "update at " + System.currentTimeMillis(); // Placeholder
+  /** Reads the symbol back from the price in the client's last event. */
+  private String symbolOf(EventStream stream, EventId lastEventId) {
+    List<Event> events =
+        stream.getEventsAfter(
+            new EventId(lastEventId.streamId(), Math.max(0, lastEventId.index() - 1)));
+    if (events.isEmpty()) {
+      throw new IllegalArgumentException("Event not found: " + lastEventId);
+    }
+    try {
+      return objectMapper.readValue(events.getFirst().value(), StockPrice.class).symbol();
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Unreadable event " + events.getFirst().id(), e);
+    }
+  }
 
-            Event event = stream.append(value);
+  /** Only the write is timed: replayed events were produced long before this client asked. */
+  private void sendEvent(SseEmitter emitter, Event event) throws IOException {
+    metrics.send(
+        emitter,
+        SseFrameEncoder.encode(
+            event.id().toString(), StockPriceBroadcaster.EVENT_TYPE, event.value()));
+  }
 
-            SseEventBuilder builder =
-                SseEmitter.event().id(event.id().toString()).name("stock-price").data(value);
+  /** The broadcaster subscription appending to one stream; guarded by the appenders map. */
+  private static final class Appender {
 
-            emitter.send(builder);
-          } catch (Exception e) {
-            logger.error("Error sending stock price update", e);
-            emitter.completeWithError(e);
-          }
-        },
-        Duration.ofSeconds(1));
+    private final StockPriceBroadcaster.Subscription ticks;
+    private int clients;
+
+    private Appender(StockPriceBroadcaster.Subscription ticks) {
+      this.ticks = ticks;
+    }
   }
 }
@@ -0,0 +1,122 @@
+package com.example.stream_04.orders;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The resting buy limit orders of one symbol, best limit first.
+ *
+ * <p>A binary max-heap keyed by the limit price in cents, kept in parallel primitive arrays so
+ * adding an order allocates nothing but the occasional array growth and comparing two orders never
+ * unboxes. Orders with the same limit are taken in the order they were added. Not thread-safe.
+ *
+ * @param <T> what is stored for each order
+ */
+final class LimitOrderBook<T> {
+
+  private long[] limits = new long[16];
+  private long[] sequences = new long[16];
+  private Object[] orders = new Object[16];
+  private int size;
+  private long nextSequence;
+
+  /** Adds an order that buys at {@code limitCents} or less. */
+  void add(long limitCents, T order) {
+    if (size == limits.length) {
+      int capacity = size * 2;
+      limits = Arrays.copyOf(limits, capacity);
+      sequences = Arrays.copyOf(sequences, capacity);
+      orders = Arrays.copyOf(orders, capacity);
+    }
+    limits[size] = limitCents;
+    sequences[size] = nextSequence++;
+    orders[size] = order;
+    siftUp(size++);
+  }
+
+  /**
+   * Removes every order whose limit is at or above the price, i.e. that executes at that price.
+   *
+   * @param executed receives the removed orders, best limit first
+   * @return the number of orders removed
+   */
+  int takeCrossing(long priceCents, List<? super T> executed) {
+    int count = 0;
+    while (size > 0 && limits[0] >= priceCents) {
+      executed.add(removeTop());
+      count++;
+    }
+    return count;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  private T removeTop() {
+    T top = (T) orders[0];
+    size--;
+    move(size, 0);
+    orders[size] = null;
+    if (size > 0) {
+      siftDown(0);
+    }
+    return top;
+  }
+
+  private void siftUp(int index) {
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (!before(index, parent)) {
+        return;
+      }
+      swap(index, parent);
+      index = parent;
+    }
+  }
+
+  private void siftDown(int index) {
+    while (true) {
+      int first = index;
+      int left = 2 * index + 1;
+      int right = left + 1;
+      if (left < size && before(left, first)) {
+        first = left;
+      }
+      if (right < size && before(right, first)) {
+        first = right;
+      }
+      if (first == index) {
+        return;
+      }
+      swap(index, first);
+      index = first;
+    }
+  }
+
+  /** Whether the order at {@code a} executes before the one at {@code b}. */
+  private boolean before(int a, int b) {
+    return limits[a] > limits[b] || (limits[a] == limits[b] && sequences[a] < sequences[b]);
+  }
+
+  private void swap(int a, int b) {
+    long limit = limits[a];
+    long sequence = sequences[a];
+    Object order = orders[a];
+    move(b, a);
+    limits[b] = limit;
+    sequences[b] = sequence;
+    orders[b] = order;
+  }
+
+  private void move(int from, int to) {
+    limits[to] = limits[from];
+    sequences[to] = sequences[from];
+    orders[to] = orders[from];
+  }
+}
@@ -0,0 +1,106 @@
+package com.example.stream_04.orders;
+
+import com.example.stocks.StockPriceBroadcaster;
+import com.example.stocks.StockPriceBroadcaster.Tick;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Executes resting limit orders as prices tick, instead of every pending order polling the price.
+ *
+ * <p>Each symbol with open orders has a {@link LimitOrderBook} and a subscription to that symbol's
+ * shared price ticker, see {@link StockPriceBroadcaster}. A tick executes, in one pass, every order
+ * whose limit is at or above the price; nothing happens for the orders that still rest, so the only
+ * events an order produces are its status changes. The subscription is dropped when the book
+ * empties, so symbols without open orders cost nothing.
+ *
+ * <p>Prices are compared in whole cents. A limit is rounded down and a price up, so an order never
+ * executes above its limit.
+ */
+@Component
+class OrderMatchingEngine {
+
+  private final Logger logger = LoggerFactory.getLogger(OrderMatchingEngine.class);
+  private final StockPriceBroadcaster broadcaster;
+  private final Map<String, SymbolBook> books = new ConcurrentHashMap<>();
+
+  OrderMatchingEngine(StockPriceBroadcaster broadcaster) {
+    this.broadcaster = broadcaster;
+  }
+
+  private record RestingOrder(LimitOrderRequest request, Consumer<LimitOrderExecuted> onExecuted) {}
+
+  private static final class SymbolBook {
+    private final LimitOrderBook<RestingOrder> orders = new LimitOrderBook<>();
+    private StockPriceBroadcaster.Subscription subscription;
+  }
+
+  /**
+   * Rests an order until a tick at or below its limit, then calls {@code onExecuted} once, on the
+   * thread that delivers the symbol's ticks to the engine; callers should hand slow work off.
+   */
+  void submit(LimitOrderRequest order, Consumer<LimitOrderExecuted> onExecuted) {
+    long limit =
+        order.maxPrice().movePointRight(2).setScale(0, RoundingMode.FLOOR).longValueExact();
+    books.compute(
+        order.symbol(),
+        (symbol, book) -> {
+          if (book == null) {
+            book = new SymbolBook();
+            book.subscription = broadcaster.subscribe(symbol, this::onTick);
+          }
+          book.orders.add(limit, new RestingOrder(order, onExecuted));
+          return book;
+        });
+  }
+
+  /** Number of orders resting for {@code symbol}. */
+  int openOrders(String symbol) {
+    SymbolBook book = books.get(symbol);
+    return book == null ? 0 : book.orders.size();
+  }
+
+  private void onTick(Tick tick) {
+    String symbol = tick.price().symbol();
+    long price = cents(tick.price().price());
+    List<RestingOrder> crossing = new ArrayList<>();
+    books.computeIfPresent(
+        symbol,
+        (key, book) -> {
+          book.orders.takeCrossing(price, crossing);
+          if (!book.orders.isEmpty()) {
+            return book;
+          }
+          book.subscription.close();
+          return null;
+        });
+    if (crossing.isEmpty()) {
+      return;
+    }
+
+    logger.debug("Executing {} {} orders at {}", crossing.size(), symbol, tick.price().price());
+    Instant now = Instant.now();
+    for (RestingOrder order : crossing) {
+      try {
+        order
+            .onExecuted()
+            .accept(new LimitOrderExecuted(order.request(), tick.price().price(), now));
+      } catch (RuntimeException e) {
+        logger.error("Error reporting execution of {}", order.request(), e);
+      }
+    }
+  }
+
+  private static long cents(BigDecimal price) {
+    return price.movePointRight(2).setScale(0, RoundingMode.CEILING).longValueExact();
+  }
+}
@@ -0,0 +1,17 @@
+package com.example.stream_04.orders;
+
+import com.example.stream_04.orders.sse.server.SseStreamId;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the first event of an order could not be put on its stream, so there is no stream for
+ * the client to follow. The order is not placed. Answered with 503 Service Unavailable.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+class OrderNotPlacedException extends RuntimeException {
+
+  OrderNotPlacedException(SseStreamId sseStreamId) {
+    super("Could not publish to stream %s".formatted(sseStreamId.fullName()));
+  }
+}
@@ -1,5 +1,7 @@
 package com.example.stream_04.orders;
 
+import com.example.sse.SseHeartbeats;
+import com.example.sse.SseSubscriptionRegistry;
 import com.example.stocks.StockPrice;
 import com.example.stocks.StockPriceService;
 import com.example.stream_04.orders.sse.ApiResponse;
@@ -19,21 +21,42 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 @Service
 class OrderService {
 
+  /** Attempts per status change before giving up on a message RabbitMQ did not confirm. */
+  private static final int MAX_PUBLISH_ATTEMPTS = 3;
+
+  private static final Duration RETRY_DELAY = Duration.ofMillis(200);
+
   private final Logger logger = LoggerFactory.getLogger(OrderService.class);
   private final StockPriceService stockPriceService;
   private final RabbitSseStreamFactory rabbitSseStreamFactory;
+  private final SseSubscriptionRegistry subscriptions;
+  private final SseHeartbeats heartbeats;
+  private final OrderMatchingEngine matchingEngine;
   private final Executor executor = Executors.newVirtualThreadPerTaskExecutor();
 
   public OrderService(
-      StockPriceService stockPriceService, RabbitSseStreamFactory rabbitSseStreamFactory) {
+      StockPriceService stockPriceService,
+      RabbitSseStreamFactory rabbitSseStreamFactory,
+      SseSubscriptionRegistry subscriptions,
+      SseHeartbeats heartbeats,
+      OrderMatchingEngine matchingEngine) {
     this.stockPriceService = stockPriceService;
     this.rabbitSseStreamFactory = rabbitSseStreamFactory;
+    this.subscriptions = subscriptions;
+    this.heartbeats = heartbeats;
+    this.matchingEngine = matchingEngine;
   }
 
   public SseEmitter resume(SseEventId lastEventId) {
     RabbitSseBridge rabbitSseBridge =
         this.rabbitSseStreamFactory.createRabbitSseBrdige(lastEventId, "order-executed");
-    return rabbitSseBridge.getSseEmitter();
+    // stop the RabbitMQ consumer when the client goes away before the order executes
+    SseEmitter emitter = rabbitSseBridge.getSseEmitter();
+    subscriptions
+        .register("/orders", emitter)
+        .bind(heartbeats.watch("/orders", emitter))
+        .bind(rabbitSseBridge);
+    return emitter;
   }
 
   private LimitOrderStatus attemptBuy(LimitOrderRequest limitOrderRequest) {
@@ -47,6 +70,16 @@ class OrderService {
     }
   }
 
+  /**
+   * Places an order, returning its result right away when it executes immediately and {@code
+   * allowImmediate} is set, or otherwise a stream to follow it.
+   *
+   * <p>The order's first event is on the stream before the stream is returned; request threads are
+   * virtual, so waiting for RabbitMQ here is cheap. A pending order is only handed to the matching
+   * engine once its {@code order-pending} event has landed.
+   *
+   * @throws OrderNotPlacedException if the first event could not be published
+   */
   public ApiResponse placeOrder(LimitOrderRequest order, boolean allowImmediate) {
 
     // see if we can buy the stock and avoid creating a stream
@@ -59,42 +92,85 @@ class OrderService {
     SseStreamId sseStreamId = SseStreamId.generate(order.symbol().toLowerCase());
     logger.info("Created new rabbitmq stream {} ", sseStreamId.fullName());
 
-    this.executor.execute(
-        () -> {
-          try {
-
-            try (var streamPublisher =
-                this.rabbitSseStreamFactory.createRabbitStreamPublisher(sseStreamId)) {
-
-              var buyAttemptStatus = initialBuyAttemptStatus;
-              while (true) {
-
-                String type =
-                    switch (buyAttemptStatus) {
-                      case LimitOrderExecuted orderExecuted -> "order-executed";
-                      case LimitOrderPending orderPending -> "order-pending";
-                    };
-
-                boolean published = streamPublisher.publish(buyAttemptStatus, type);
-                if (published) {
-                  logger.info("published event: {} ", buyAttemptStatus);
-                } else {
-                  // TODO retry the send to the RabbitMQ
-                }
-
-                if (type.equals("order-executed")) break;
-
-                // Wait before attempting to buy
-                Thread.sleep(Duration.ofMillis(500));
-                buyAttemptStatus = attemptBuy(order);
-              }
-            }
-          } catch (Exception e) {
-            logger.error("Error in price polling loop for stream {}", sseStreamId.fullName(), e);
-          }
-        });
+    switch (initialBuyAttemptStatus) {
+      case LimitOrderExecuted orderExecuted -> {
+        if (!publishExecuted(sseStreamId, 0, orderExecuted)) {
+          throw new OrderNotPlacedException(sseStreamId);
+        }
+      }
+      case LimitOrderPending orderPending -> {
+        if (!publish(sseStreamId, 0, orderPending, "order-pending")) {
+          throw new OrderNotPlacedException(sseStreamId);
+        }
+        // the engine reports executions on its tick delivery thread, publish elsewhere
+        matchingEngine.submit(
+            order,
+            orderExecuted ->
+                executor.execute(() -> publishExecuted(sseStreamId, 1, orderExecuted)));
+      }
+    }
 
     var lastEventId = SseEventId.firstEvent(sseStreamId);
     return new ApiResponse.Stream(lastEventId);
   }
+
+  /**
+   * Publishes the final event of an order's stream, then lets the stream be cleaned up.
+   *
+   * @param lastIndex The index of the last event already on the stream
+   * @return whether the event is on the stream
+   */
+  private boolean publishExecuted(
+      SseStreamId sseStreamId, long lastIndex, LimitOrderExecuted status) {
+    try {
+      return publish(sseStreamId, lastIndex, status, "order-executed");
+    } finally {
+      this.rabbitSseStreamFactory.streamFinished(sseStreamId);
+    }
+  }
+
+  /**
+   * Publishes one status change of an order and waits for RabbitMQ to confirm it, trying up to
+   * {@link #MAX_PUBLISH_ATTEMPTS} times. The producer is only open for one attempt, so resting
+   * orders hold no RabbitMQ resources.
+   *
+   * <p>Every attempt sends the event under the same index from a producer named after the stream,
+   * so when an attempt whose confirm was lost did store the event, RabbitMQ drops the retry instead
+   * of putting the status on the stream twice.
+   *
+   * @param lastIndex The index of the last event already on the stream
+   * @return whether RabbitMQ confirmed the event
+   */
+  private boolean publish(
+      SseStreamId sseStreamId, long lastIndex, LimitOrderStatus status, String type) {
+    for (int attempt = 1; attempt <= MAX_PUBLISH_ATTEMPTS; attempt++) {
+      try (var streamPublisher =
+          this.rabbitSseStreamFactory.createRabbitStreamPublisher(sseStreamId, lastIndex)) {
+        if (streamPublisher.publish(status, type)) {
+          logger.info("published event: {} ", status);
+          return true;
+        }
+        logger.warn(
+            "event not confirmed, attempt {} of {}: {} ", attempt, MAX_PUBLISH_ATTEMPTS, status);
+      } catch (Exception e) {
+        logger.warn(
+            "Error publishing {} to stream {}, attempt {} of {}",
+            type,
+            sseStreamId.fullName(),
+            attempt,
+            MAX_PUBLISH_ATTEMPTS,
+            e);
+      }
+      if (attempt < MAX_PUBLISH_ATTEMPTS) {
+        try {
+          Thread.sleep(RETRY_DELAY.multipliedBy(attempt));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+    logger.error("Giving up on {} for stream {}", type, sseStreamId.fullName());
+    return false;
+  }
 }
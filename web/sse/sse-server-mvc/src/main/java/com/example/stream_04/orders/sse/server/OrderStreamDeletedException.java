@@ -0,0 +1,16 @@
+package com.example.stream_04.orders.sse.server;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a client resumes an order whose events have been deleted after it finished. Answered
+ * with 410 Gone, which also tells an EventSource to stop reconnecting.
+ */
+@ResponseStatus(HttpStatus.GONE)
+public class OrderStreamDeletedException extends RuntimeException {
+
+  OrderStreamDeletedException(SseEventId lastEventId) {
+    super("Events after %s have been deleted".formatted(lastEventId));
+  }
+}
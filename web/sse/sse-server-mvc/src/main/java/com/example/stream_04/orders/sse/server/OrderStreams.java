@@ -0,0 +1,35 @@
+package com.example.stream_04.orders.sse.server;
+
+import com.rabbitmq.stream.ConsumerBuilder;
+import com.rabbitmq.stream.ProducerBuilder;
+
+/**
+ * Where the events of an order live on RabbitMQ, and for how long.
+ *
+ * <p>By default every order gets a stream of its own, see {@link PerOrderStreams}. With {@code
+ * orders.stream.mode=super-stream} the orders share the partitions of one super stream instead, see
+ * {@link SuperStreamOrderStreams}. Either way an order's events are read back in order, and their
+ * message ids are the order's own event indexes.
+ */
+public interface OrderStreams {
+
+  /** Makes sure the stream the order's events are written to exists. Idempotent. */
+  void create(SseStreamId order);
+
+  /** Whether the order's events may still be read, i.e. they have not been deleted. */
+  boolean exists(SseStreamId order);
+
+  /** A producer builder that writes to the order's events; the caller completes and builds it. */
+  ProducerBuilder producer(SseStreamId order);
+
+  /**
+   * A consumer builder that reads only the order's events; the caller sets the offset and handler.
+   */
+  ConsumerBuilder consumer(SseStreamId order);
+
+  /**
+   * Called once the order's final event has been published. The order's events may be deleted after
+   * a grace period that lets disconnected clients come back and read them.
+   */
+  void finished(SseStreamId order);
+}
@@ -0,0 +1,63 @@
+package com.example.stream_04.orders.sse.server;
+
+import com.rabbitmq.stream.Environment;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.util.unit.DataSize;
+
+@Configuration
+class OrderStreamsConfig {
+
+  /**
+   * Order streams keep at most {@code retention.max-size} of events no older than {@code
+   * retention.max-age}, in segments of {@code segment-size}.
+   */
+  @Bean
+  StreamRetention orderStreamRetention(
+      @Value("${orders.stream.retention.max-age:PT1H}") Duration maxAge,
+      @Value("${orders.stream.retention.max-size:1MB}") DataSize maxSize,
+      @Value("${orders.stream.segment-size:256KB}") DataSize segmentSize) {
+    return new StreamRetention(maxAge, maxSize, segmentSize);
+  }
+
+  /**
+   * One stream per order, deleted {@code delete-after} the order's final event. The bean is created
+   * eagerly for its scheduled deletions, so RabbitMQ is only connected to once an order needs it.
+   */
+  @Bean
+  @ConditionalOnProperty(
+      name = "orders.stream.mode",
+      havingValue = "per-order",
+      matchIfMissing = true)
+  PerOrderStreams perOrderStreams(
+      @Lazy Environment environment,
+      StreamRetention retention,
+      @Value("${orders.stream.delete-after:PT5M}") Duration deleteAfter) {
+    return new PerOrderStreams(environment, retention, deleteAfter);
+  }
+
+  /**
+   * With {@code orders.stream.mode=super-stream} orders share the {@code super-stream.partitions}
+   * partitions of the super stream {@code super-stream.name}. A partition holds many orders, so it
+   * has size limits of its own; events still expire after {@code retention.max-age}.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "orders.stream.mode", havingValue = "super-stream")
+  SuperStreamOrderStreams superStreamOrderStreams(
+      Environment environment,
+      StreamRetention retention,
+      @Value("${orders.stream.super-stream.name:orders}") String name,
+      @Value("${orders.stream.super-stream.partitions:3}") int partitions,
+      @Value("${orders.stream.super-stream.max-size:1GB}") DataSize maxSize,
+      @Value("${orders.stream.super-stream.segment-size:16MB}") DataSize segmentSize) {
+    return new SuperStreamOrderStreams(
+        environment,
+        name,
+        partitions,
+        new StreamRetention(retention.maxAge(), maxSize, segmentSize));
+  }
+}
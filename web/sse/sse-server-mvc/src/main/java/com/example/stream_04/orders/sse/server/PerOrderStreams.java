@@ -0,0 +1,99 @@
+package com.example.stream_04.orders.sse.server;
+
+import com.rabbitmq.stream.ConsumerBuilder;
+import com.rabbitmq.stream.Environment;
+import com.rabbitmq.stream.ProducerBuilder;
+import com.rabbitmq.stream.StreamDoesNotExistException;
+import com.rabbitmq.stream.StreamException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Every order gets a RabbitMQ stream of its own, named after its {@link SseStreamId}.
+ *
+ * <p>Streams are created with {@link StreamRetention} limits and deleted {@code delete-after} the
+ * order's final event, long enough for a client that was disconnected at the time to reconnect and
+ * read it. Deletions are only scheduled in memory; a stream whose deletion was lost to a restart
+ * still only holds what its retention limits allow.
+ */
+class PerOrderStreams implements OrderStreams {
+
+  private final Logger logger = LoggerFactory.getLogger(PerOrderStreams.class);
+  private final Environment environment;
+  private final StreamRetention retention;
+  private final Duration deleteAfter;
+  private final LongSupplier nanoClock;
+  private final Map<String, Long> deleteAtNanos = new ConcurrentHashMap<>();
+
+  PerOrderStreams(Environment environment, StreamRetention retention, Duration deleteAfter) {
+    this(environment, retention, deleteAfter, System::nanoTime);
+  }
+
+  PerOrderStreams(
+      Environment environment,
+      StreamRetention retention,
+      Duration deleteAfter,
+      LongSupplier nanoClock) {
+    this.environment = environment;
+    this.retention = retention;
+    this.deleteAfter = deleteAfter;
+    this.nanoClock = nanoClock;
+  }
+
+  @Override
+  public void create(SseStreamId order) {
+    retention.applyTo(environment.streamCreator().stream(order.fullName())).create();
+  }
+
+  @Override
+  public boolean exists(SseStreamId order) {
+    return environment.streamExists(order.fullName());
+  }
+
+  @Override
+  public ProducerBuilder producer(SseStreamId order) {
+    return environment.producerBuilder().stream(order.fullName());
+  }
+
+  @Override
+  public ConsumerBuilder consumer(SseStreamId order) {
+    return environment.consumerBuilder().stream(order.fullName());
+  }
+
+  @Override
+  public void finished(SseStreamId order) {
+    deleteAtNanos.put(order.fullName(), nanoClock.getAsLong() + deleteAfter.toNanos());
+  }
+
+  /** Deletes the streams of orders that finished more than {@code delete-after} ago. */
+  @Scheduled(
+      initialDelayString = "${orders.stream.reaper-interval:PT30S}",
+      fixedDelayString = "${orders.stream.reaper-interval:PT30S}")
+  public void deleteFinishedStreams() {
+    long now = nanoClock.getAsLong();
+    deleteAtNanos.forEach(
+        (name, deleteAt) -> {
+          if (now - deleteAt < 0 || !deleteAtNanos.remove(name, deleteAt)) {
+            return;
+          }
+          try {
+            environment.deleteStream(name);
+            logger.info("Deleted stream {} of finished order", name);
+          } catch (StreamDoesNotExistException e) {
+            logger.debug("Stream {} of finished order was already deleted", name);
+          } catch (StreamException e) {
+            logger.warn("Could not delete stream {} of finished order", name, e);
+          }
+        });
+  }
+
+  /** Number of finished orders whose stream has not been deleted yet. */
+  int pendingDeletions() {
+    return deleteAtNanos.size();
+  }
+}
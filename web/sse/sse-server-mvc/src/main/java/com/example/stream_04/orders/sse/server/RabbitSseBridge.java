@@ -1,6 +1,5 @@
 package com.example.stream_04.orders.sse.server;
 
-import com.rabbitmq.stream.Consumer;
 import com.rabbitmq.stream.Message;
 import com.rabbitmq.stream.MessageHandler;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -13,9 +12,11 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
  * Consumes messages from a RabbitMQ stream and publishes them as Server-Sent Events (SSE).
  *
  * <p>This class implements the MessageHandler interface to process messages from a RabbitMQ stream.
- * It starts reading from the beginning of the stream and emits via SSE any messages that occurred
- * after the specified last event ID. It uses virtual threads to avoid blocking the RabbitMQ stream
- * client thread pool when sending SSE events.
+ * It emits via SSE any messages that occurred after the specified last event ID. The consumer
+ * normally starts right after that event's stream offset; messages at or before the last event
+ * index are still skipped in case it starts earlier, e.g. from the beginning for an id without an
+ * offset. It uses virtual threads to avoid blocking the RabbitMQ stream client thread pool when
+ * sending SSE events.
  *
  * <p>The publisher can be configured to automatically complete the SSE stream when a message with a
  * specific event type (finalEventType) is received.
@@ -27,7 +28,7 @@ public class RabbitSseBridge implements MessageHandler, AutoCloseable {
   private final String finalEventType;
   private final ServerSentEventPublisher serverSentEventPublisher;
   private final AtomicBoolean isClosed = new AtomicBoolean(false);
-  private final AtomicReference<Consumer> consumerRef = new AtomicReference<>();
+  private final AtomicReference<AutoCloseable> sourceRef = new AtomicReference<>();
 
   /**
    * Creates a new RabbitSseBridge with the specified last event ID and final event type.
@@ -69,11 +70,37 @@ public class RabbitSseBridge implements MessageHandler, AutoCloseable {
    */
   @Override
   public void handle(Context context, Message message) {
-    long messageId = message.getProperties().getMessageIdAsLong();
-    if (messageId <= lastSseEventId.index()) return;
+    sourceRef.compareAndSet(null, context.consumer());
+    deliver(message, context.offset());
+  }
+
+  /** Sends a message read at the given stream offset, unless the client has already seen it. */
+  void deliver(Message message, long offset) {
+    if (isNew(message)) {
+      this.serverSentEventPublisher.publish(message, offset);
+      closeIfFinal(message);
+    }
+  }
+
+  /**
+   * Like {@link #deliver(Message, long)} with the message already encoded as an SSE frame. Used by
+   * a {@link SharedStreamConsumer}, which encodes each message once for all the bridges it fans out
+   * to.
+   *
+   * @param arrivedAt {@link System#nanoTime()} when the message arrived, for latency metrics
+   */
+  void deliver(Message message, byte[] frame, long arrivedAt) {
+    if (isNew(message)) {
+      this.serverSentEventPublisher.publish(frame, arrivedAt);
+      closeIfFinal(message);
+    }
+  }
+
+  private boolean isNew(Message message) {
+    return message.getProperties().getMessageIdAsLong() > lastSseEventId.index();
+  }
 
-    consumerRef.compareAndSet(null, context.consumer());
-    this.serverSentEventPublisher.publish(message);
+  private void closeIfFinal(Message message) {
     final String type = (String) message.getApplicationProperties().get("type");
     if (finalEventType.equals(type)) {
       try {
@@ -83,13 +110,35 @@ public class RabbitSseBridge implements MessageHandler, AutoCloseable {
         throw new RuntimeException(e);
       }
     }
-    ;
+  }
+
+  /**
+   * Attaches what feeds this bridge, its own consumer or its membership in a shared one, so {@link
+   * #close()} can stop it even if no message has been delivered yet, e.g. when the client
+   * disconnects before the first event.
+   */
+  void attach(AutoCloseable source) {
+    sourceRef.compareAndSet(null, source);
+    if (isClosed.get()) {
+      try {
+        source.close();
+      } catch (Exception e) {
+        logger.error("Error closing source of sse stream ", e);
+      }
+    }
+  }
+
+  SseEventId lastSseEventId() {
+    return lastSseEventId;
   }
 
   @Override
   public void close() throws Exception {
     if (isClosed.compareAndSet(false, true)) {
-      this.consumerRef.get().close();
+      AutoCloseable source = this.sourceRef.get();
+      if (source != null) {
+        source.close();
+      }
       this.serverSentEventPublisher.close();
     }
   }
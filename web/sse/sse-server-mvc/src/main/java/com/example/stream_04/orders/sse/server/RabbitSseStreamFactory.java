@@ -1,9 +1,14 @@
 package com.example.stream_04.orders.sse.server;
 
+import com.example.sse.SseSendQueues;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.rabbitmq.stream.Environment;
+import com.rabbitmq.stream.Consumer;
+import com.rabbitmq.stream.MessageHandler;
 import com.rabbitmq.stream.OffsetSpecification;
 import com.rabbitmq.stream.Producer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
@@ -15,27 +20,49 @@ import org.springframework.stereotype.Service;
  *
  * <p>It acts as a central point for stream creation and management, ensuring that streams are
  * properly created before publishers or consumers are instantiated.
+ *
+ * <p>All bridges following the same stream share one RabbitMQ consumer, see {@link
+ * SharedStreamConsumer}, so N tabs watching an order cost one broker consumer rather than N.
+ *
+ * <p>Where an order's events are stored, a stream of its own or a partition of a shared super
+ * stream, and when they are deleted is up to the configured {@link OrderStreams}.
  */
 @Service
 public class RabbitSseStreamFactory {
 
-  private final Environment environment;
+  private final OrderStreams orderStreams;
   private final ObjectMapper objectMapper;
+  private final SseSendQueues sendQueues;
+  private final int maxInFlight;
+  private final int tailCacheSize;
+  private final Map<String, SharedStreamConsumer> sharedConsumers = new ConcurrentHashMap<>();
 
   /**
-   * Creates a new RabbitSseStreamFactory with the specified RabbitMQ environment and ObjectMapper.
+   * Creates a new RabbitSseStreamFactory with the specified order streams and ObjectMapper.
    *
-   * @param environment The RabbitMQ stream environment used to create streams, producers, and
-   *     consumers
+   * @param orderStreams Creates and deletes the streams holding the orders' events and the
+   *     producers and consumers reading and writing them
    * @param objectMapper The Jackson ObjectMapper used for JSON serialization/deserialization
+   * @param sendQueues Provides the per-emitter send queues SSE events are written from
+   * @param maxInFlight The number of unconfirmed messages each publisher may have outstanding
+   * @param tailCacheSize The number of recent messages a shared consumer keeps for late joiners
    */
-  public RabbitSseStreamFactory(Environment environment, ObjectMapper objectMapper) {
-    this.environment = environment;
+  public RabbitSseStreamFactory(
+      OrderStreams orderStreams,
+      ObjectMapper objectMapper,
+      SseSendQueues sendQueues,
+      @Value("${orders.stream.max-in-flight:" + RabbitStreamPublisher.DEFAULT_MAX_IN_FLIGHT + "}")
+          int maxInFlight,
+      @Value("${orders.stream.tail-cache-size:256}") int tailCacheSize) {
+    this.orderStreams = orderStreams;
     this.objectMapper = objectMapper;
+    this.sendQueues = sendQueues;
+    this.maxInFlight = maxInFlight;
+    this.tailCacheSize = tailCacheSize;
   }
 
   /**
-   * Creates a RabbitMQ stream with the name derived from the provided SseStreamId.
+   * Creates the RabbitMQ stream holding the events of the provided SseStreamId.
    *
    * <p>If the stream already exists, this operation is idempotent and will not create a duplicate
    * stream.
@@ -43,50 +70,134 @@ public class RabbitSseStreamFactory {
    * @param sseStreamId The identifier for the stream to be created
    */
   private void createStream(SseStreamId sseStreamId) {
-    this.environment.streamCreator().stream(sseStreamId.fullName()).create();
+    this.orderStreams.create(sseStreamId);
   }
 
   /**
    * Creates an SSE publisher that consumes messages from a RabbitMQ stream and publishes them as
    * Server-Sent Events.
    *
-   * <p>This method ensures the stream exists, creates a new RabbitSseBridge, and sets up a RabbitMQ
-   * stream consumer that starts reading from the beginning of the stream and forwards messages to
-   * the publisher.
+   * <p>This method creates a new RabbitSseBridge and joins it to the stream's shared consumer,
+   * which replays what the bridge missed from its tail cache and then forwards live messages. The
+   * stream is only created, idempotently, when nobody is consuming it yet. A bridge that is further
+   * behind than the tail cache gets a RabbitMQ stream consumer of its own.
+   *
+   * <p>Consumers are opened right after the last event's stream offset when the event id carries
+   * one, so resuming costs the same no matter how long the stream is; otherwise they read from the
+   * beginning of the stream.
    *
    * @param lastSseEventId The ID of the last event that was processed, used to filter out
    *     already-processed messages from the stream
    * @param finalEventType The event type that, when received, will trigger the completion of the
    *     SSE stream
    * @return A new RabbitSseBridge that can be used to stream events to clients
+   * @throws OrderStreamDeletedException if the client has seen events of a stream that has been
+   *     deleted since
    */
   public RabbitSseBridge createRabbitSseBrdige(SseEventId lastSseEventId, String finalEventType) {
-    this.createStream(lastSseEventId.createRabbitSseBridge());
+    SseStreamId sseStreamId = lastSseEventId.createRabbitSseBridge();
+    String streamName = sseStreamId.fullName();
     ServerSentEventPublisher serverSentEventPublisher =
-        new ServerSentEventPublisher(lastSseEventId);
+        new ServerSentEventPublisher(lastSseEventId, sendQueues);
     RabbitSseBridge rabbitSseBridge =
         new RabbitSseBridge(lastSseEventId, finalEventType, serverSentEventPublisher);
-    this.environment.consumerBuilder().stream(lastSseEventId.createRabbitSseBridge().fullName())
-        .offset(OffsetSpecification.first())
-        .messageHandler(rabbitSseBridge)
-        .build();
+
+    SharedStreamConsumer shared = sharedConsumers.get(streamName);
+    if (shared == null || shared.isClosed()) {
+      // broker round trips, made outside the map's lock so that a slow broker does not hold up
+      // resumes of other orders; creating a deleted stream again would leave the client waiting
+      // on an empty stream forever
+      if (lastSseEventId.index() > 0 && !orderStreams.exists(sseStreamId)) {
+        throw new OrderStreamDeletedException(lastSseEventId);
+      }
+      this.createStream(sseStreamId);
+      SharedStreamConsumer created =
+          new SharedStreamConsumer(
+              sseStreamId,
+              tailCacheSize,
+              (offset, handler) -> openConsumer(sseStreamId, offset, handler),
+              () ->
+                  sharedConsumers.computeIfPresent(
+                      streamName, (key, c) -> c.isClosed() ? null : c));
+      // another resume may have won the race, join its consumer then
+      shared =
+          sharedConsumers.compute(
+              streamName,
+              (name, existing) -> existing != null && !existing.isClosed() ? existing : created);
+    }
+    if (shared.join(rabbitSseBridge)) {
+      return rabbitSseBridge;
+    }
+
+    // too far behind the shared consumer's tail cache, or it closed meanwhile
+    Consumer consumer =
+        openConsumer(
+            sseStreamId,
+            lastSseEventId.hasOffset()
+                ? OffsetSpecification.offset(lastSseEventId.offset() + 1)
+                : OffsetSpecification.first(),
+            rabbitSseBridge);
+    rabbitSseBridge.attach(consumer);
 
     return rabbitSseBridge;
   }
 
+  private Consumer openConsumer(
+      SseStreamId sseStreamId, OffsetSpecification offset, MessageHandler messageHandler) {
+    return this.orderStreams
+        .consumer(sseStreamId)
+        .offset(offset)
+        .messageHandler(messageHandler)
+        .build();
+  }
+
   /**
    * Creates a publisher for sending messages to a RabbitMQ stream.
    *
    * <p>This method ensures the stream exists, creates a RabbitMQ producer for the stream, and
    * returns a RabbitStreamPublisher that can be used to publish messages to the stream. The
-   * publisher starts with an initial message index of 0.
+   * publisher starts with an initial message index of 0 and may have {@code
+   * orders.stream.max-in-flight} unconfirmed messages outstanding.
    *
    * @param sseStreamId The identifier for the stream to publish to
    * @return A new RabbitStreamPublisher that can be used to publish messages to the stream
    */
   public RabbitStreamPublisher createRabbitStreamPublisher(SseStreamId sseStreamId) {
+    return createRabbitStreamPublisher(sseStreamId, 0);
+  }
+
+  /**
+   * Creates a publisher that continues a stream whose events up to {@code lastIndex} have been
+   * published by an earlier publisher, so the stream can be written in short bursts without holding
+   * a producer open in between.
+   *
+   * <p>The producer is named after the stream and publishes each message under its index, so
+   * RabbitMQ drops a message whose index it already stored from an earlier publisher of the same
+   * stream. Sending an unconfirmed event again from a new publisher is therefore safe.
+   *
+   * @param sseStreamId The identifier for the stream to publish to
+   * @param lastIndex The index of the last event already on the stream, 0 if there is none
+   * @return A new RabbitStreamPublisher whose first message has index {@code lastIndex + 1}
+   */
+  public RabbitStreamPublisher createRabbitStreamPublisher(
+      SseStreamId sseStreamId, long lastIndex) {
     this.createStream(sseStreamId);
-    Producer producer = this.environment.producerBuilder().stream(sseStreamId.fullName()).build();
-    return new RabbitStreamPublisher(sseStreamId, producer, objectMapper, 0);
+    Producer producer =
+        this.orderStreams
+            .producer(sseStreamId)
+            .name(sseStreamId.fullName())
+            .maxUnconfirmedMessages(maxInFlight)
+            .build();
+    return new RabbitStreamPublisher(sseStreamId, producer, objectMapper, lastIndex, maxInFlight);
+  }
+
+  /**
+   * Called once the final event of a stream has been published. The stream's events are deleted
+   * after a grace period, see {@link OrderStreams#finished}.
+   *
+   * @param sseStreamId The identifier of the stream that will receive no more events
+   */
+  public void streamFinished(SseStreamId sseStreamId) {
+    this.orderStreams.finished(sseStreamId);
   }
 }
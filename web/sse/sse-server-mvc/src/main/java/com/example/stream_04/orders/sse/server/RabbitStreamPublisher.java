@@ -5,28 +5,65 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rabbitmq.stream.ConfirmationStatus;
 import com.rabbitmq.stream.Message;
 import com.rabbitmq.stream.Producer;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Publishes events to a RabbitMQ stream and waits for each event to be acknowledged by RabbitMQ.
+ * Publishes events to a RabbitMQ stream and tracks the acknowledgement of each event by RabbitMQ.
  * Order and in-order delivery is very important for this use case.
  *
  * <p>In this example scenario, we are dealing with an upstream service that produces a set of
  * events that we want to capture. We want those events to be published in sequence to the stream
- * and not out of order. This is why we need confirmation for every send operation.
+ * and not out of order, and to know which of them RabbitMQ has stored, so every event is tracked
+ * until its confirmation arrives.
+ *
+ * <p>Confirms are pipelined: {@link #publishAsync} sends without waiting for the broker, so up to
+ * {@code maxInFlight} messages can be unconfirmed at once and throughput is bounded by the broker
+ * rather than by one round trip per event. Once that many are outstanding, further publishes block
+ * until a confirm arrives, which is the backpressure on a producer that outruns RabbitMQ. Sends are
+ * serialized so message ids are assigned and sent in the same order, and a single producer
+ * connection keeps that order on the stream.
+ *
+ * <p>Each message is sent with its message id as publishing id. For a named producer RabbitMQ uses
+ * it to drop messages it has already stored, see {@link
+ * RabbitSseStreamFactory#createRabbitStreamPublisher(SseStreamId, long)}.
  */
 public class RabbitStreamPublisher implements AutoCloseable {
 
+  /** Unconfirmed messages allowed per publisher unless configured otherwise. */
+  public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+  private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+
+  private final Logger logger = LoggerFactory.getLogger(RabbitStreamPublisher.class);
   private final SseStreamId sseStreamId;
   private final Producer producer;
   private final AtomicLong index;
   private final ObjectMapper objectMapper;
+  private final int maxInFlight;
+  private final Semaphore inFlight;
+  private final ReentrantLock sendLock = new ReentrantLock();
+  private volatile boolean closed;
 
   /**
-   * Creates a new RabbitStreamPublisher for publishing events to a specific stream.
+   * An event to publish with {@link #publishAll}.
+   *
+   * @param object The object to be serialized and published
+   * @param type The type identifier for the message, stored in application properties
+   */
+  public record Event(Object object, String type) {}
+
+  /**
+   * Creates a new RabbitStreamPublisher for publishing events to a specific stream that allows
+   * {@link #DEFAULT_MAX_IN_FLIGHT} unconfirmed messages.
    *
    * @param sseStreamId The unique identifier for the stream to publish to
    * @param producer The RabbitMQ stream producer used to send messages
@@ -36,17 +73,40 @@ public class RabbitStreamPublisher implements AutoCloseable {
    */
   public RabbitStreamPublisher(
       SseStreamId sseStreamId, Producer producer, ObjectMapper objectMapper, long startIndex) {
+    this(sseStreamId, producer, objectMapper, startIndex, DEFAULT_MAX_IN_FLIGHT);
+  }
+
+  /**
+   * Creates a new RabbitStreamPublisher for publishing events to a specific stream.
+   *
+   * @param sseStreamId The unique identifier for the stream to publish to
+   * @param producer The RabbitMQ stream producer used to send messages
+   * @param objectMapper The Jackson ObjectMapper used to serialize objects to JSON
+   * @param startIndex The initial index value for message sequencing
+   * @param maxInFlight The number of sent messages that may await confirmation at once
+   * @throws NullPointerException if any of the required parameters are null
+   * @throws IllegalArgumentException if maxInFlight is not positive
+   */
+  public RabbitStreamPublisher(
+      SseStreamId sseStreamId,
+      Producer producer,
+      ObjectMapper objectMapper,
+      long startIndex,
+      int maxInFlight) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+    }
     this.sseStreamId = Objects.requireNonNull(sseStreamId);
     this.producer = Objects.requireNonNull(producer);
     this.objectMapper = Objects.requireNonNull(objectMapper);
     this.index = new AtomicLong(startIndex);
+    this.maxInFlight = maxInFlight;
+    this.inFlight = new Semaphore(maxInFlight);
   }
 
   /**
-   * Publishes an object as a JSON message to the RabbitMQ stream.
-   *
-   * <p>This method serializes the provided object to JSON, creates a message with appropriate
-   * properties, sends it to the stream, and waits for confirmation from RabbitMQ before returning.
+   * Publishes an object as a JSON message to the RabbitMQ stream and waits for confirmation from
+   * RabbitMQ before returning.
    *
    * @param object The object to be serialized and published
    * @param type The type identifier for the message, stored in application properties
@@ -55,16 +115,59 @@ public class RabbitStreamPublisher implements AutoCloseable {
    * @throws RuntimeException if serialization of the object to JSON fails
    */
   public boolean publish(Object object, String type) {
+    return publishAsync(object, type).join().isConfirmed();
+  }
+
+  /**
+   * Publishes an object as a JSON message to the RabbitMQ stream without waiting for confirmation.
+   *
+   * <p>This method serializes the provided object to JSON, creates a message with appropriate
+   * properties and sends it to the stream. It only blocks while {@code maxInFlight} messages are
+   * already awaiting confirmation.
+   *
+   * @param object The object to be serialized and published
+   * @param type The type identifier for the message, stored in application properties
+   * @return A future completed with the confirmation status once RabbitMQ has answered; it
+   *     completes exceptionally if the calling thread is interrupted while waiting to send
+   * @throws RuntimeException if serialization of the object to JSON fails
+   * @throws IllegalStateException if the publisher is closed
+   */
+  public CompletableFuture<ConfirmationStatus> publishAsync(Object object, String type) {
+    checkNotClosed();
+    byte[] body;
     try {
-      var bodyJson = this.objectMapper.writeValueAsString(object);
+      body = this.objectMapper.writeValueAsBytes(object);
+    } catch (JsonProcessingException e) {
+      throw new RuntimeException(e);
+    }
 
+    CompletableFuture<ConfirmationStatus> confirmationStatusFuture = new CompletableFuture<>();
+    try {
+      inFlight.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return CompletableFuture.failedFuture(e);
+    }
+    if (closed) {
+      // woken up by close()
+      inFlight.release();
+      checkNotClosed();
+    }
+
+    sendLock.lock();
+    try {
       // create a Message to put on the stream
+      long id = index.incrementAndGet();
       Message message =
           producer
               .messageBuilder()
-              .addData(bodyJson.getBytes(StandardCharsets.UTF_8))
+              // lets RabbitMQ drop the message if a named producer of the stream already stored it
+              .publishingId(id)
+              .addData(body)
               .properties()
-              .messageId(index.incrementAndGet())
+              .messageId(id)
+              // tells this stream's messages apart where streams share a super stream partition
+              .groupId(sseStreamId.fullName())
               .contentType("application/json")
               .messageBuilder()
               .applicationProperties()
@@ -72,32 +175,78 @@ public class RabbitStreamPublisher implements AutoCloseable {
               .messageBuilder()
               .build();
 
-      // send the message to the stream and wait for confirmation
-      CompletableFuture<ConfirmationStatus> confirmationStatusFuture = new CompletableFuture<>();
+      // send the message to the stream; the permit is returned when RabbitMQ answers
       producer.send(
           message,
           confirmationStatus -> {
+            inFlight.release();
             confirmationStatusFuture.complete(confirmationStatus);
           });
+    } catch (RuntimeException e) {
+      inFlight.release();
+      confirmationStatusFuture.completeExceptionally(e);
+    } finally {
+      sendLock.unlock();
+    }
+    return confirmationStatusFuture;
+  }
 
-      ConfirmationStatus status = confirmationStatusFuture.join();
-      return status.isConfirmed();
+  /**
+   * Publishes a batch of events in order, pipelining the sends, then waits for all of their
+   * confirmations.
+   *
+   * @param events The events to publish, in the order they should appear on the stream
+   * @return {@code true} if every message was confirmed by RabbitMQ, {@code false} otherwise
+   * @throws RuntimeException if serialization of an object to JSON fails; events before it have
+   *     been sent
+   */
+  public boolean publishAll(List<Event> events) {
+    List<CompletableFuture<ConfirmationStatus>> confirms =
+        events.stream().map(event -> publishAsync(event.object(), event.type())).toList();
+    CompletableFuture.allOf(confirms.toArray(CompletableFuture[]::new)).join();
+    return confirms.stream().allMatch(confirm -> confirm.join().isConfirmed());
+  }
 
-    } catch (JsonProcessingException e) {
-      throw new RuntimeException(e);
-    }
+  /** Number of sent messages that RabbitMQ has not confirmed or rejected yet. */
+  public int inFlight() {
+    return maxInFlight - inFlight.availablePermits();
   }
 
   /**
    * Closes the RabbitMQ producer associated with this publisher.
    *
    * <p>This method should be called when the publisher is no longer needed to release resources and
-   * properly clean up the connection to RabbitMQ.
+   * properly clean up the connection to RabbitMQ. It first waits a bounded time for outstanding
+   * confirmations so that messages published asynchronously are not dropped.
+   *
+   * <p>Publishing after close, or while close waits, fails with an {@link IllegalStateException}.
    *
    * @throws Exception if an error occurs while closing the producer
    */
   @Override
   public void close() throws Exception {
-    this.producer.close();
+    closed = true;
+    boolean drained =
+        inFlight.tryAcquire(maxInFlight, CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    if (!drained) {
+      logger.warn(
+          "Closing publisher for {} with {} unconfirmed messages",
+          sseStreamId.fullName(),
+          inFlight());
+    }
+    try {
+      this.producer.close();
+    } finally {
+      if (drained) {
+        // wake up publishers waiting for a permit so that they fail instead of blocking
+        inFlight.release(maxInFlight);
+      }
+    }
+  }
+
+  private void checkNotClosed() {
+    if (closed) {
+      throw new IllegalStateException("Publisher for " + sseStreamId.fullName() + " is closed");
+    }
   }
 }
@@ -1,25 +1,28 @@
 package com.example.stream_04.orders.sse.server;
 
+import com.example.sse.SseFrameEncoder;
+import com.example.sse.SseSendQueues;
+import com.example.sse.SseSendQueues.SendQueue;
 import com.rabbitmq.stream.Message;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
 
 public class ServerSentEventPublisher implements AutoCloseable {
 
   private Logger logger = LoggerFactory.getLogger(RabbitSseBridge.class);
   private final SseEmitter sseEmitter;
   private final SseEventId lastSseEventId;
-  private final Executor executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final SendQueue sendQueue;
 
-  public ServerSentEventPublisher(SseEventId lastEventId) {
+  /**
+   * @param lastEventId The id of the last event the client has seen
+   * @param sendQueues Gives the emitter the ordered, bounded queue its events are written from
+   */
+  public ServerSentEventPublisher(SseEventId lastEventId, SseSendQueues sendQueues) {
     this.sseEmitter = new SseEmitter(0L);
     this.lastSseEventId = lastEventId;
+    this.sendQueue = sendQueues.open("/orders", sseEmitter);
 
     sseEmitter.onCompletion(
         () -> logger.info("Stream {} completed", lastSseEventId.createRabbitSseBridge()));
@@ -40,33 +43,53 @@ public class ServerSentEventPublisher implements AutoCloseable {
     return sseEmitter;
   }
 
-  public void publish(Message message) {
+  /**
+   * Sends a message read from the RabbitMQ stream as an SSE event. The event id carries the
+   * message's stream offset so a client that reconnects can be resumed right after it.
+   *
+   * @param message The message to send
+   * @param offset The offset of the message in the RabbitMQ stream
+   */
+  public void publish(Message message, long offset) {
+    long arrivedAt = System.nanoTime();
+    publish(encode(lastSseEventId.createRabbitSseBridge(), message, offset), arrivedAt);
+  }
+
+  /**
+   * Sends an event frame produced by {@link #encode(SseStreamId, Message, long)}. The frame is
+   * written as is, so one frame can be shared by every client following the same stream.
+   *
+   * @param frame The encoded SSE event
+   * @param arrivedAt The {@link System#nanoTime()} at which the message arrived from RabbitMQ, so
+   *     the event's latency metrics include the fan-out and the time queued for this client
+   */
+  public void publish(byte[] frame, long arrivedAt) {
+    // This method is called back on the RabbitMQ stream consumer's threads, which assume
+    // non-blocking handlers, so the event is only queued here. The queue's single writer sends
+    // events in stream order, several per flush when the client lags behind.
+    this.sendQueue.offer(frame, arrivedAt);
+  }
 
-    final String body = new String(message.getBodyAsBinary(), StandardCharsets.UTF_8);
+  /**
+   * Encodes a message read from a RabbitMQ stream as an SSE frame. The {@code data:} lines are
+   * written around the message body bytes, which are already UTF-8 JSON, so the body is neither
+   * decoded to a String nor re-encoded by Spring's message converters.
+   *
+   * @param streamId The stream the message was read from
+   * @param message The message to encode
+   * @param offset The offset of the message in the RabbitMQ stream
+   * @return The frame, ready to be written to any client of the stream
+   */
+  static byte[] encode(SseStreamId streamId, Message message, long offset) {
     final String type = (String) message.getApplicationProperties().get("type");
     final long index = message.getProperties().getMessageIdAsLong();
-    final String sseEventId = lastSseEventId.withIndex(index).toString();
-
-    final SseEventBuilder eventBuilder = SseEmitter.event().id(sseEventId).name(type).data(body);
-
-    // We execute the sseEnd because this method we are is passed to the
-    // RabbitMQ stream consumer on a callback. RabbitMQ streams assume non-
-    // blocking behaviour this is why we need to create a virtual thread
-    // to send the request on the outbound SSE stream. we don't want to
-    // block the thread pool used by RabbitMQ streams client library
-    this.executor.execute(
-        () -> {
-          try {
-            sseEmitter.send(eventBuilder);
-          } catch (IOException e) {
-            sseEmitter.completeWithError(e);
-            throw new RuntimeException(e);
-          }
-        });
+    final String sseEventId = new SseEventId(streamId, index, offset).toString();
+    return SseFrameEncoder.encode(sseEventId, type, message.getBodyAsBinary());
   }
 
+  /** Completes the SSE stream once the events already published have been sent. */
   @Override
-  public void close() throws Exception {
-    sseEmitter.complete();
+  public void close() {
+    sendQueue.complete();
   }
 }
@@ -0,0 +1,155 @@
+package com.example.stream_04.orders.sse.server;
+
+import com.rabbitmq.stream.Consumer;
+import com.rabbitmq.stream.Message;
+import com.rabbitmq.stream.MessageHandler;
+import com.rabbitmq.stream.OffsetSpecification;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One RabbitMQ stream consumer shared by every {@link RabbitSseBridge} following the same stream,
+ * e.g. several browser tabs watching one order, or a client reconnecting in a loop.
+ *
+ * <p>The consumer is opened for the first bridge that joins, right after that bridge's last event,
+ * and closed when the last bridge leaves. Each message is fanned out in-process to all joined
+ * bridges and kept in a bounded tail cache, so a bridge joining later is replayed its missed
+ * messages from memory instead of opening another consumer. A bridge that is further behind than
+ * the cache reaches cannot join and needs a consumer of its own.
+ *
+ * <p>Every bridge of a stream sends the same event for a message, so each message is encoded as an
+ * SSE frame once, when it arrives, and the cached frame is what is fanned out and replayed.
+ */
+class SharedStreamConsumer implements MessageHandler {
+
+  private record CachedMessage(Message message, byte[] frame) {}
+
+  private final Logger logger = LoggerFactory.getLogger(SharedStreamConsumer.class);
+  private final SseStreamId streamId;
+  private final String streamName;
+  private final int tailCapacity;
+  private final BiFunction<OffsetSpecification, MessageHandler, Consumer> consumerFactory;
+  private final Runnable onClose;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final List<RabbitSseBridge> bridges = new CopyOnWriteArrayList<>();
+  private final ArrayDeque<CachedMessage> tail = new ArrayDeque<>();
+  private Consumer consumer;
+  // read without the lock by the factory, which may hold a map lock while asking
+  private volatile boolean closed;
+
+  /** Every message with a higher index is in the tail cache or still to come from the consumer. */
+  private long coveredAfter;
+
+  /**
+   * @param streamId The RabbitMQ stream to consume
+   * @param tailCapacity How many of the latest messages are kept for bridges joining later
+   * @param consumerFactory Opens a consumer on the stream at the given offset for the handler
+   * @param onClose Called once the last bridge has left and the consumer is closed
+   */
+  SharedStreamConsumer(
+      SseStreamId streamId,
+      int tailCapacity,
+      BiFunction<OffsetSpecification, MessageHandler, Consumer> consumerFactory,
+      Runnable onClose) {
+    this.streamId = streamId;
+    this.streamName = streamId.fullName();
+    this.tailCapacity = tailCapacity;
+    this.consumerFactory = consumerFactory;
+    this.onClose = onClose;
+  }
+
+  /**
+   * Adds a bridge to the fan-out, replaying the cached messages after its last event first.
+   *
+   * @return {@code false} if this consumer has already closed or the bridge is behind the tail
+   *     cache; the bridge is not attached then
+   */
+  boolean join(RabbitSseBridge bridge) {
+    SseEventId lastEventId = bridge.lastSseEventId();
+    lock.lock();
+    try {
+      if (closed) {
+        return false;
+      }
+      if (consumer == null) {
+        coveredAfter = lastEventId.index();
+        consumer =
+            consumerFactory.apply(
+                lastEventId.hasOffset()
+                    ? OffsetSpecification.offset(lastEventId.offset() + 1)
+                    : OffsetSpecification.first(),
+                this);
+        logger.debug("Opened shared consumer on {} after {}", streamName, lastEventId);
+      } else if (lastEventId.index() < coveredAfter) {
+        return false;
+      }
+      // replayed events are timed from now: how long they sat in the tail is not delivery latency
+      long replayedAt = System.nanoTime();
+      for (CachedMessage cached : tail) {
+        bridge.deliver(cached.message(), cached.frame(), replayedAt);
+      }
+      bridges.add(bridge);
+    } finally {
+      lock.unlock();
+    }
+    bridge.attach(() -> leave(bridge));
+    return true;
+  }
+
+  /** Removes a bridge; closes the consumer when it was the last one. */
+  void leave(RabbitSseBridge bridge) {
+    Consumer toClose = null;
+    lock.lock();
+    try {
+      if (!bridges.remove(bridge) || !bridges.isEmpty() || closed) {
+        return;
+      }
+      closed = true;
+      toClose = consumer;
+      tail.clear();
+    } finally {
+      lock.unlock();
+    }
+    onClose.run();
+    if (toClose != null) {
+      toClose.close();
+      logger.debug("Closed shared consumer on {}", streamName);
+    }
+  }
+
+  @Override
+  public void handle(Context context, Message message) {
+    long arrivedAt = System.nanoTime();
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      byte[] frame = ServerSentEventPublisher.encode(streamId, message, context.offset());
+      tail.addLast(new CachedMessage(message, frame));
+      if (tail.size() > tailCapacity) {
+        coveredAfter = tail.removeFirst().message().getProperties().getMessageIdAsLong();
+      }
+      // bridges that see their final event leave while we iterate; the list is copy-on-write
+      for (RabbitSseBridge bridge : bridges) {
+        bridge.deliver(message, frame, arrivedAt);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  boolean isClosed() {
+    return closed;
+  }
+
+  int bridgeCount() {
+    return bridges.size();
+  }
+}
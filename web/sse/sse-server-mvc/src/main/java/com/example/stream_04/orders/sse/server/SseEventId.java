@@ -4,42 +4,67 @@ import java.util.Objects;
 
 /**
  * Represents a unique identifier for a specific event within a stream. It is composed of a
- * SseStreamId and a sequential index.
+ * SseStreamId, a sequential index and, once the event has been read from RabbitMQ, the offset of
+ * its message in the RabbitMQ stream.
  *
- * <p>The canonical string format for an SseEventId is "prefix.uuid_index".
+ * <p>The canonical string format for an SseEventId is "prefix.uuid_index_offset", or
+ * "prefix.uuid_index" when the offset is not known. The offset lets a resuming consumer seek
+ * straight to the next message instead of reading the stream from the start.
  *
  * @param createRabbitSseBridge The identifier of the stream to which this event belongs.
  * @param index The sequential index of the event within its stream, typically starting from 0 or 1.
+ * @param offset The RabbitMQ stream offset of the event's message, or {@link #NO_OFFSET}.
  */
-public record SseEventId(SseStreamId createRabbitSseBridge, long index) {
+public record SseEventId(SseStreamId createRabbitSseBridge, long index, long offset) {
+
+  /** Offset of an event that has not been read from a RabbitMQ stream. */
+  public static final long NO_OFFSET = -1;
 
   private static final char INDEX_DELIMITER = '_';
 
   /**
-   * Canonical constructor for SseEventId. Ensures that the associated SseStreamId is not null and
-   * the index is non-negative.
+   * Canonical constructor for SseEventId. Ensures that the associated SseStreamId is not null, the
+   * index is non-negative and the offset is either non-negative or {@link #NO_OFFSET}.
    */
   public SseEventId {
     Objects.requireNonNull(createRabbitSseBridge, "SseStreamId cannot be null.");
     if (index < 0) {
       throw new IllegalArgumentException("Event index cannot be negative. Was: " + index);
     }
+    if (offset < NO_OFFSET) {
+      throw new IllegalArgumentException("Event offset cannot be negative. Was: " + offset);
+    }
+  }
+
+  /** Creates an SseEventId whose stream offset is not known. */
+  public SseEventId(SseStreamId createRabbitSseBridge, long index) {
+    this(createRabbitSseBridge, index, NO_OFFSET);
   }
 
   public SseEventId withIndex(long index) {
     return new SseEventId(createRabbitSseBridge, index);
   }
 
+  /** Returns the id of the event with the given index, read from the given stream offset. */
+  public SseEventId at(long index, long offset) {
+    return new SseEventId(createRabbitSseBridge, index, offset);
+  }
+
+  /** Whether the RabbitMQ stream offset of this event is known. */
+  public boolean hasOffset() {
+    return offset != NO_OFFSET;
+  }
+
   public static SseEventId firstEvent(SseStreamId sseStreamId) {
     return new SseEventId(sseStreamId, 0);
   }
 
   /**
    * Parses a full event ID string into an SseEventId object. The input string must be in the format
-   * "prefix.uuid_index".
+   * "prefix.uuid_index_offset" or "prefix.uuid_index".
    *
    * @param eventIdString The string representation of the event ID (e.g.,
-   *     "myprefix.a1b2c3d4-e5f6-7890-1234-567890abcdef_123").
+   *     "myprefix.a1b2c3d4-e5f6-7890-1234-567890abcdef_123_4096").
    * @return An SseEventId instance parsed from the string.
    * @throws IllegalArgumentException if the input string is null, empty, malformed, or contains
    *     invalid SseStreamId or index components.
@@ -51,18 +76,23 @@ public record SseEventId(SseStreamId createRabbitSseBridge, long index) {
       throw new IllegalArgumentException("Event ID string cannot be empty.");
     }
 
-    // Find the last occurrence of the delimiter to separate SseStreamId from index
-    int delimiterIndex = eventIdString.lastIndexOf(INDEX_DELIMITER);
+    // The stream name never contains the delimiter, so the first one separates it from the index
+    int delimiterIndex = eventIdString.indexOf(INDEX_DELIMITER);
 
     if (delimiterIndex <= 0 || delimiterIndex == eventIdString.length() - 1) {
       throw new IllegalArgumentException(
-          "Event ID string '%s' must be in the format 'prefix.uuid_index'." // Updated format in
-              // message
+          "Event ID string '%s' must be in the format 'prefix.uuid_index[_offset]'."
               .formatted(eventIdString));
     }
 
     String streamIdPartString = eventIdString.substring(0, delimiterIndex);
     String indexPartString = eventIdString.substring(delimiterIndex + 1);
+    String offsetPartString = null;
+    int offsetDelimiterIndex = indexPartString.indexOf(INDEX_DELIMITER);
+    if (offsetDelimiterIndex >= 0) {
+      offsetPartString = indexPartString.substring(offsetDelimiterIndex + 1);
+      indexPartString = indexPartString.substring(0, offsetDelimiterIndex);
+    }
 
     // Parse the SseStreamId part
     SseStreamId parsedSseStreamId;
@@ -82,18 +112,30 @@ public record SseEventId(SseStreamId createRabbitSseBridge, long index) {
           "Invalid index segment in Event ID string: '%s'".formatted(indexPartString), e);
     }
 
-    return new SseEventId(parsedSseStreamId, parsedIndex);
+    // Parse the optional offset part
+    long parsedOffset = NO_OFFSET;
+    if (offsetPartString != null) {
+      try {
+        parsedOffset = Long.parseLong(offsetPartString);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(
+            "Invalid offset segment in Event ID string: '%s'".formatted(offsetPartString), e);
+      }
+    }
+
+    return new SseEventId(parsedSseStreamId, parsedIndex, parsedOffset);
   }
 
   /**
    * Returns the canonical string representation of this SseEventId in the format
-   * "prefix.uuid_index".
+   * "prefix.uuid_index_offset", or "prefix.uuid_index" when the offset is not known.
    *
    * @return The formatted string representation of the SseEventId.
    */
   @Override
   public String toString() {
     // SseStreamId's toString() or fullName() will provide "prefix.uuid"
-    return createRabbitSseBridge.fullName() + INDEX_DELIMITER + index;
+    String id = createRabbitSseBridge.fullName() + INDEX_DELIMITER + index;
+    return hasOffset() ? id + INDEX_DELIMITER + offset : id;
   }
 }
@@ -0,0 +1,34 @@
+package com.example.stream_04.orders.sse.server;
+
+import com.rabbitmq.stream.ByteCapacity;
+import com.rabbitmq.stream.StreamCreator;
+import java.time.Duration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Retention limits applied when an order stream is created.
+ *
+ * <p>RabbitMQ enforces retention by deleting whole segments, and never the segment being written,
+ * so the segment size must be well below {@code maxSize} for the limits to have any effect; the
+ * broker default of 500 MB would keep every order's events forever.
+ *
+ * @param maxAge Events older than this are discarded
+ * @param maxSize The stream is truncated to roughly this many bytes
+ * @param segmentSize The size of the segment files retention works on
+ */
+record StreamRetention(Duration maxAge, DataSize maxSize, DataSize segmentSize) {
+
+  StreamRetention {
+    if (segmentSize.toBytes() > maxSize.toBytes()) {
+      throw new IllegalArgumentException(
+          "Segment size %s exceeds the maximum stream size %s".formatted(segmentSize, maxSize));
+    }
+  }
+
+  StreamCreator applyTo(StreamCreator creator) {
+    return creator
+        .maxAge(maxAge)
+        .maxLengthBytes(ByteCapacity.B(maxSize.toBytes()))
+        .maxSegmentSizeBytes(ByteCapacity.B(segmentSize.toBytes()));
+  }
+}
@@ -0,0 +1,93 @@
+package com.example.stream_04.orders.sse.server;
+
+import com.rabbitmq.stream.ConsumerBuilder;
+import com.rabbitmq.stream.Environment;
+import com.rabbitmq.stream.Message;
+import com.rabbitmq.stream.ProducerBuilder;
+
+/**
+ * Multiplexes all orders onto the partitions of one RabbitMQ super stream instead of creating a
+ * stream per order, so the broker holds a fixed number of streams however many orders are placed.
+ *
+ * <p>An order always maps to the same partition, derived from its id, so its events stay in order
+ * and a resume offset taken from an event id is an offset in that partition. Each message carries
+ * its order's stream name as AMQP group id, which is also the message's filter value: consumers ask
+ * the broker for the chunks that may contain their order (stream filtering, RabbitMQ 3.13+) and
+ * drop the other orders' messages in those chunks client-side.
+ *
+ * <p>Nothing is deleted per order; the partitions' {@link StreamRetention} limits bound how long
+ * finished orders' events are kept.
+ */
+class SuperStreamOrderStreams implements OrderStreams {
+
+  private final Environment environment;
+  private final String superStream;
+  private final int partitions;
+  private final StreamRetention retention;
+  private volatile boolean created;
+
+  SuperStreamOrderStreams(
+      Environment environment, String superStream, int partitions, StreamRetention retention) {
+    if (partitions < 1) {
+      throw new IllegalArgumentException("partitions must be positive: " + partitions);
+    }
+    this.environment = environment;
+    this.superStream = superStream;
+    this.partitions = partitions;
+    this.retention = retention;
+  }
+
+  /** The partition holding the order's events, named like the broker names them. */
+  String partitionOf(SseStreamId order) {
+    return superStream + "-" + Math.floorMod(order.uuid().hashCode(), partitions);
+  }
+
+  @Override
+  public void create(SseStreamId order) {
+    // the super stream is shared, one creation is enough
+    if (!created) {
+      createSuperStream();
+    }
+  }
+
+  private synchronized void createSuperStream() {
+    if (!created) {
+      retention
+          .applyTo(environment.streamCreator().name(superStream))
+          .superStream()
+          .partitions(partitions)
+          .creator()
+          .create();
+      created = true;
+    }
+  }
+
+  @Override
+  public boolean exists(SseStreamId order) {
+    return environment.streamExists(partitionOf(order));
+  }
+
+  @Override
+  public ProducerBuilder producer(SseStreamId order) {
+    String name = order.fullName();
+    return environment.producerBuilder().stream(partitionOf(order)).filterValue(message -> name);
+  }
+
+  @Override
+  public ConsumerBuilder consumer(SseStreamId order) {
+    String name = order.fullName();
+    return environment.consumerBuilder().stream(partitionOf(order))
+        .filter()
+        .values(name)
+        .postFilter(message -> belongsTo(message, name))
+        .builder();
+  }
+
+  @Override
+  public void finished(SseStreamId order) {}
+
+  static boolean belongsTo(Message message, String orderStreamName) {
+    return message.getProperties() != null
+        && orderStreamName.equals(message.getProperties().getGroupId());
+  }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.sse;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.example.sse.RawSseEvent;
+import com.example.sse.SseFrameEncoder;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class SseFrameEncoderTest {
+
+  @Test
+  void encodesIdEventAndData() {
+    byte[] frame = SseFrameEncoder.encode("7", "stock-price", "{\"price\":101.5}");
+
+    assertThat(new String(frame, StandardCharsets.UTF_8))
+        .isEqualTo("id: 7\nevent: stock-price\ndata: {\"price\":101.5}\n\n");
+  }
+
+  @Test
+  void omitsNullFields() {
+    assertThat(new String(SseFrameEncoder.encode(null, null, "x"), StandardCharsets.UTF_8))
+        .isEqualTo("data: x\n\n");
+  }
+
+  @Test
+  void splitsMultiLineDataAndRoundTrips() {
+    String data = "line 1\nline 2\r\nline 3\rline 4\n";
+    byte[] frame = SseFrameEncoder.encode("1", "e", data);
+    String text = new String(frame, StandardCharsets.UTF_8);
+
+    assertThat(text)
+        .isEqualTo(
+            "id: 1\nevent: e\ndata: line 1\ndata: line 2\ndata: line 3\ndata: line 4\ndata: \n\n");
+    // RawSseEvent holds the block without the dispatching blank line
+    assertThat(new RawSseEvent(text.substring(0, text.length() - 1)).parseFields().data())
+        .isEqualTo("line 1\nline 2\nline 3\nline 4\n");
+  }
+
+  @Test
+  void encodesUtf8BytesLikeTheEquivalentString() {
+    for (String data :
+        new String[] {"", "{\"name\":\"Zürich € 😀\"}", "a\nb\r\nc\rd\n", "\r\n\r", "x\r"}) {
+      byte[] fromBytes = SseFrameEncoder.encode("1", "e", data.getBytes(StandardCharsets.UTF_8));
+
+      assertThat(fromBytes).as(data).isEqualTo(SseFrameEncoder.encode("1", "e", data));
+    }
+    assertThat(SseFrameEncoder.encode(null, null, "x".getBytes(StandardCharsets.UTF_8)))
+        .isEqualTo("data: x\n\n".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void rejectsLineBreaksInIdAndEvent() {
+    assertThatThrownBy(() -> SseFrameEncoder.encode("1\n2", null, "x"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> SseFrameEncoder.encode(null, "a\rb", "x"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,138 @@
+package com.example.demo.sse;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.example.sse.SseHeartbeats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+class SseHeartbeatsTest {
+
+  private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+  private long nanos;
+  // ticks of 1s and an interval of 3s: a wheel of 3 slots; heartbeats are sent inline
+  private final SseHeartbeats heartbeats =
+      new SseHeartbeats(
+          meters,
+          Duration.ofSeconds(3),
+          Duration.ofSeconds(1),
+          Map.of("/short", Duration.ofSeconds(5)),
+          () -> nanos,
+          Runnable::run);
+
+  /** Records what is written and fails writes once the peer is gone. */
+  private static class RecordingEmitter extends ResponseBodyEmitter {
+    final List<String> written = new CopyOnWriteArrayList<>();
+    volatile boolean gone;
+    Throwable completedWith;
+    boolean completed;
+
+    @Override
+    public void send(Set<DataWithMediaType> items) throws IOException {
+      if (gone) {
+        throw new IOException("Connection reset by peer");
+      }
+      items.forEach(
+          item -> written.add(new String((byte[]) item.getData(), StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public void complete() {
+      completed = true;
+    }
+
+    @Override
+    public void completeWithError(Throwable ex) {
+      completedWith = ex;
+    }
+  }
+
+  private void advanceSeconds(int seconds) {
+    for (int i = 0; i < seconds; i++) {
+      nanos += Duration.ofSeconds(1).toNanos();
+      heartbeats.advance();
+    }
+  }
+
+  @Test
+  void sendsACommentOncePerIntervalToEachStream() {
+    RecordingEmitter first = new RecordingEmitter();
+    RecordingEmitter second = new RecordingEmitter();
+    heartbeats.watch("/test", first);
+    advanceSeconds(1);
+    heartbeats.watch("/test", second);
+
+    advanceSeconds(6);
+
+    assertThat(first.written).containsExactly(":\n\n", ":\n\n");
+    assertThat(second.written).containsExactly(":\n\n", ":\n\n");
+    assertThat(meters.get("sse.heartbeat.connections").tag("endpoint", "/test").gauge().value())
+        .isEqualTo(2);
+  }
+
+  @Test
+  void aLateTickCatchesUpWithoutSkippingOrRepeatingStreams() {
+    RecordingEmitter emitter = new RecordingEmitter();
+    heartbeats.watch("/test", emitter);
+
+    nanos += Duration.ofSeconds(20).toNanos();
+    heartbeats.advance();
+
+    assertThat(emitter.written).hasSize(1);
+  }
+
+  @Test
+  void reapsAStreamWhoseHeartbeatFails() {
+    RecordingEmitter emitter = new RecordingEmitter();
+    heartbeats.watch("/test", emitter);
+    emitter.gone = true;
+
+    advanceSeconds(3);
+
+    assertThat(emitter.completedWith).hasMessage("Connection reset by peer");
+    assertThat(heartbeats.watchedCount()).isZero();
+    assertThat(
+            meters
+                .get("sse.heartbeat.reaped")
+                .tags("endpoint", "/test", "reason", "dead-peer")
+                .counter()
+                .count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void completesStreamsThatOutliveTheirEndpointsMaxLifetime() {
+    RecordingEmitter limited = new RecordingEmitter();
+    RecordingEmitter unlimited = new RecordingEmitter();
+    heartbeats.watch("/short", limited);
+    heartbeats.watch("/test", unlimited);
+
+    advanceSeconds(6);
+
+    assertThat(limited.completed).isTrue();
+    assertThat(unlimited.completed).isFalse();
+    assertThat(heartbeats.watchedCount()).isEqualTo(1);
+    assertThat(meters.get("sse.heartbeat.reaped").tag("reason", "max-lifetime").counter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void closingTheWatchStopsHeartbeats() throws Exception {
+    RecordingEmitter emitter = new RecordingEmitter();
+    AutoCloseable watch = heartbeats.watch("/test", emitter);
+
+    watch.close();
+    advanceSeconds(6);
+
+    assertThat(emitter.written).isEmpty();
+    assertThat(meters.get("sse.heartbeat.connections").gauge().value()).isZero();
+  }
+}
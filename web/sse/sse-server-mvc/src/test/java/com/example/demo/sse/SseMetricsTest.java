@@ -0,0 +1,82 @@
+package com.example.demo.sse;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.example.sse.SseMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+class SseMetricsTest {
+
+  private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+  private final SseMetrics.Endpoint metrics = new SseMetrics(meters).endpoint("/test");
+
+  private Timer stage(String stage) {
+    return meters.get("sse.event.latency").tag("endpoint", "/test").tag("stage", stage).timer();
+  }
+
+  @Test
+  void recordsEachStageOfAnEventsWay() {
+    long producedAt = 1_000_000;
+    metrics.queued(producedAt, producedAt + 2_000_000);
+    metrics.dequeued(producedAt + 2_000_000, producedAt + 5_000_000);
+    metrics.written(3, 120, producedAt + 5_000_000, producedAt + 6_000_000);
+    metrics.delivered(producedAt, producedAt + 6_000_000);
+
+    assertThat(stage("enqueue").totalTime(TimeUnit.MILLISECONDS)).isEqualTo(2);
+    assertThat(stage("queue").totalTime(TimeUnit.MILLISECONDS)).isEqualTo(3);
+    assertThat(stage("write").totalTime(TimeUnit.MILLISECONDS)).isEqualTo(1);
+    assertThat(stage("total").totalTime(TimeUnit.MILLISECONDS)).isEqualTo(6);
+    assertThat(meters.get("sse.events.sent").counter().count()).isEqualTo(3);
+    assertThat(meters.get("sse.bytes.written").counter().count()).isEqualTo(120);
+    assertThat(meters.get("sse.send.bytes").summary().totalAmount()).isEqualTo(120);
+  }
+
+  @Test
+  void sendTimesTheWriteAndTheWholeWay() throws IOException {
+    ResponseBodyEmitter emitter =
+        new ResponseBodyEmitter() {
+          @Override
+          public void send(Set<DataWithMediaType> items) {}
+        };
+    byte[] frame = "data: x\n\n".getBytes(StandardCharsets.UTF_8);
+
+    metrics.send(emitter, frame, System.nanoTime());
+
+    assertThat(stage("write").count()).isOne();
+    assertThat(stage("total").count()).isOne();
+    assertThat(stage("enqueue").count()).isZero();
+    assertThat(meters.get("sse.bytes.written").counter().count()).isEqualTo(frame.length);
+  }
+
+  @Test
+  void failedSendIsCountedAndRethrown() {
+    ResponseBodyEmitter emitter =
+        new ResponseBodyEmitter() {
+          @Override
+          public void send(Set<DataWithMediaType> items) throws IOException {
+            throw new IOException("Broken pipe");
+          }
+        };
+
+    assertThatIOException()
+        .isThrownBy(() -> metrics.send(emitter, new byte[] {'x'}, System.nanoTime()));
+    assertThat(meters.get("sse.send.failures").counter().count()).isOne();
+    assertThat(meters.get("sse.events.sent").counter().count()).isZero();
+    assertThat(stage("total").count()).isZero();
+  }
+
+  @Test
+  void endpointsShareMetersThroughTheRegistry() {
+    new SseMetrics(meters).endpoint("/test").failed();
+    metrics.failed();
+
+    assertThat(meters.get("sse.send.failures").counter().count()).isEqualTo(2);
+  }
+}
@@ -0,0 +1,150 @@
+package com.example.demo.sse;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.example.sse.OverflowPolicy;
+import com.example.sse.SseMetrics;
+import com.example.sse.SseSendQueues;
+import com.example.sse.SseSendQueues.SendQueue;
+import com.example.sse.SseWriters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+class SseSendQueuesTest {
+
+  private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+  private final SseWriters writers = new SseWriters(2, meters);
+
+  /** Records each send as one batch; blocks sends until released to act as a slow client. */
+  private static class RecordingEmitter extends ResponseBodyEmitter {
+    final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    final CountDownLatch released = new CountDownLatch(1);
+    volatile boolean completed;
+
+    @Override
+    public void send(Set<DataWithMediaType> items) throws IOException {
+      try {
+        released.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      batches.add(
+          items.stream()
+              .map(item -> new String((byte[]) item.getData(), StandardCharsets.UTF_8))
+              .toList());
+    }
+
+    @Override
+    public void complete() {
+      completed = true;
+    }
+
+    List<String> events() {
+      return batches.stream().flatMap(List::stream).toList();
+    }
+  }
+
+  private SendQueue open(OverflowPolicy policy, RecordingEmitter emitter) {
+    return new SseSendQueues(meters, new SseMetrics(meters), writers, 3, 64, policy)
+        .open("/test", emitter);
+  }
+
+  private static void offer(SendQueue queue, String... events) {
+    for (String event : events) {
+      queue.offer(event.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  void sendsInOrderAndBatchesWhatQueuedWhileTheClientWasBusy() {
+    RecordingEmitter emitter = new RecordingEmitter();
+    SendQueue queue = open(OverflowPolicy.DISCONNECT, emitter);
+
+    offer(queue, "1");
+    // "1" is being written while 2 and 3 queue up behind it
+    Awaitility.await().until(() -> queue.depth() == 0);
+    offer(queue, "2", "3");
+    assertThat(meters.get("sse.send.queue.depth").tag("endpoint", "/test").gauge().value())
+        .isEqualTo(2);
+    emitter.released.countDown();
+
+    Awaitility.await().until(() -> emitter.events().size() == 3);
+    assertThat(emitter.batches).containsExactly(List.of("1"), List.of("2", "3"));
+    assertThat(meters.get("sse.send.batch.size").summary().max()).isEqualTo(2);
+    assertThat(meters.get("sse.events.sent").counter().count()).isEqualTo(3);
+    assertThat(meters.get("sse.event.latency").tag("stage", "queue").timer().count()).isEqualTo(3);
+    assertThat(emitter.completed).isFalse();
+  }
+
+  @Test
+  void dropOldestKeepsTheNewestEvents() {
+    RecordingEmitter emitter = new RecordingEmitter();
+    SendQueue queue = open(OverflowPolicy.DROP_OLDEST, emitter);
+
+    offer(queue, "1");
+    Awaitility.await().until(() -> queue.depth() == 0);
+    offer(queue, "2", "3", "4", "5");
+    emitter.released.countDown();
+
+    Awaitility.await().until(() -> emitter.events().size() == 4);
+    assertThat(emitter.events()).containsExactly("1", "3", "4", "5");
+    assertThat(meters.get("sse.send.queue.dropped").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  void coalesceLatestReplacesTheBacklogWithTheLatestEvent() {
+    RecordingEmitter emitter = new RecordingEmitter();
+    SendQueue queue = open(OverflowPolicy.COALESCE_LATEST, emitter);
+
+    offer(queue, "1");
+    Awaitility.await().until(() -> queue.depth() == 0);
+    offer(queue, "2", "3", "4", "5");
+    emitter.released.countDown();
+
+    Awaitility.await().until(() -> emitter.events().size() == 2);
+    assertThat(emitter.events()).containsExactly("1", "5");
+    assertThat(meters.get("sse.send.queue.dropped").counter().count()).isEqualTo(3);
+  }
+
+  @Test
+  void disconnectCompletesTheEmitterOfAClientThatFellBehind() {
+    RecordingEmitter emitter = new RecordingEmitter();
+    SendQueue queue = open(OverflowPolicy.DISCONNECT, emitter);
+
+    offer(queue, "1");
+    Awaitility.await().until(() -> queue.depth() == 0);
+    offer(queue, "2", "3", "4");
+
+    assertThat(queue.offer("5".getBytes(StandardCharsets.UTF_8))).isFalse();
+    assertThat(emitter.completed).isTrue();
+    assertThat(queue.depth()).isZero();
+    assertThat(meters.get("sse.send.queue.disconnects").counter().count()).isEqualTo(1);
+    assertThat(meters.get("sse.send.queue.depth").gauge().value()).isZero();
+    emitter.released.countDown();
+  }
+
+  @Test
+  void completeSendsWhatIsQueuedBeforeCompletingTheEmitter() {
+    RecordingEmitter emitter = new RecordingEmitter();
+    SendQueue queue = open(OverflowPolicy.DISCONNECT, emitter);
+
+    offer(queue, "1", "2");
+    queue.complete();
+    assertThat(queue.offer("3".getBytes(StandardCharsets.UTF_8))).isFalse();
+    assertThat(emitter.completed).isFalse();
+    emitter.released.countDown();
+
+    Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> emitter.completed);
+    assertThat(emitter.events()).containsExactly("1", "2");
+  }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.sse;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.example.sse.SseSubscriptionRegistry;
+import com.example.sse.SseSubscriptionRegistry.Registration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+class SseSubscriptionRegistryTest {
+
+  private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+  private final SseSubscriptionRegistry registry = new SseSubscriptionRegistry(meters);
+
+  @Test
+  void releaseClosesResourcesInReverseOrder() {
+    List<String> closed = new ArrayList<>();
+    Registration registration = registry.register("/test", new SseEmitter());
+
+    registration.bind(() -> closed.add("first")).bind(() -> closed.add("second"));
+    assertThat(gauge("sse.subscriptions.active")).isEqualTo(1);
+
+    registration.release();
+    registration.release();
+
+    assertThat(closed).containsExactly("second", "first");
+    assertThat(registry.activeCount()).isZero();
+    assertThat(gauge("sse.subscriptions.active")).isZero();
+  }
+
+  @Test
+  void bindingAfterReleaseClosesImmediately() {
+    List<String> closed = new ArrayList<>();
+    Registration registration = registry.register("/test", new SseEmitter());
+    registration.release();
+
+    registration.bind(() -> closed.add("late"));
+
+    assertThat(closed).containsExactly("late");
+  }
+
+  private double gauge(String name) {
+    return meters.get(name).tag("endpoint", "/test").gauge().value();
+  }
+}
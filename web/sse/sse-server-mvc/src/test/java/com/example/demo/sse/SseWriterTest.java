@@ -0,0 +1,138 @@
+package com.example.demo.sse;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.example.sse.SseFrameEncoder;
+import com.example.sse.SseWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+class SseWriterTest {
+
+  /** Counts flushes and can be made to fail like a socket whose peer went away. */
+  private static class ClientStream extends ByteArrayOutputStream {
+    int flushes;
+    volatile boolean gone;
+
+    @Override
+    public void flush() throws IOException {
+      if (gone) {
+        throw new IOException("Broken pipe");
+      }
+      flushes++;
+    }
+
+    String text() {
+      return toString(StandardCharsets.UTF_8);
+    }
+  }
+
+  private final ClientStream client = new ClientStream();
+  private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+  SseWriterTest() {
+    scheduler.initialize();
+  }
+
+  @AfterEach
+  void stopScheduler() {
+    scheduler.shutdown();
+  }
+
+  @Test
+  void framesEventsLikeTheFrameEncoderAndFlushesEach() throws IOException {
+    SseWriter writer = SseWriter.builder(client).build();
+    String multiLine = "{\"city\":\"Zürich €😀\"}\nline 2\r\nline 3";
+
+    writer.event("1", "quote", multiLine).event("2", null, "x".getBytes(StandardCharsets.UTF_8));
+    writer.data("only data");
+
+    assertThat(client.text())
+        .isEqualTo(
+            new String(SseFrameEncoder.encode("1", "quote", multiLine), StandardCharsets.UTF_8)
+                + "id: 2\ndata: x\n\n"
+                + "data: only data\n\n");
+    assertThat(client.flushes).isEqualTo(3);
+  }
+
+  @Test
+  void reusesItsBufferForLargeEvents() throws IOException {
+    SseWriter writer = SseWriter.builder(client).build();
+    String large = "é".repeat(100_000);
+
+    writer.event("1", "big", large).event("2", "small", "x");
+
+    assertThat(client.text())
+        .isEqualTo(
+            "id: 1\nevent: big\ndata: " + large + "\n\n" + "id: 2\nevent: small\ndata: x\n\n");
+  }
+
+  @Test
+  void coalescesFlushesUntilEnoughBytesArePending() throws IOException {
+    SseWriter writer = SseWriter.builder(client).coalesce(Duration.ofHours(1), 64).build();
+
+    writer.data("a").data("b");
+    assertThat(client.size()).isZero();
+
+    writer.data("x".repeat(64));
+    assertThat(client.text()).startsWith("data: a\n\ndata: b\n\ndata: xxx");
+    assertThat(client.flushes).isEqualTo(1);
+
+    writer.data("c");
+    writer.close();
+    assertThat(client.text()).endsWith("data: c\n\n");
+    assertThat(client.flushes).isEqualTo(2);
+  }
+
+  @Test
+  void schedulerFlushesHeldBackEventsAndSendsHeartbeats() throws IOException {
+    SseWriter writer =
+        SseWriter.builder(client)
+            .coalesce(Duration.ofMillis(50), 1024)
+            .heartbeat(Duration.ofMillis(200))
+            .scheduler(scheduler)
+            .build();
+
+    writer.data("a");
+    Awaitility.await()
+        .atMost(Duration.ofSeconds(2))
+        .until(() -> client.text().equals("data: a\n\n"));
+    Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> client.text().contains(":\n\n"));
+    writer.close();
+  }
+
+  @Test
+  void aFailedHeartbeatDisconnectsAnIdleClient() {
+    AtomicInteger disconnects = new AtomicInteger();
+    SseWriter writer =
+        SseWriter.builder(client)
+            .heartbeat(Duration.ofMillis(50))
+            .scheduler(scheduler)
+            .onDisconnect(disconnects::incrementAndGet)
+            .build();
+    client.gone = true;
+
+    Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> !writer.isOpen());
+    assertThat(disconnects).hasValue(1);
+    assertThat(writer.failure()).hasMessage("Broken pipe");
+    assertThatThrownBy(() -> writer.data("late"))
+        .isInstanceOf(IOException.class)
+        .hasRootCauseMessage("Broken pipe");
+  }
+
+  @Test
+  void rejectsLineBreaksInIdAndType() {
+    SseWriter writer = SseWriter.builder(client).build();
+
+    assertThatThrownBy(() -> writer.event("1\n", null, "x"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(client.size()).isZero();
+  }
+}
@@ -0,0 +1,193 @@
+package com.example.servlet.async;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.example.sse.OverflowPolicy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.WriteListener;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class NonBlockingSseConnectionTest {
+
+  /** A socket whose readiness the test controls; a write makes it unready if it says so. */
+  private static class SocketStream extends ServletOutputStream {
+    final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    boolean ready = true;
+    boolean fillsOnWrite;
+    int flushes;
+    WriteListener listener;
+
+    @Override
+    public boolean isReady() {
+      return ready;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      this.listener = writeListener;
+    }
+
+    @Override
+    public void write(int b) {
+      written.write(b);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+      written.write(b);
+      ready = !fillsOnWrite;
+    }
+
+    @Override
+    public void flush() {
+      flushes++;
+    }
+
+    void drain() throws IOException {
+      ready = true;
+      listener.onWritePossible();
+    }
+
+    String text() {
+      return written.toString(StandardCharsets.UTF_8);
+    }
+  }
+
+  private final SocketStream socket = new SocketStream();
+  private final AsyncContext asyncContext = mock(AsyncContext.class);
+
+  @BeforeEach
+  void setUp() throws IOException {
+    ServletResponse response = mock(ServletResponse.class);
+    when(response.getOutputStream()).thenReturn(socket);
+    when(asyncContext.getResponse()).thenReturn(response);
+  }
+
+  private NonBlockingSseConnection open(OverflowPolicy policy) throws IOException {
+    return NonBlockingSseConnection.open(asyncContext, 10, policy);
+  }
+
+  private static byte[] frame(String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void writesWhileReadyAndQueuesUntilTheSocketDrains() throws IOException {
+    NonBlockingSseConnection connection = open(OverflowPolicy.DISCONNECT);
+    socket.fillsOnWrite = true;
+
+    connection.send(frame("a"));
+    connection.send(frame("bb"));
+    connection.send(frame("ccc"));
+    assertThat(socket.text()).isEqualTo("a");
+    assertThat(connection.pendingBytes()).isEqualTo(5);
+
+    socket.fillsOnWrite = false;
+    socket.drain();
+
+    assertThat(socket.text()).isEqualTo("abbccc");
+    assertThat(connection.pendingBytes()).isZero();
+    assertThat(socket.flushes).isEqualTo(1);
+  }
+
+  @Test
+  void dropOldestKeepsTheQueueUnderTheHighWaterMark() throws IOException {
+    NonBlockingSseConnection connection = open(OverflowPolicy.DROP_OLDEST);
+    socket.ready = false;
+
+    connection.send(frame("1111"));
+    connection.send(frame("2222"));
+    connection.send(frame("3333"));
+    socket.drain();
+
+    assertThat(socket.text()).isEqualTo("22223333");
+    assertThat(connection.isOpen()).isTrue();
+  }
+
+  @Test
+  void coalesceLatestKeepsOnlyTheNewestFrame() throws IOException {
+    NonBlockingSseConnection connection = open(OverflowPolicy.COALESCE_LATEST);
+    socket.ready = false;
+
+    connection.send(frame("1111"));
+    connection.send(frame("2222"));
+    connection.send(frame("3333"));
+    socket.drain();
+
+    assertThat(socket.text()).isEqualTo("3333");
+  }
+
+  @Test
+  void disconnectEndsTheStreamOfAClientThatFellBehind() throws IOException {
+    NonBlockingSseConnection connection = open(OverflowPolicy.DISCONNECT);
+    AtomicInteger closed = new AtomicInteger();
+    connection.onClose(closed::incrementAndGet);
+    socket.ready = false;
+
+    assertThat(connection.send(frame("1111"))).isTrue();
+    assertThat(connection.send(frame("2222"))).isTrue();
+    assertThat(connection.send(frame("3333"))).isFalse();
+
+    assertThat(connection.isOpen()).isFalse();
+    assertThat(connection.pendingBytes()).isZero();
+    assertThat(closed).hasValue(1);
+    verify(asyncContext).complete();
+  }
+
+  @Test
+  void completeWaitsForTheQueueToBeWritten() throws IOException {
+    NonBlockingSseConnection connection = open(OverflowPolicy.DISCONNECT);
+    socket.ready = false;
+    connection.send(frame("last"));
+
+    connection.complete();
+    assertThat(connection.send(frame("late"))).isFalse();
+    verify(asyncContext, never()).complete();
+
+    socket.drain();
+
+    assertThat(socket.text()).isEqualTo("last");
+    verify(asyncContext).complete();
+  }
+
+  @Test
+  void timeoutWritesTheTimeoutFrameAndRunsCloseCallbacks() throws IOException {
+    NonBlockingSseConnection connection = open(OverflowPolicy.DISCONNECT);
+    AtomicInteger closed = new AtomicInteger();
+    connection.onClose(closed::incrementAndGet);
+    connection.onTimeout(frame("timeout"));
+    ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+    verify(asyncContext).addListener(listener.capture());
+
+    listener.getValue().onTimeout(new AsyncEvent(asyncContext));
+    listener.getValue().onComplete(new AsyncEvent(asyncContext));
+
+    assertThat(socket.text()).isEqualTo("timeout");
+    assertThat(closed).hasValue(1);
+    verify(asyncContext).complete();
+    // a late callback runs right away
+    connection.onClose(closed::incrementAndGet);
+    assertThat(closed).hasValue(2);
+  }
+
+  @Test
+  void aWriteFailureEndsTheStream() throws IOException {
+    NonBlockingSseConnection connection = open(OverflowPolicy.DISCONNECT);
+
+    socket.listener.onError(new IOException("Broken pipe"));
+
+    assertThat(connection.send(frame("x"))).isFalse();
+    verify(asyncContext).complete();
+  }
+}
@@ -0,0 +1,99 @@
+package com.example.stocks;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.TaskScheduler;
+
+class StockPriceBroadcasterTest {
+
+  private final TaskScheduler scheduler = mock(TaskScheduler.class);
+  private final StockPriceBroadcaster broadcaster =
+      new StockPriceBroadcaster(
+          scheduler,
+          new StockPriceService(),
+          JsonMapper.builder().findAndAddModules().build(),
+          task -> Thread.ofVirtual().start(task),
+          task -> Thread.ofVirtual().start(task));
+
+  StockPriceBroadcasterTest() {
+    doReturn(mock(ScheduledFuture.class))
+        .when(scheduler)
+        .scheduleAtFixedRate(any(Runnable.class), any(Duration.class));
+  }
+
+  private Runnable ticker() {
+    ArgumentCaptor<Runnable> ticker = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduler).scheduleAtFixedRate(ticker.capture(), any(Duration.class));
+    return ticker.getValue();
+  }
+
+  private static void await(List<Long> received, int size) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (received.size() < size && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+  }
+
+  @Test
+  void aBlockedSubscriberHoldsUpNeitherTheTickerNorOtherSubscribers() throws Exception {
+    CountDownLatch unblock = new CountDownLatch(1);
+    List<Long> slow = new CopyOnWriteArrayList<>();
+    List<Long> fast = new CopyOnWriteArrayList<>();
+    broadcaster.subscribe(
+        "AAPL",
+        tick -> {
+          slow.add(tick.sequence());
+          unblock.await();
+        });
+    broadcaster.subscribe("AAPL", tick -> fast.add(tick.sequence()));
+    Runnable ticker = ticker();
+
+    ticker.run();
+    await(slow, 1);
+    await(fast, 1);
+    ticker.run();
+    await(fast, 2);
+    ticker.run();
+    await(fast, 3);
+
+    assertThat(fast).containsExactly(1L, 2L, 3L);
+    assertThat(slow).containsExactly(1L);
+
+    // once unblocked, the slow subscriber skips to the latest tick
+    unblock.countDown();
+    await(slow, 2);
+    Thread.sleep(50);
+    assertThat(slow).containsExactly(1L, 3L);
+  }
+
+  @Test
+  void aFailingListenerIsUnsubscribedAndTheLastOneStopsTheTicker() throws Exception {
+    CountDownLatch failed = new CountDownLatch(1);
+    broadcaster.subscribe(
+        "AAPL",
+        tick -> {
+          failed.countDown();
+          throw new IllegalStateException("client went away");
+        });
+    Runnable ticker = ticker();
+
+    ticker.run();
+    assertThat(failed.await(5, TimeUnit.SECONDS)).isTrue();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (broadcaster.subscriberCount("AAPL") > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertThat(broadcaster.subscriberCount("AAPL")).isZero();
+  }
+}
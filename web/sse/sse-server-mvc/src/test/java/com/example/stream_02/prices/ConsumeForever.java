@@ -1,9 +1,9 @@
 package com.example.stream_02.prices;
 
+import com.example.sse.SseDataBufferDecoder;
 import java.time.Duration;
-import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.MediaType;
-import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.scheduler.Schedulers;
 import reactor.util.retry.Retry;
@@ -18,7 +18,9 @@ public class ConsumeForever {
         .uri("/mvc/stream/infinite")
         .accept(MediaType.TEXT_EVENT_STREAM)
         .retrieve()
-        .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+        // decoded straight from the body's buffers, see SseDataBufferDecoder
+        .bodyToFlux(DataBuffer.class)
+        .transform(body -> SseDataBufferDecoder.decode(body, 64 * 1024))
         .retryWhen(
             Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
         .doOnNext(
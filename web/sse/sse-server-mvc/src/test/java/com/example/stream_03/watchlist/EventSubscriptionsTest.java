@@ -0,0 +1,168 @@
+package com.example.stream_03.watchlist;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.example.sse.OverflowPolicy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class EventSubscriptionsTest {
+
+  private final StreamId streamId = StreamId.newStreamId();
+  private final RingBufferEventStream stream =
+      new RingBufferEventStream(streamId, 16, Duration.ZERO);
+
+  /** Records events; can hold up delivery until released to simulate a slow client. */
+  private static final class RecordingSubscriber implements EventStream.Subscriber {
+
+    private final List<Integer> indexes = new CopyOnWriteArrayList<>();
+    private final CompletableFuture<Throwable> error = new CompletableFuture<>();
+    private final CountDownLatch firstEvent = new CountDownLatch(1);
+    private final CountDownLatch release;
+
+    private RecordingSubscriber(boolean blocked) {
+      this.release = new CountDownLatch(blocked ? 1 : 0);
+    }
+
+    @Override
+    public void onEvent(Event event) throws Exception {
+      firstEvent.countDown();
+      release.await();
+      indexes.add(event.id().index());
+    }
+
+    @Override
+    public void onError(Throwable e) {
+      error.complete(e);
+    }
+
+    private void awaitIndexes(Integer... expected) throws InterruptedException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (indexes.size() < expected.length && System.nanoTime() < deadline) {
+        Thread.sleep(5);
+      }
+      assertThat(indexes).containsExactly(expected);
+    }
+  }
+
+  private EventStream.Subscription subscribe(
+      Optional<EventId> after, int bufferSize, OverflowPolicy policy, RecordingSubscriber s) {
+    return stream.consumeAfter(after, bufferSize, policy, s);
+  }
+
+  @Test
+  void replaysThenTailsLiveEventsExactlyOnce() throws Exception {
+    stream.append("v1");
+    stream.append("v2");
+    stream.append("v3");
+    RecordingSubscriber subscriber = new RecordingSubscriber(false);
+
+    try (var subscription =
+        subscribe(
+            Optional.of(new EventId(streamId, 1)), 8, OverflowPolicy.DISCONNECT, subscriber)) {
+      stream.append("v4");
+      stream.append("v5");
+      subscriber.awaitIndexes(2, 3, 4, 5);
+    }
+    assertThat(subscriber.error).isNotDone();
+  }
+
+  @Test
+  void withoutAnEventIdOnlyNewEventsAreDelivered() throws Exception {
+    stream.append("old");
+    RecordingSubscriber subscriber = new RecordingSubscriber(false);
+
+    try (var subscription = subscribe(Optional.empty(), 8, OverflowPolicy.DISCONNECT, subscriber)) {
+      stream.append("new");
+      subscriber.awaitIndexes(2);
+    }
+  }
+
+  @Test
+  void gapIsThrownToTheCallerBeforeAnythingIsDelivered() {
+    for (int i = 0; i < 20; i++) {
+      stream.append("v" + i);
+    }
+    RecordingSubscriber subscriber = new RecordingSubscriber(false);
+
+    assertThatThrownBy(
+            () ->
+                subscribe(
+                    Optional.of(new EventId(streamId, 1)),
+                    8,
+                    OverflowPolicy.DISCONNECT,
+                    subscriber))
+        .isInstanceOf(EventGapException.class);
+    stream.append("after");
+    assertThat(subscriber.indexes).isEmpty();
+  }
+
+  @Test
+  void disconnectPolicyEndsASubscriberThatFallsBehind() throws Exception {
+    RecordingSubscriber subscriber = new RecordingSubscriber(true);
+    subscribe(Optional.empty(), 2, OverflowPolicy.DISCONNECT, subscriber);
+
+    stream.append("v1");
+    subscriber.firstEvent.await();
+    for (int i = 2; i <= 4; i++) {
+      stream.append("v" + i);
+    }
+    subscriber.release.countDown();
+
+    assertThat(subscriber.error.get(5, TimeUnit.SECONDS)).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void dropOldestKeepsTheNewestBufferedEvents() throws Exception {
+    RecordingSubscriber subscriber = new RecordingSubscriber(true);
+    try (var subscription =
+        subscribe(Optional.empty(), 3, OverflowPolicy.DROP_OLDEST, subscriber)) {
+      stream.append("v1");
+      subscriber.firstEvent.await();
+      for (int i = 2; i <= 5; i++) {
+        stream.append("v" + i);
+      }
+      subscriber.release.countDown();
+
+      subscriber.awaitIndexes(1, 3, 4, 5);
+    }
+  }
+
+  @Test
+  void coalesceLatestKeepsOnlyTheNewestEvent() throws Exception {
+    RecordingSubscriber subscriber = new RecordingSubscriber(true);
+    try (var subscription =
+        subscribe(Optional.empty(), 3, OverflowPolicy.COALESCE_LATEST, subscriber)) {
+      stream.append("v1");
+      subscriber.firstEvent.await();
+      for (int i = 2; i <= 5; i++) {
+        stream.append("v" + i);
+      }
+      subscriber.release.countDown();
+
+      subscriber.awaitIndexes(1, 5);
+    }
+  }
+
+  @Test
+  void closeStopsDelivery() throws Exception {
+    RecordingSubscriber subscriber = new RecordingSubscriber(false);
+    var subscription = subscribe(Optional.empty(), 8, OverflowPolicy.DISCONNECT, subscriber);
+    stream.append("v1");
+    subscriber.awaitIndexes(1);
+
+    subscription.close();
+    subscription.close();
+    stream.append("v2");
+    Thread.sleep(50);
+
+    assertThat(subscriber.indexes).containsExactly(1);
+    assertThat(subscriber.error).isNotDone();
+  }
+}
@@ -0,0 +1,49 @@
+package com.example.stream_03.watchlist;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class InMemoryEventStreamRepositoryTest {
+
+  private final AtomicLong clock = new AtomicLong();
+  private final InMemoryEventStreamRepository repository =
+      new InMemoryEventStreamRepository(
+          id -> new RingBufferEventStream(id, 16, Duration.ZERO),
+          Duration.ofMinutes(1),
+          clock::get);
+
+  @Test
+  void expiresOnlyIdleStreamsAndNotifiesListeners() {
+    List<StreamId> removed = new ArrayList<>();
+    repository.addRemovalListener(removed::add);
+    EventStream idle = repository.create();
+    EventStream active = repository.create();
+
+    clock.addAndGet(Duration.ofSeconds(50).toNanos());
+    active.append("tick");
+    clock.addAndGet(Duration.ofSeconds(20).toNanos());
+    repository.expireIdleStreams();
+
+    assertThat(repository.get(idle.getStreamId())).isEmpty();
+    assertThat(repository.get(active.getStreamId())).isPresent();
+    assertThat(removed).containsExactly(idle.getStreamId());
+    assertThat(repository.size()).isEqualTo(1);
+  }
+
+  @Test
+  void lookupKeepsAStreamAlive() {
+    EventStream stream = repository.create();
+
+    clock.addAndGet(Duration.ofSeconds(50).toNanos());
+    repository.get(stream.getStreamId());
+    clock.addAndGet(Duration.ofSeconds(50).toNanos());
+    repository.expireIdleStreams();
+
+    assertThat(repository.get(stream.getStreamId())).isPresent();
+  }
+}
@@ -0,0 +1,163 @@
+package com.example.stream_03.watchlist;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedFileEventStreamTest {
+
+  // room for three 10 byte events per segment
+  private static final int SEGMENT_SIZE = 3 * (LogSegment.HEADER_BYTES + 10);
+
+  @TempDir Path directory;
+
+  private final StreamId streamId = StreamId.newStreamId();
+  private final Clock clock = Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+  private MappedFileEventStream create() {
+    return MappedFileEventStream.create(streamId, directory, SEGMENT_SIZE, clock);
+  }
+
+  private MappedFileEventStream reopen() {
+    return MappedFileEventStream.open(streamId, directory, SEGMENT_SIZE, clock);
+  }
+
+  private static String value(int i) {
+    return String.format("event-%04d", i);
+  }
+
+  @Test
+  void readsAcrossSegmentRolls() {
+    MappedFileEventStream stream = create();
+    for (int i = 1; i <= 10; i++) {
+      assertThat(stream.append(value(i)).id()).isEqualTo(new EventId(streamId, i));
+    }
+
+    assertThat(stream.segmentCount()).isEqualTo(4);
+    assertThat(stream.getEventsAfter(new EventId(streamId, 4)))
+        .extracting(Event::value)
+        .containsExactly(value(5), value(6), value(7), value(8), value(9), value(10));
+    assertThat(stream.getEventsAfter(new EventId(streamId, 0))).hasSize(10);
+    assertThat(stream.getEventsAfter(new EventId(streamId, 10))).isEmpty();
+  }
+
+  @Test
+  void reopenedStreamKeepsItsEventsAndNumbering() {
+    MappedFileEventStream stream = create();
+    for (int i = 1; i <= 7; i++) {
+      stream.append(value(i));
+    }
+    stream.close();
+
+    MappedFileEventStream reopened = reopen();
+    assertThat(reopened.getEventsAfter(new EventId(streamId, 0)))
+        .extracting(Event::value)
+        .containsExactly(value(1), value(2), value(3), value(4), value(5), value(6), value(7));
+    assertThat(reopened.append(value(8)).id().index()).isEqualTo(8);
+  }
+
+  @Test
+  void emptyEventsSurviveRecovery() {
+    MappedFileEventStream stream = create();
+    stream.append(value(1));
+    stream.append("");
+    stream.append(value(3));
+    stream.close();
+
+    MappedFileEventStream reopened = reopen();
+    assertThat(reopened.getEventsAfter(new EventId(streamId, 0)))
+        .extracting(Event::value)
+        .containsExactly(value(1), "", value(3));
+    assertThat(reopened.append(value(4)).id().index()).isEqualTo(4);
+    assertThat(reopen().getEventsAfter(new EventId(streamId, 2)))
+        .extracting(Event::value)
+        .containsExactly(value(3), value(4));
+  }
+
+  @Test
+  void recoveryCutsTheLogAtATornRecord() throws IOException {
+    MappedFileEventStream stream = create();
+    for (int i = 1; i <= 5; i++) {
+      stream.append(value(i));
+    }
+    stream.close();
+    // corrupt the payload of event 2, the second record of the first segment
+    try (RandomAccessFile file = new RandomAccessFile(segmentFiles().getFirst().toFile(), "rw")) {
+      file.seek(LogSegment.HEADER_BYTES + 10 + LogSegment.HEADER_BYTES);
+      file.write('X');
+    }
+
+    MappedFileEventStream reopened = reopen();
+    assertThat(reopened.getEventsAfter(new EventId(streamId, 0)))
+        .extracting(Event::value)
+        .containsExactly(value(1));
+    assertThat(segmentFiles()).hasSize(1);
+    assertThat(reopened.append(value(2)).id().index()).isEqualTo(2);
+    assertThat(reopen().getEventsAfter(new EventId(streamId, 0))).hasSize(2);
+  }
+
+  @Test
+  void retentionDropsTheOldestSegments() {
+    MappedFileEventStream stream = create();
+    for (int i = 1; i <= 10; i++) {
+      stream.append(value(i));
+    }
+
+    stream.enforceRetention(2L * SEGMENT_SIZE, 0);
+
+    assertThat(stream.segmentCount()).isEqualTo(2);
+    assertThat(segmentFiles()).hasSize(2);
+    assertThat(stream.getEventsAfter(new EventId(streamId, 6)))
+        .extracting(Event::value)
+        .containsExactly(value(7), value(8), value(9), value(10));
+    assertThatThrownBy(() -> stream.getEventsAfter(new EventId(streamId, 5)))
+        .isInstanceOf(EventGapException.class)
+        .satisfies(e -> assertThat(((EventGapException) e).oldestRetainedIndex()).isEqualTo(7));
+  }
+
+  @Test
+  void repositoryReopensStreamsAfterARestart() {
+    Duration day = Duration.ofDays(1);
+    MappedFileEventStreamRepository before =
+        new MappedFileEventStreamRepository(directory, SEGMENT_SIZE, 0, day, day, clock);
+    EventStream stream = before.create();
+    stream.append(value(1));
+    stream.append(value(2));
+    before.close();
+
+    MappedFileEventStreamRepository after =
+        new MappedFileEventStreamRepository(directory, SEGMENT_SIZE, 0, day, day, clock);
+    List<StreamId> removed = new ArrayList<>();
+    after.addRemovalListener(removed::add);
+
+    EventStream resumed = after.get(stream.getStreamId()).orElseThrow();
+    assertThat(resumed.getEventsAfter(new EventId(stream.getStreamId(), 1)))
+        .extracting(Event::value)
+        .containsExactly(value(2));
+    assertThat(after.get(StreamId.newStreamId())).isEmpty();
+
+    after.delete(stream.getStreamId());
+    assertThat(removed).containsExactly(stream.getStreamId());
+    assertThat(after.get(stream.getStreamId())).isEmpty();
+  }
+
+  private List<Path> segmentFiles() {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(LogSegment::isSegmentFile).sorted().toList();
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package com.example.stream_03.watchlist;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class RingBufferEventStreamTest {
+
+  private final StreamId streamId = StreamId.newStreamId();
+  private final AtomicLong clock = new AtomicLong();
+
+  private RingBufferEventStream stream(int capacity, Duration maxAge) {
+    return new RingBufferEventStream(streamId, capacity, maxAge, clock::get);
+  }
+
+  @Test
+  void capacityIsRoundedUpToPowerOfTwo() {
+    assertThat(stream(1, Duration.ZERO).capacity()).isEqualTo(1);
+    assertThat(stream(3, Duration.ZERO).capacity()).isEqualTo(4);
+    assertThat(stream(1024, Duration.ZERO).capacity()).isEqualTo(1024);
+    assertThatThrownBy(() -> stream(0, Duration.ZERO)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void returnsEventsAfterTheGivenIndex() {
+    RingBufferEventStream stream = stream(8, Duration.ZERO);
+    for (int i = 1; i <= 5; i++) {
+      assertThat(stream.append("v" + i).id()).isEqualTo(new EventId(streamId, i));
+    }
+
+    assertThat(stream.getEventsAfter(new EventId(streamId, 2)))
+        .extracting(Event::value)
+        .containsExactly("v3", "v4", "v5");
+    assertThat(stream.getEventsAfter(new EventId(streamId, 0))).hasSize(5);
+    assertThat(stream.getEventsAfter(new EventId(streamId, 5))).isEmpty();
+  }
+
+  @Test
+  void keepsOnlyTheLastCapacityEvents() {
+    RingBufferEventStream stream = stream(4, Duration.ZERO);
+    for (int i = 1; i <= 10; i++) {
+      stream.append("v" + i);
+    }
+
+    assertThat(stream.getEventsAfter(new EventId(streamId, 6)))
+        .extracting(Event::value)
+        .containsExactly("v7", "v8", "v9", "v10");
+    assertThatThrownBy(() -> stream.getEventsAfter(new EventId(streamId, 5)))
+        .isInstanceOf(EventGapException.class)
+        .satisfies(e -> assertThat(((EventGapException) e).oldestRetainedIndex()).isEqualTo(7));
+  }
+
+  @Test
+  void resumingFromLongBeforeTheRingIsAGap() {
+    RingBufferEventStream stream = stream(4, Duration.ZERO);
+    for (int i = 1; i <= 1_000; i++) {
+      stream.append("v" + i);
+    }
+
+    assertThatThrownBy(() -> stream.getEventsAfter(new EventId(streamId, 0)))
+        .isInstanceOf(EventGapException.class)
+        .satisfies(e -> assertThat(((EventGapException) e).oldestRetainedIndex()).isEqualTo(997));
+  }
+
+  @Test
+  void expiredEventsAreAGap() {
+    RingBufferEventStream stream = stream(16, Duration.ofSeconds(10));
+    stream.append("old");
+    clock.addAndGet(Duration.ofSeconds(8).toNanos());
+    stream.append("new");
+    clock.addAndGet(Duration.ofSeconds(5).toNanos());
+
+    assertThat(stream.getEventsAfter(new EventId(streamId, 1)))
+        .extracting(Event::value)
+        .containsExactly("new");
+    assertThatThrownBy(() -> stream.getEventsAfter(new EventId(streamId, 0)))
+        .isInstanceOf(EventGapException.class);
+  }
+
+  @Test
+  void rejectsOtherStreams() {
+    assertThatThrownBy(
+            () -> stream(4, Duration.ZERO).getEventsAfter(new EventId(StreamId.newStreamId(), 0)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void concurrentAppendsAreReadInOrderWithoutHoles() throws Exception {
+    RingBufferEventStream stream = stream(1 << 16, Duration.ZERO);
+    int writers = 4;
+    int perWriter = 5_000;
+    CountDownLatch start = new CountDownLatch(1);
+    try (ExecutorService executor = Executors.newFixedThreadPool(writers)) {
+      for (int w = 0; w < writers; w++) {
+        executor.submit(
+            () -> {
+              start.await();
+              for (int i = 0; i < perWriter; i++) {
+                stream.append("x");
+              }
+              return null;
+            });
+      }
+      start.countDown();
+      // read concurrently with the writers: every read must be a gap-free prefix
+      List<Event> seen = new ArrayList<>();
+      while (seen.size() < writers * perWriter) {
+        int last = seen.isEmpty() ? 0 : seen.getLast().id().index();
+        seen.addAll(stream.getEventsAfter(new EventId(streamId, last)));
+      }
+      for (int i = 0; i < seen.size(); i++) {
+        assertThat(seen.get(i).id().index()).isEqualTo(i + 1);
+      }
+    }
+  }
+}
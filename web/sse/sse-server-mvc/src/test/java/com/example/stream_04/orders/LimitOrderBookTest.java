@@ -0,0 +1,67 @@
+package com.example.stream_04.orders;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class LimitOrderBookTest {
+
+  private final LimitOrderBook<String> book = new LimitOrderBook<>();
+
+  private List<String> takeCrossing(long price) {
+    List<String> executed = new ArrayList<>();
+    book.takeCrossing(price, executed);
+    return executed;
+  }
+
+  @Test
+  void executesOrdersAtOrAboveThePriceBestLimitFirst() {
+    book.add(10_050, "a");
+    book.add(10_200, "b");
+    book.add(9_900, "c");
+    book.add(10_100, "d");
+
+    assertThat(takeCrossing(10_300)).isEmpty();
+    assertThat(takeCrossing(10_050)).containsExactly("b", "d", "a");
+    assertThat(book.size()).isEqualTo(1);
+    assertThat(takeCrossing(9_000)).containsExactly("c");
+    assertThat(book.isEmpty()).isTrue();
+  }
+
+  @Test
+  void ordersWithTheSameLimitExecuteInArrivalOrder() {
+    for (int i = 0; i < 40; i++) {
+      book.add(i % 2 == 0 ? 100 : 200, "o" + i);
+    }
+
+    List<String> executed = takeCrossing(100);
+
+    assertThat(executed.subList(0, 20))
+        .containsExactlyElementsOf(
+            IntStream.range(0, 20).mapToObj(i -> "o" + (2 * i + 1)).toList());
+    assertThat(executed.subList(20, 40))
+        .containsExactlyElementsOf(IntStream.range(0, 20).mapToObj(i -> "o" + (2 * i)).toList());
+  }
+
+  @Test
+  void growsAndKeepsHeapOrder() {
+    Random random = new Random(42);
+    List<Long> limits = new ArrayList<>();
+    LimitOrderBook<Long> numbers = new LimitOrderBook<>();
+    for (int i = 0; i < 1_000; i++) {
+      long limit = random.nextInt(500);
+      limits.add(limit);
+      numbers.add(limit, limit);
+    }
+
+    List<Long> executed = new ArrayList<>();
+    assertThat(numbers.takeCrossing(250, executed))
+        .isEqualTo(limits.stream().filter(limit -> limit >= 250).count());
+    assertThat(executed).isSortedAccordingTo((a, b) -> Long.compare(b, a)).allMatch(l -> l >= 250);
+    assertThat(numbers.size()).isEqualTo(limits.size() - executed.size());
+  }
+}
@@ -0,0 +1,95 @@
+package com.example.stream_04.orders;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import com.example.stocks.StockPrice;
+import com.example.stocks.StockPriceBroadcaster;
+import com.example.stocks.StockPriceBroadcaster.Listener;
+import com.example.stocks.StockPriceBroadcaster.Subscription;
+import com.example.stocks.StockPriceBroadcaster.Tick;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class OrderMatchingEngineTest {
+
+  private final StockPriceBroadcaster broadcaster = mock(StockPriceBroadcaster.class);
+  private final Subscription subscription = mock(Subscription.class);
+  private final OrderMatchingEngine engine = new OrderMatchingEngine(broadcaster);
+  private final List<LimitOrderExecuted> executed = new ArrayList<>();
+
+  OrderMatchingEngineTest() {
+    when(broadcaster.subscribe(any(String.class), any(Listener.class))).thenReturn(subscription);
+  }
+
+  private static LimitOrderRequest buy(String maxPrice) {
+    return new LimitOrderRequest("AAPL", 10, new BigDecimal(maxPrice));
+  }
+
+  private Listener ticker() {
+    ArgumentCaptor<Listener> listener = ArgumentCaptor.forClass(Listener.class);
+    verify(broadcaster).subscribe(eq("AAPL"), listener.capture());
+    return listener.getValue();
+  }
+
+  private static Tick tick(String price) {
+    return new Tick(
+        1,
+        new StockPrice("AAPL", new BigDecimal(price), LocalDateTime.now()),
+        "{}",
+        new byte[0],
+        System.nanoTime());
+  }
+
+  @Test
+  void aTickExecutesEveryCrossingOrderAndNothingElse() throws Exception {
+    engine.submit(buy("101.00"), executed::add);
+    engine.submit(buy("103.50"), executed::add);
+    engine.submit(buy("102.25"), executed::add);
+    Listener ticker = ticker();
+
+    ticker.onTick(tick("104.00"));
+    assertThat(executed).isEmpty();
+
+    ticker.onTick(tick("102.25"));
+    assertThat(executed)
+        .extracting(status -> status.limitOrderRequest().maxPrice())
+        .containsExactly(new BigDecimal("103.50"), new BigDecimal("102.25"));
+    assertThat(executed)
+        .extracting(LimitOrderExecuted::purchasePrice)
+        .containsOnly(new BigDecimal("102.25"));
+    assertThat(engine.openOrders("AAPL")).isEqualTo(1);
+    verify(subscription, never()).close();
+  }
+
+  @Test
+  void neverExecutesAboveTheLimit() throws Exception {
+    engine.submit(buy("101.999"), executed::add);
+    Listener ticker = ticker();
+
+    ticker.onTick(tick("101.995"));
+    assertThat(executed).isEmpty();
+
+    ticker.onTick(tick("101.99"));
+    assertThat(executed).hasSize(1);
+  }
+
+  @Test
+  void unsubscribesOnceTheBookIsEmptyAndResubscribesForNewOrders() throws Exception {
+    engine.submit(buy("101.00"), executed::add);
+    ticker().onTick(tick("100.00"));
+
+    verify(subscription).close();
+    assertThat(engine.openOrders("AAPL")).isZero();
+
+    engine.submit(buy("99.00"), executed::add);
+    verify(broadcaster, times(2)).subscribe(eq("AAPL"), any(Listener.class));
+    assertThat(engine.openOrders("AAPL")).isEqualTo(1);
+  }
+}
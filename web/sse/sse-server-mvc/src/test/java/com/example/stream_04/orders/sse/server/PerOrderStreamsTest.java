@@ -0,0 +1,81 @@
+package com.example.stream_04.orders.sse.server;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.rabbitmq.stream.Environment;
+import com.rabbitmq.stream.StreamCreator;
+import com.rabbitmq.stream.StreamDoesNotExistException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+class PerOrderStreamsTest {
+
+  private final Environment environment = mock(Environment.class);
+  private final StreamCreator creator = mock(StreamCreator.class, RETURNS_SELF);
+  private final AtomicLong nanos = new AtomicLong();
+  private final StreamRetention retention =
+      new StreamRetention(Duration.ofHours(1), DataSize.ofMegabytes(1), DataSize.ofKilobytes(256));
+  private final PerOrderStreams streams =
+      new PerOrderStreams(environment, retention, Duration.ofMinutes(5), nanos::get);
+
+  @Test
+  void createsStreamsWithRetention() {
+    when(environment.streamCreator()).thenReturn(creator);
+    SseStreamId order = SseStreamId.generate("aapl");
+
+    streams.create(order);
+
+    verify(creator).stream(order.fullName());
+    verify(creator).maxAge(Duration.ofHours(1));
+    verify(creator).maxLengthBytes(argThat(bytes -> bytes.toBytes() == 1024 * 1024));
+    verify(creator).maxSegmentSizeBytes(argThat(bytes -> bytes.toBytes() == 256 * 1024));
+    verify(creator).create();
+  }
+
+  @Test
+  void deletesFinishedStreamsAfterTheGracePeriod() {
+    SseStreamId first = SseStreamId.generate("aapl");
+    SseStreamId second = SseStreamId.generate("msft");
+    streams.finished(first);
+    nanos.addAndGet(Duration.ofMinutes(1).toNanos());
+    streams.finished(second);
+
+    nanos.addAndGet(Duration.ofMinutes(4).toNanos() - 1);
+    streams.deleteFinishedStreams();
+    verify(environment, never()).deleteStream(any());
+
+    nanos.incrementAndGet();
+    streams.deleteFinishedStreams();
+    verify(environment).deleteStream(first.fullName());
+    verify(environment, never()).deleteStream(second.fullName());
+    assertThat(streams.pendingDeletions()).isEqualTo(1);
+  }
+
+  @Test
+  void streamsDeletedElsewhereAreForgotten() {
+    SseStreamId order = SseStreamId.generate("aapl");
+    doThrow(new StreamDoesNotExistException(order.fullName()))
+        .when(environment)
+        .deleteStream(order.fullName());
+    streams.finished(order);
+    nanos.addAndGet(Duration.ofMinutes(5).toNanos());
+
+    streams.deleteFinishedStreams();
+    streams.deleteFinishedStreams();
+
+    verify(environment, times(1)).deleteStream(order.fullName());
+    assertThat(streams.pendingDeletions()).isZero();
+  }
+
+  @Test
+  void rejectsSegmentsLargerThanTheStream() {
+    assertThatThrownBy(
+            () ->
+                new StreamRetention(
+                    Duration.ofHours(1), DataSize.ofKilobytes(256), DataSize.ofMegabytes(1)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
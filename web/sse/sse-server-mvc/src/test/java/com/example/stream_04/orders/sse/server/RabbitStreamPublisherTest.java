@@ -0,0 +1,144 @@
+package com.example.stream_04.orders.sse.server;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.stream.ConfirmationHandler;
+import com.rabbitmq.stream.ConfirmationStatus;
+import com.rabbitmq.stream.Message;
+import com.rabbitmq.stream.Producer;
+import com.rabbitmq.stream.codec.WrapperMessageBuilder;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class RabbitStreamPublisherTest {
+
+  /** Sent messages with their confirmation handlers, so the test decides when RabbitMQ answers. */
+  private final List<Message> sent = new CopyOnWriteArrayList<>();
+
+  private final List<ConfirmationHandler> pending = new CopyOnWriteArrayList<>();
+  private final Producer producer = mock(Producer.class);
+
+  RabbitStreamPublisherTest() {
+    when(producer.messageBuilder()).thenAnswer(invocation -> new WrapperMessageBuilder());
+    doAnswer(
+            invocation -> {
+              sent.add(invocation.getArgument(0));
+              pending.add(invocation.getArgument(1));
+              return null;
+            })
+        .when(producer)
+        .send(any(), any());
+  }
+
+  private RabbitStreamPublisher publisher(int maxInFlight) {
+    return new RabbitStreamPublisher(
+        SseStreamId.generate("test"), producer, new ObjectMapper(), 0, maxInFlight);
+  }
+
+  private void confirm(int i, boolean confirmed) {
+    pending.get(i).handle(new ConfirmationStatus(sent.get(i), confirmed, (short) 0));
+  }
+
+  @Test
+  void sendsWithoutWaitingForConfirms() {
+    RabbitStreamPublisher publisher = publisher(8);
+
+    CompletableFuture<ConfirmationStatus> first = publisher.publishAsync(Map.of("n", 1), "t");
+    CompletableFuture<ConfirmationStatus> second = publisher.publishAsync(Map.of("n", 2), "t");
+
+    assertThat(sent).hasSize(2);
+    assertThat(sent)
+        .extracting(message -> message.getProperties().getMessageIdAsLong())
+        .containsExactly(1L, 2L);
+    assertThat(sent).extracting(Message::getPublishingId).containsExactly(1L, 2L);
+    assertThat(publisher.inFlight()).isEqualTo(2);
+
+    confirm(1, true);
+    confirm(0, false);
+    assertThat(first.join().isConfirmed()).isFalse();
+    assertThat(second.join().isConfirmed()).isTrue();
+    assertThat(publisher.inFlight()).isZero();
+  }
+
+  @Test
+  void blocksOnceMaxInFlightMessagesAreUnconfirmed() throws Exception {
+    RabbitStreamPublisher publisher = publisher(2);
+    publisher.publishAsync("a", "t");
+    publisher.publishAsync("b", "t");
+
+    CompletableFuture<?> third = CompletableFuture.runAsync(() -> publisher.publishAsync("c", "t"));
+    Thread.sleep(100);
+    assertThat(third).isNotDone();
+    assertThat(sent).hasSize(2);
+
+    confirm(0, true);
+    third.get(5, TimeUnit.SECONDS);
+    assertThat(sent).hasSize(3);
+  }
+
+  @Test
+  void publishAllWaitsForEveryConfirm() throws Exception {
+    RabbitStreamPublisher publisher = publisher(8);
+
+    CompletableFuture<Boolean> all =
+        CompletableFuture.supplyAsync(
+            () ->
+                publisher.publishAll(
+                    List.of(
+                        new RabbitStreamPublisher.Event("a", "t"),
+                        new RabbitStreamPublisher.Event("b", "t"),
+                        new RabbitStreamPublisher.Event("c", "final"))));
+    while (sent.size() < 3) {
+      Thread.sleep(5);
+    }
+    confirm(0, true);
+    confirm(1, true);
+    assertThat(all).isNotDone();
+
+    confirm(2, true);
+    assertThat(all.get(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(sent.get(2).getApplicationProperties()).containsEntry("type", "final");
+  }
+
+  @Test
+  void closeWaitsForOutstandingConfirms() throws Exception {
+    RabbitStreamPublisher publisher = publisher(4);
+    publisher.publishAsync("a", "t");
+
+    CompletableFuture<Void> closed =
+        CompletableFuture.runAsync(
+            () -> {
+              try {
+                publisher.close();
+              } catch (Exception e) {
+                throw new RuntimeException(e);
+              }
+            });
+    Thread.sleep(100);
+    verify(producer, never()).close();
+
+    confirm(0, true);
+    closed.get(5, TimeUnit.SECONDS);
+    verify(producer).close();
+  }
+
+  @Test
+  void publishingAfterCloseFails() throws Exception {
+    RabbitStreamPublisher publisher = publisher(4);
+    publisher.close();
+
+    CompletableFuture<?> publish = CompletableFuture.runAsync(() -> publisher.publish("a", "t"));
+
+    assertThatThrownBy(() -> publish.get(5, TimeUnit.SECONDS))
+        .hasCauseInstanceOf(IllegalStateException.class);
+    assertThat(sent).isEmpty();
+    assertThat(publisher.inFlight()).isZero();
+  }
+}
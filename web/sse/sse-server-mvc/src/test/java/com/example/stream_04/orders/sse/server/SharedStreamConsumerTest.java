@@ -0,0 +1,147 @@
+package com.example.stream_04.orders.sse.server;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import com.rabbitmq.stream.Consumer;
+import com.rabbitmq.stream.Message;
+import com.rabbitmq.stream.MessageHandler;
+import com.rabbitmq.stream.OffsetSpecification;
+import com.rabbitmq.stream.codec.WrapperMessageBuilder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class SharedStreamConsumerTest {
+
+  private final SseStreamId streamId = SseStreamId.generate("aapl");
+  private final Consumer consumer = mock(Consumer.class);
+  private final List<OffsetSpecification> openedAt = new ArrayList<>();
+  private final AtomicInteger closed = new AtomicInteger();
+  private final SharedStreamConsumer shared =
+      new SharedStreamConsumer(
+          streamId,
+          2,
+          (offset, handler) -> {
+            openedAt.add(offset);
+            return consumer;
+          },
+          closed::incrementAndGet);
+
+  private long nextOffset = 100;
+
+  private record Subscriber(RabbitSseBridge bridge, ServerSentEventPublisher publisher) {}
+
+  private Subscriber subscriber(long lastIndex) {
+    ServerSentEventPublisher publisher = mock(ServerSentEventPublisher.class);
+    return new Subscriber(
+        new RabbitSseBridge(new SseEventId(streamId, lastIndex), "final", publisher), publisher);
+  }
+
+  private Message receive(long messageId, String type) {
+    Message message =
+        new WrapperMessageBuilder()
+            .properties()
+            .messageId(messageId)
+            .messageBuilder()
+            .applicationProperties()
+            .entry("type", type)
+            .messageBuilder()
+            .addData("{}".getBytes(StandardCharsets.UTF_8))
+            .build();
+    MessageHandler.Context context = mock(MessageHandler.Context.class);
+    when(context.offset()).thenReturn(nextOffset++);
+    shared.handle(context, message);
+    return message;
+  }
+
+  private byte[] frame(Message message, long offset) {
+    return ServerSentEventPublisher.encode(streamId, message, offset);
+  }
+
+  @Test
+  void everyBridgeIsSentTheSameEncodedFrame() {
+    Subscriber first = subscriber(0);
+    Subscriber second = subscriber(0);
+    shared.join(first.bridge());
+    shared.join(second.bridge());
+
+    receive(1, "pending");
+
+    ArgumentCaptor<byte[]> sentToFirst = ArgumentCaptor.forClass(byte[].class);
+    ArgumentCaptor<byte[]> sentToSecond = ArgumentCaptor.forClass(byte[].class);
+    verify(first.publisher()).publish(sentToFirst.capture(), anyLong());
+    verify(second.publisher()).publish(sentToSecond.capture(), anyLong());
+    assertThat(sentToSecond.getValue()).isSameAs(sentToFirst.getValue());
+    assertThat(new String(sentToFirst.getValue(), StandardCharsets.UTF_8))
+        .isEqualTo("id: " + streamId.fullName() + "_1_100\nevent: pending\ndata: {}\n\n");
+  }
+
+  @Test
+  void lateJoinerIsReplayedFromTheTailAndFollowsLive() throws Exception {
+    Subscriber first = subscriber(0);
+    assertThat(shared.join(first.bridge())).isTrue();
+    Message m1 = receive(1, "pending");
+    Message m2 = receive(2, "pending");
+
+    Subscriber second = subscriber(1);
+    assertThat(shared.join(second.bridge())).isTrue();
+    Message m3 = receive(3, "pending");
+
+    assertThat(openedAt).hasSize(1);
+    verify(first.publisher()).publish(eq(frame(m1, 100)), anyLong());
+    verify(first.publisher()).publish(eq(frame(m3, 102)), anyLong());
+    verify(second.publisher(), never()).publish(eq(frame(m1, 100)), anyLong());
+    verify(second.publisher()).publish(eq(frame(m2, 101)), anyLong());
+    verify(second.publisher()).publish(eq(frame(m3, 102)), anyLong());
+
+    first.bridge().close();
+    verify(consumer, never()).close();
+    second.bridge().close();
+    verify(consumer).close();
+    assertThat(closed).hasValue(1);
+    assertThat(shared.isClosed()).isTrue();
+    assertThat(shared.join(subscriber(3).bridge())).isFalse();
+  }
+
+  @Test
+  void joinerBehindTheTailCacheIsTurnedAway() {
+    assertThat(shared.join(subscriber(0).bridge())).isTrue();
+    receive(1, "pending");
+    receive(2, "pending");
+    receive(3, "pending");
+
+    assertThat(shared.join(subscriber(0).bridge())).isFalse();
+    assertThat(shared.join(subscriber(1).bridge())).isTrue();
+    assertThat(shared.bridgeCount()).isEqualTo(2);
+  }
+
+  @Test
+  void consumerStartsAfterTheFirstJoinersOffset() {
+    ServerSentEventPublisher publisher = mock(ServerSentEventPublisher.class);
+    shared.join(new RabbitSseBridge(new SseEventId(streamId, 5, 4096), "final", publisher));
+
+    assertThat(openedAt)
+        .singleElement()
+        .usingRecursiveComparison()
+        .isEqualTo(OffsetSpecification.offset(4097));
+  }
+
+  @Test
+  void finalEventDetachesTheBridge() {
+    Subscriber subscriber = subscriber(0);
+    shared.join(subscriber.bridge());
+
+    receive(1, "final");
+
+    verify(subscriber.publisher()).publish(any(byte[].class), anyLong());
+    assertThat(shared.bridgeCount()).isZero();
+    verify(consumer).close();
+  }
+}
@@ -0,0 +1,43 @@
+package com.example.stream_04.orders.sse.server;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class SseEventIdTest {
+
+  private final SseStreamId streamId = SseStreamId.generate("aapl");
+
+  @Test
+  void roundTripsWithOffset() {
+    SseEventId id = new SseEventId(streamId, 7, 4096);
+
+    assertThat(id.toString()).isEqualTo(streamId.fullName() + "_7_4096");
+    assertThat(SseEventId.fromString(id.toString())).isEqualTo(id);
+  }
+
+  @Test
+  void parsesIdsWithoutOffset() {
+    SseEventId id = SseEventId.fromString(streamId.fullName() + "_3");
+
+    assertThat(id.index()).isEqualTo(3);
+    assertThat(id.hasOffset()).isFalse();
+    assertThat(id.toString()).isEqualTo(streamId.fullName() + "_3");
+  }
+
+  @Test
+  void firstEventHasNoOffset() {
+    assertThat(SseEventId.firstEvent(streamId).hasOffset()).isFalse();
+    assertThat(SseEventId.firstEvent(streamId).at(1, 0)).isEqualTo(new SseEventId(streamId, 1, 0));
+  }
+
+  @Test
+  void rejectsMalformedOffsets() {
+    assertThatThrownBy(() -> SseEventId.fromString(streamId.fullName() + "_3_x"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> SseEventId.fromString(streamId.fullName() + "_3_"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new SseEventId(streamId, 3, -2))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,74 @@
+package com.example.stream_04.orders.sse.server;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.rabbitmq.stream.Environment;
+import com.rabbitmq.stream.Message;
+import com.rabbitmq.stream.StreamCreator;
+import com.rabbitmq.stream.StreamCreator.SuperStreamConfiguration;
+import com.rabbitmq.stream.codec.WrapperMessageBuilder;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+class SuperStreamOrderStreamsTest {
+
+  private final Environment environment = mock(Environment.class);
+  private final SuperStreamOrderStreams streams =
+      new SuperStreamOrderStreams(
+          environment,
+          "orders",
+          3,
+          new StreamRetention(
+              Duration.ofHours(1), DataSize.ofGigabytes(1), DataSize.ofMegabytes(16)));
+
+  @Test
+  void spreadsOrdersOverThePartitionsAndKeepsEachOnOne() {
+    Set<String> used = new HashSet<>();
+    for (int i = 0; i < 100; i++) {
+      SseStreamId order = SseStreamId.generate("aapl");
+      String partition = streams.partitionOf(order);
+
+      assertThat(streams.partitionOf(SseStreamId.fromString(order.fullName())))
+          .isEqualTo(partition);
+      used.add(partition);
+    }
+    assertThat(used).containsExactlyInAnyOrder("orders-0", "orders-1", "orders-2");
+  }
+
+  @Test
+  void createsTheSuperStreamOnce() {
+    StreamCreator creator = mock(StreamCreator.class, RETURNS_SELF);
+    SuperStreamConfiguration superStream = mock(SuperStreamConfiguration.class, RETURNS_SELF);
+    when(environment.streamCreator()).thenReturn(creator);
+    when(creator.superStream()).thenReturn(superStream);
+    when(superStream.creator()).thenReturn(creator);
+
+    streams.create(SseStreamId.generate("aapl"));
+    streams.create(SseStreamId.generate("msft"));
+
+    verify(creator).name("orders");
+    verify(superStream).partitions(3);
+    verify(creator).maxAge(Duration.ofHours(1));
+    verify(creator, times(1)).create();
+  }
+
+  @Test
+  void consumersOnlySeeTheirOrdersMessages() {
+    SseStreamId order = SseStreamId.generate("aapl");
+
+    assertThat(SuperStreamOrderStreams.belongsTo(message(order.fullName()), order.fullName()))
+        .isTrue();
+    assertThat(
+            SuperStreamOrderStreams.belongsTo(
+                message(SseStreamId.generate("aapl").fullName()), order.fullName()))
+        .isFalse();
+  }
+
+  private static Message message(String groupId) {
+    return new WrapperMessageBuilder().properties().groupId(groupId).messageBuilder().build();
+  }
+}